@@ -0,0 +1,510 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Binary delta encoder and patch applier, for resources which can not be tokenized by a {@link DelimitingMethod} (archives, images: see
+ * {@link org.openflexo.toolbox.FileFormat.BinaryFileFormat}).<br>
+ * 
+ * Blocks of the source are indexed by a rolling hash, every blockSize bytes. The target is then read as a stream: at each position, the
+ * hash of the next blockSize bytes is looked up in the index, and a verified match is extended as far as possible, forwards and
+ * backwards. Target is thus encoded as a sequence of COPY (from source) and ADD (literal bytes) instructions.<br>
+ * 
+ * Memory is bounded: the index holds at most maxIndexEntries blocks (block size grows with large sources), target and literals are
+ * buffered by fixed size windows, and sources are accessed through {@link ByteBuffer}s, usually memory mapped from a {@link FileChannel}.
+ * <br>
+ * 
+ * Deltas record length and CRC32 of source and target: applying a delta to another source, or a corrupted delta, throws an
+ * {@link IOException}.
+ */
+public final class BinaryDelta {
+
+	public static final int DEFAULT_BLOCK_SIZE = 16;
+	public static final int DEFAULT_MAX_INDEX_ENTRIES = 1 << 20;
+
+	private static final byte[] MAGIC = { 'F', 'D', 'L', 'T', 1 };
+	private static final int END = 0;
+	private static final int COPY = 1;
+	private static final int ADD = 2;
+
+	/** Size of target window, and maximal size of an ADD instruction */
+	private static final int WINDOW_SIZE = 1 << 16;
+
+	private static final long PRIME = 0x100000001b3L;
+
+	private BinaryDelta() {
+	}
+
+	/**
+	 * Compute delta transforming source file into target file, and store it in delta file
+	 */
+	public static void encode(File source, File target, File delta) throws IOException {
+		try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+				InputStream in = new FileInputStream(target);
+				OutputStream out = new FileOutputStream(delta)) {
+			encode(map(channel), in, out);
+		}
+	}
+
+	/**
+	 * Compute delta transforming source into target
+	 */
+	public static byte[] encode(byte[] source, byte[] target) {
+		ByteArrayOutputStream returned = new ByteArrayOutputStream();
+		try {
+			encode(ByteBuffer.wrap(source), new ByteArrayInputStream(target), returned);
+		} catch (IOException e) {
+			// Cannot happen with in-memory streams
+			throw new IllegalStateException(e);
+		}
+		return returned.toByteArray();
+	}
+
+	/**
+	 * Compute delta transforming source into target, read as a stream, and write it to delta stream
+	 */
+	public static void encode(ByteBuffer source, InputStream target, OutputStream delta) throws IOException {
+		encode(source, target, delta, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_INDEX_ENTRIES);
+	}
+
+	/**
+	 * Compute delta transforming source into target, read as a stream, and write it to delta stream. Source is indexed every blockSize
+	 * bytes, or less often so that index holds at most maxIndexEntries blocks.
+	 */
+	public static void encode(ByteBuffer source, InputStream target, OutputStream delta, int blockSize, int maxIndexEntries)
+			throws IOException {
+		source = source.duplicate();
+		source.position(0);
+		int sourceLength = source.limit();
+		int block = Math.max(Math.max(4, blockSize), (int) ((sourceLength + (long) maxIndexEntries - 1) / Math.max(1, maxIndexEntries)));
+		OutputStream out = new BufferedOutputStream(delta);
+		out.write(MAGIC);
+		writeVarLong(out, sourceLength);
+		writeInt(out, crc(source));
+		new Encoder(source, block, out).encode(target);
+		out.flush();
+	}
+
+	/**
+	 * Apply delta file to source file, and write result to target file
+	 */
+	public static void apply(File source, File delta, File target) throws IOException {
+		try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+				InputStream in = new FileInputStream(delta);
+				OutputStream out = new FileOutputStream(target)) {
+			apply(map(channel), in, out);
+		}
+	}
+
+	/**
+	 * Apply delta to source, and return target
+	 */
+	public static byte[] apply(byte[] source, byte[] delta) throws IOException {
+		ByteArrayOutputStream returned = new ByteArrayOutputStream();
+		apply(ByteBuffer.wrap(source), new ByteArrayInputStream(delta), returned);
+		return returned.toByteArray();
+	}
+
+	/**
+	 * Apply delta, read as a stream, to source, and write target to supplied stream
+	 */
+	public static void apply(ByteBuffer source, InputStream delta, OutputStream target) throws IOException {
+		source = source.duplicate();
+		source.position(0);
+		InputStream in = new BufferedInputStream(delta);
+		byte[] magic = new byte[MAGIC.length];
+		readFully(in, magic, magic.length);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not a binary delta");
+		}
+		if (readVarLong(in) != source.limit() || readInt(in) != crc(source)) {
+			throw new IOException("Delta does not apply to this source");
+		}
+		OutputStream out = new BufferedOutputStream(target);
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[WINDOW_SIZE];
+		long written = 0;
+		for (;;) {
+			int instruction = in.read();
+			if (instruction == END) {
+				break;
+			}
+			else if (instruction == COPY) {
+				long offset = readVarLong(in);
+				long length = readVarLong(in);
+				if (offset < 0 || length < 0 || offset + length > source.limit()) {
+					throw new IOException("Invalid copy " + offset + "," + length);
+				}
+				ByteBuffer copied = source.duplicate();
+				copied.position((int) offset);
+				copied.limit((int) (offset + length));
+				while (copied.hasRemaining()) {
+					int count = Math.min(buffer.length, copied.remaining());
+					copied.get(buffer, 0, count);
+					out.write(buffer, 0, count);
+					crc.update(buffer, 0, count);
+				}
+				written += length;
+			}
+			else if (instruction == ADD) {
+				long length = readVarLong(in);
+				if (length < 0 || length > WINDOW_SIZE) {
+					throw new IOException("Invalid add " + length);
+				}
+				readFully(in, buffer, (int) length);
+				out.write(buffer, 0, (int) length);
+				crc.update(buffer, 0, (int) length);
+				written += length;
+			}
+			else {
+				throw new IOException("Invalid instruction " + instruction);
+			}
+		}
+		if (readVarLong(in) != written || readInt(in) != (int) crc.getValue()) {
+			throw new IOException("Corrupted delta: target does not match recorded length and checksum");
+		}
+		out.flush();
+	}
+
+	/**
+	 * Streaming encoder: target is read through a window, literals are buffered until next copy
+	 */
+	private static final class Encoder {
+		private final ByteBuffer source;
+		private final int sourceLength;
+		private final int block;
+		private final OutputStream out;
+
+		private final long[] hashes;
+		private final int[] offsets;
+		private final int mask;
+		private final long power;
+
+		private final byte[] window = new byte[WINDOW_SIZE + 1];
+		private int pos, end;
+		private InputStream target;
+		private boolean eof;
+
+		private final byte[] literals = new byte[WINDOW_SIZE];
+		private int literalsCount;
+
+		private long pendingCopyOffset = -1, pendingCopyLength;
+		private final CRC32 crc = new CRC32();
+		private long targetLength;
+
+		Encoder(ByteBuffer source, int block, OutputStream out) {
+			this.source = source;
+			this.sourceLength = source.limit();
+			this.block = Math.min(block, WINDOW_SIZE / 2);
+			this.out = out;
+			long p = 1;
+			for (int i = 1; i < this.block; i++) {
+				p *= PRIME;
+			}
+			power = p;
+			int entries = sourceLength / this.block;
+			int capacity = Integer.highestOneBit(Math.max(16, entries * 2 - 1)) << 1;
+			hashes = new long[capacity];
+			offsets = new int[capacity];
+			Arrays.fill(offsets, -1);
+			mask = capacity - 1;
+			index();
+		}
+
+		private void index() {
+			for (int offset = 0; offset + block <= sourceLength; offset += block) {
+				long hash = 0;
+				for (int i = offset; i < offset + block; i++) {
+					hash = hash * PRIME + (source.get(i) & 0xff);
+				}
+				int slot = slot(hash);
+				while (offsets[slot] >= 0 && hashes[slot] != hash) {
+					slot = slot + 1 & mask;
+				}
+				if (offsets[slot] < 0) {
+					// Keep first block for a given hash
+					hashes[slot] = hash;
+					offsets[slot] = offset;
+				}
+			}
+		}
+
+		private int lookup(long hash) {
+			int slot = slot(hash);
+			while (offsets[slot] >= 0) {
+				if (hashes[slot] == hash) {
+					return offsets[slot];
+				}
+				slot = slot + 1 & mask;
+			}
+			return -1;
+		}
+
+		private int slot(long hash) {
+			return (int) (hash ^ hash >>> 31) & mask;
+		}
+
+		/**
+		 * Move unprocessed bytes at start of window, and read more. Return false when no byte remains.
+		 */
+		private boolean fill() throws IOException {
+			if (pos > 0) {
+				System.arraycopy(window, pos, window, 0, end - pos);
+				end -= pos;
+				pos = 0;
+			}
+			while (!eof && end < window.length) {
+				int read = target.read(window, end, window.length - end);
+				if (read < 0) {
+					eof = true;
+				}
+				else {
+					crc.update(window, end, read);
+					targetLength += read;
+					end += read;
+				}
+			}
+			return end > pos;
+		}
+
+		void encode(InputStream target) throws IOException {
+			this.target = target;
+			fill();
+			long hash = 0;
+			boolean hashValid = false;
+			for (;;) {
+				if (end - pos <= block && !eof) {
+					fill();
+				}
+				if (end - pos < block) {
+					// Not enough bytes left for a match
+					while (pos < end) {
+						addLiteral(window[pos++]);
+					}
+					break;
+				}
+				if (!hashValid) {
+					hash = 0;
+					for (int i = pos; i < pos + block; i++) {
+						hash = hash * PRIME + (window[i] & 0xff);
+					}
+					hashValid = true;
+				}
+				int candidate = lookup(hash);
+				if (candidate >= 0 && matches(candidate)) {
+					copy(candidate);
+					hashValid = false;
+				}
+				else {
+					addLiteral(window[pos]);
+					if (pos + block < end) {
+						hash = (hash - (window[pos] & 0xff) * power) * PRIME + (window[pos + block] & 0xff);
+					}
+					else {
+						hashValid = false;
+					}
+					pos++;
+				}
+			}
+			flushLiterals();
+			flushCopy();
+			out.write(END);
+			writeVarLong(out, targetLength);
+			writeInt(out, (int) crc.getValue());
+		}
+
+		private boolean matches(int candidate) {
+			for (int i = 0; i < block; i++) {
+				if (source.get(candidate + i) != window[pos + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Emit copy of block found at supplied source offset, extended backwards over pending literals and forwards over target
+		 */
+		private void copy(int candidate) throws IOException {
+			int back = 0;
+			while (back < literalsCount && candidate - back > 0 && source.get(candidate - back - 1) == literals[literalsCount - back - 1]) {
+				back++;
+			}
+			literalsCount -= back;
+			flushLiterals();
+			long offset = candidate - back;
+			long length = back + block;
+			pos += block;
+			int sourcePos = candidate + block;
+			while (sourcePos < sourceLength) {
+				if (pos >= end && !fill()) {
+					break;
+				}
+				if (source.get(sourcePos) != window[pos]) {
+					break;
+				}
+				sourcePos++;
+				pos++;
+				length++;
+			}
+			if (pendingCopyOffset >= 0 && pendingCopyOffset + pendingCopyLength == offset) {
+				pendingCopyLength += length;
+			}
+			else {
+				flushCopy();
+				pendingCopyOffset = offset;
+				pendingCopyLength = length;
+			}
+		}
+
+		private void addLiteral(byte b) throws IOException {
+			if (literalsCount == 0) {
+				flushCopy();
+			}
+			if (literalsCount == literals.length) {
+				flushLiterals();
+			}
+			literals[literalsCount++] = b;
+		}
+
+		private void flushLiterals() throws IOException {
+			if (literalsCount > 0) {
+				flushCopy();
+				out.write(ADD);
+				writeVarLong(out, literalsCount);
+				out.write(literals, 0, literalsCount);
+				literalsCount = 0;
+			}
+		}
+
+		private void flushCopy() throws IOException {
+			if (pendingCopyOffset >= 0) {
+				out.write(COPY);
+				writeVarLong(out, pendingCopyOffset);
+				writeVarLong(out, pendingCopyLength);
+				pendingCopyOffset = -1;
+			}
+		}
+	}
+
+	private static ByteBuffer map(FileChannel channel) throws IOException {
+		if (channel.size() > Integer.MAX_VALUE) {
+			throw new IOException("Binary deltas are limited to sources of at most 2GB");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	}
+
+	private static int crc(ByteBuffer source) {
+		CRC32 crc = new CRC32();
+		crc.update(source.duplicate());
+		return (int) crc.getValue();
+	}
+
+	private static void writeVarLong(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int) (value & 0x7f | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarLong(InputStream in) throws IOException {
+		long returned = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException("Truncated delta");
+			}
+			returned |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return returned;
+			}
+		}
+		throw new IOException("Invalid number in delta");
+	}
+
+	private static void writeInt(OutputStream out, int value) throws IOException {
+		out.write(value >>> 24);
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	private static int readInt(InputStream in) throws IOException {
+		int returned = 0;
+		for (int i = 0; i < 4; i++) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException("Truncated delta");
+			}
+			returned = returned << 8 | b;
+		}
+		return returned;
+	}
+
+	private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			int count = in.read(buffer, read, length - read);
+			if (count < 0) {
+				throw new EOFException("Truncated delta");
+			}
+			read += count;
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+/**
+ * Bit-parallel longest common subsequence of short sequences of symbols (Allison-Dix / Hyyro algorithm).<br>
+ * 
+ * The shortest sequence (the pattern, up to {@link #MAX_PATTERN_LENGTH} symbols) is encoded as one bit mask per symbol, and each symbol of
+ * the other sequence is processed with a few word operations. Column vectors are kept, so that an alignment can be traced back.<br>
+ * 
+ * Symbols are identifiers as computed by a {@link TokenInterner}: strictly positive and dense. Instances own their scratch buffers: they
+ * are reused across calls, and must not be shared between threads.<br>
+ * 
+ * Alignments are limited to a shortest sequence of {@link #MAX_PATTERN_LENGTH} symbols; similarity scores accept sequences of any length.
+ * {@link Diff} uses this kernel for its short sub-problems when <code>bit_parallel</code> is set, which {@link ComputeDiff} does for small
+ * inputs.
+ */
+public final class BitParallelDiff {
+
+	/**
+	 * Maximum length of the shortest sequence for an alignment
+	 */
+	public static final int MAX_PATTERN_LENGTH = 64;
+
+	/** Match vector of each symbol: bit i is set when pattern symbol i is this symbol */
+	private long[] matchVectors = new long[256];
+	/** Column vector after each symbol of the text */
+	private long[] columns = new long[256];
+	/** Current column, for patterns of more than 64 symbols */
+	private long[] vectors = new long[4];
+	/** Identifier of each char, while comparing texts */
+	private int[] charIds;
+	private int[] chars0 = new int[64];
+	private int[] chars1 = new int[64];
+
+	/**
+	 * Align a[aOffset,aOffset+m[ and b[bOffset,bOffset+n[, where min(m,n) <= {@link #MAX_PATTERN_LENGTH}. Indexes (relative to offsets)
+	 * of matched symbols are written in ascending order in matchA and matchB, and their number is returned.
+	 */
+	public int align(int[] a, int aOffset, int m, int[] b, int bOffset, int n, int maxSymbol, int[] matchA, int[] matchB) {
+		if (m > n) {
+			return align(b, bOffset, n, a, aOffset, m, maxSymbol, matchB, matchA);
+		}
+		if (m == 0) {
+			return 0;
+		}
+		if (m > MAX_PATTERN_LENGTH) {
+			throw new IllegalArgumentException("Cannot align sequences of " + m + " and " + n + " symbols: shortest sequence exceeds "
+					+ MAX_PATTERN_LENGTH + " symbols");
+		}
+		if (maxSymbol > matchVectors.length) {
+			matchVectors = new long[Math.max(maxSymbol, matchVectors.length * 2)];
+		}
+		if (n > columns.length) {
+			columns = new long[Math.max(n, columns.length * 2)];
+		}
+		for (int i = 0; i < m; i++) {
+			matchVectors[a[aOffset + i]] |= 1L << i;
+		}
+		long v = -1L;
+		for (int j = 0; j < n; j++) {
+			long u = v & matchVectors[b[bOffset + j]];
+			v = v + u | v - u;
+			columns[j] = v;
+		}
+		for (int i = 0; i < m; i++) {
+			matchVectors[a[aOffset + i]] = 0;
+		}
+
+		// Trace back: LCS of a[0,i[ and b[0,j[ is the number of zero bits among the i low bits of column j-1
+		int count = lcs(m, n);
+		int k = count;
+		int i = m, j = n;
+		while (i > 0 && j > 0) {
+			int l = lcs(i, j);
+			if (a[aOffset + i - 1] == b[bOffset + j - 1] && lcs(i - 1, j - 1) == l - 1) {
+				k--;
+				matchA[k] = i - 1;
+				matchB[k] = j - 1;
+				i--;
+				j--;
+			}
+			else if (lcs(i - 1, j) == l) {
+				i--;
+			}
+			else {
+				j--;
+			}
+		}
+		return count;
+	}
+
+	private int lcs(int i, int j) {
+		if (i == 0 || j == 0) {
+			return 0;
+		}
+		long mask = i == 64 ? -1L : (1L << i) - 1;
+		return i - Long.bitCount(columns[j - 1] & mask);
+	}
+
+	/**
+	 * Return the length of the longest common subsequence of a[aOffset,aOffset+m[ and b[bOffset,bOffset+n[. Sequences of any length are
+	 * accepted: the shortest one is encoded on as many words as required. Symbols must be strictly positive and lower than maxSymbol.
+	 */
+	public int lcsLength(int[] a, int aOffset, int m, int[] b, int bOffset, int n, int maxSymbol) {
+		if (m > n) {
+			return lcsLength(b, bOffset, n, a, aOffset, m, maxSymbol);
+		}
+		if (m == 0) {
+			return 0;
+		}
+		if (m > MAX_PATTERN_LENGTH) {
+			return multiWordLcsLength(a, aOffset, m, b, bOffset, n, maxSymbol);
+		}
+		if (maxSymbol > matchVectors.length) {
+			matchVectors = new long[Math.max(maxSymbol, matchVectors.length * 2)];
+		}
+		for (int i = 0; i < m; i++) {
+			matchVectors[a[aOffset + i]] |= 1L << i;
+		}
+		long v = -1L;
+		for (int j = 0; j < n; j++) {
+			long u = v & matchVectors[b[bOffset + j]];
+			v = v + u | v - u;
+		}
+		for (int i = 0; i < m; i++) {
+			matchVectors[a[aOffset + i]] = 0;
+		}
+		long mask = m == 64 ? -1L : (1L << m) - 1;
+		return m - Long.bitCount(v & mask);
+	}
+
+	/**
+	 * Same as {@link #lcsLength(int[], int, int, int[], int, int, int)} with a pattern of more than 64 symbols: additions propagate their
+	 * carry from one word to the next one
+	 */
+	private int multiWordLcsLength(int[] a, int aOffset, int m, int[] b, int bOffset, int n, int maxSymbol) {
+		int words = (m + 63) >>> 6;
+		if (maxSymbol * words > matchVectors.length) {
+			matchVectors = new long[Math.max(maxSymbol * words, matchVectors.length * 2)];
+		}
+		if (words > vectors.length) {
+			vectors = new long[Math.max(words, vectors.length * 2)];
+		}
+		long[] v = vectors;
+		for (int i = 0; i < m; i++) {
+			matchVectors[a[aOffset + i] * words + (i >>> 6)] |= 1L << i;
+		}
+		for (int w = 0; w < words; w++) {
+			v[w] = -1L;
+		}
+		for (int j = 0; j < n; j++) {
+			int base = b[bOffset + j] * words;
+			long carry = 0;
+			for (int w = 0; w < words; w++) {
+				long x = v[w];
+				long match = matchVectors[base + w];
+				long u = x & match;
+				long sum = x + u + carry;
+				carry = (x & u | (x | u) & ~sum) >>> 63;
+				v[w] = sum | x & ~match;
+			}
+		}
+		for (int i = 0; i < m; i++) {
+			matchVectors[a[aOffset + i] * words + (i >>> 6)] = 0;
+		}
+		int zeros = 0;
+		for (int w = 0; w < words; w++) {
+			int bits = Math.min(64, m - (w << 6));
+			long mask = bits == 64 ? -1L : (1L << bits) - 1;
+			zeros += bits - Long.bitCount(v[w] & mask);
+		}
+		return zeros;
+	}
+
+	/**
+	 * Return the number of insertions and deletions required to transform a[aOffset,aOffset+m[ into b[bOffset,bOffset+n[
+	 */
+	public int editDistance(int[] a, int aOffset, int m, int[] b, int bOffset, int n, int maxSymbol) {
+		return m + n - 2 * lcsLength(a, aOffset, m, b, bOffset, n, maxSymbol);
+	}
+
+	/**
+	 * Return a similarity score between a[aOffset,aOffset+m[ and b[bOffset,bOffset+n[, between 0 (nothing in common) and 1 (identical
+	 * sequences): twice the length of their longest common subsequence, divided by their total length
+	 */
+	public double similarity(int[] a, int aOffset, int m, int[] b, int bOffset, int n, int maxSymbol) {
+		if (m + n == 0) {
+			return 1.0;
+		}
+		return 2.0 * lcsLength(a, aOffset, m, b, bOffset, n, maxSymbol) / (m + n);
+	}
+
+	/**
+	 * Return a similarity score between the characters of two texts (see {@link #similarity(int[], int, int, int[], int, int, int)}).
+	 * Convenient to compare lines, or names of renamed elements.
+	 */
+	public double similarity(CharSequence text0, CharSequence text1) {
+		int m = text0.length(), n = text1.length();
+		if (charIds == null) {
+			charIds = new int[Character.MAX_VALUE + 1];
+		}
+		if (m > chars0.length) {
+			chars0 = new int[Math.max(m, chars0.length * 2)];
+		}
+		if (n > chars1.length) {
+			chars1 = new int[Math.max(n, chars1.length * 2)];
+		}
+		int maxId = 1;
+		for (int i = 0; i < m; i++) {
+			char c = text0.charAt(i);
+			if (charIds[c] == 0) {
+				charIds[c] = maxId++;
+			}
+			chars0[i] = charIds[c];
+		}
+		for (int j = 0; j < n; j++) {
+			char c = text1.charAt(j);
+			if (charIds[c] == 0) {
+				charIds[c] = maxId++;
+			}
+			chars1[j] = charIds[c];
+		}
+		double returned = similarity(chars0, 0, m, chars1, 0, n, maxId);
+		for (int i = 0; i < m; i++) {
+			charIds[text0.charAt(i)] = 0;
+		}
+		for (int j = 0; j < n; j++) {
+			charIds[text1.charAt(j)] = 0;
+		}
+		return returned;
+	}
+
+}
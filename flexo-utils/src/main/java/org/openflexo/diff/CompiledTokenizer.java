@@ -0,0 +1,344 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * A tokenizer compiled from the delimiters of a {@link DelimitingMethod}.<br>
+ * 
+ * Delimiters are looked up in a table for ASCII characters, and in a bitmap covering all other chars, instead of being searched in the
+ * delimiters String. Text is then scanned in bulk, from one delimiter to the next. When the only delimiters are line delimiters (see
+ * {@link DelimitingMethod#LINES}), Strings are scanned with {@link String#indexOf(int, int)}, and byte buffers eight bytes at a time.<br>
+ * 
+ * Carriage returns and newlines are always considered as delimiters.<br>
+ * 
+ * Compiled tokenizers are immutable and shared: use {@link #forDelimiters(String)} or {@link DelimitingMethod#getTokenizer()} to get one.
+ */
+public final class CompiledTokenizer {
+
+	private static final Map<String, CompiledTokenizer> COMPILED = new ConcurrentHashMap<>();
+
+	private final String delimiters;
+	private final boolean[] asciiDelimiters = new boolean[128];
+	/** Bitmap of non-ASCII delimiters, indexed by char, or null if there is none */
+	private final long[] bitmap;
+	private final boolean linesOnly;
+
+	/**
+	 * Return compiled tokenizer for supplied delimiters
+	 */
+	public static CompiledTokenizer forDelimiters(String delimiters) {
+		CompiledTokenizer returned = COMPILED.get(delimiters);
+		if (returned == null) {
+			returned = new CompiledTokenizer(delimiters);
+			CompiledTokenizer previous = COMPILED.putIfAbsent(delimiters, returned);
+			if (previous != null) {
+				returned = previous;
+			}
+		}
+		return returned;
+	}
+
+	private CompiledTokenizer(String delimiters) {
+		this.delimiters = delimiters;
+		asciiDelimiters['\r'] = true;
+		asciiDelimiters['\n'] = true;
+		long[] bitmap = null;
+		boolean linesOnly = true;
+		for (int i = 0; i < delimiters.length(); i++) {
+			char c = delimiters.charAt(i);
+			if (c < 128) {
+				asciiDelimiters[c] = true;
+			}
+			else {
+				if (bitmap == null) {
+					bitmap = new long[1024];
+				}
+				bitmap[c >>> 6] |= 1L << c;
+			}
+			if (c != '\r' && c != '\n') {
+				linesOnly = false;
+			}
+		}
+		this.bitmap = bitmap;
+		this.linesOnly = linesOnly;
+	}
+
+	public String getDelimiters() {
+		return delimiters;
+	}
+
+	/**
+	 * Return true when the only delimiters of this tokenizer are carriage returns and newlines
+	 */
+	public boolean isLinesOnly() {
+		return linesOnly;
+	}
+
+	public boolean isDelimiter(char c) {
+		if (c < 128) {
+			return asciiDelimiters[c];
+		}
+		return bitmap != null && (bitmap[c >>> 6] & 1L << c) != 0;
+	}
+
+	/**
+	 * Return index of first delimiter of supplied text located in [from,to[, or to if there is none
+	 */
+	public int nextDelimiter(CharSequence text, int from, int to) {
+		if (linesOnly) {
+			for (int i = from; i < to; i++) {
+				char c = text.charAt(i);
+				if (c == '\n' || c == '\r') {
+					return i;
+				}
+			}
+			return to;
+		}
+		return scanDelimiter(text, from, to);
+	}
+
+	private int scanDelimiter(CharSequence text, int from, int to) {
+		if (bitmap == null) {
+			boolean[] ascii = asciiDelimiters;
+			for (int i = from; i < to; i++) {
+				char c = text.charAt(i);
+				if (c < 128 && ascii[c]) {
+					return i;
+				}
+			}
+			return to;
+		}
+		for (int i = from; i < to; i++) {
+			if (isDelimiter(text.charAt(i))) {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	/**
+	 * Return index of first char of supplied text located in [from,to[ which is either not a delimiter or a newline, or to if there is
+	 * none
+	 */
+	private int skipDelimiters(CharSequence text, int from, int to) {
+		for (int i = from; i < to; i++) {
+			char c = text.charAt(i);
+			if (c == '\n' || !isDelimiter(c)) {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	/**
+	 * Tokenize supplied text. Hashes of returned tokens are not computed.
+	 */
+	TokenTable tokenize(CharSequence text) {
+		TokenTable table = new TokenTable(text.length() / 32);
+		tokenize(new CharScanner(text), 0, table, null);
+		return table;
+	}
+
+	/**
+	 * Tokenize supplied text from index from, which must be a token boundary, appending tokens to supplied table. Tokenization stops at
+	 * end of text, or before a token starting at an index accepted by supplied predicate (when not null). Return index where
+	 * tokenization stopped.
+	 */
+	int tokenize(CharSequence text, int from, TokenTable table, IntPredicate stop) {
+		return tokenize(new CharScanner(text), from, table, stop);
+	}
+
+	/**
+	 * Tokenize supplied ASCII-compatible encoded text, from its position 0 to its limit. Hashes of returned tokens are not computed.
+	 */
+	TokenTable tokenize(ByteBuffer buffer) {
+		TokenTable table = new TokenTable(buffer.limit() / 32);
+		tokenize(new ByteScanner(buffer), 0, table, null);
+		return table;
+	}
+
+	/**
+	 * Split text into tokens. A token is made of its begin delimiters (only for the first token of a line), its significative part and
+	 * its end delimiters, up to next significative char or up to (and including) next newline.
+	 */
+	private int tokenize(Scanner scanner, int from, TokenTable table, IntPredicate stop) {
+		int length = scanner.length;
+		boolean lineStart = from == 0 || scanner.isNewLine(from - 1);
+		int index = from;
+		while (index < length) {
+			if (stop != null && stop.test(index)) {
+				return index;
+			}
+			int beginDelimStartIndex = index;
+			int beginDelimEndIndex = lineStart ? scanner.skipDelimiters(index) : index;
+			int endDelimStartIndex = beginDelimEndIndex;
+			if (beginDelimEndIndex < length && !scanner.isNewLine(beginDelimEndIndex)) {
+				endDelimStartIndex = scanner.nextDelimiter(beginDelimEndIndex);
+			}
+			int endDelimEndIndex = scanner.skipDelimiters(endDelimStartIndex);
+			lineStart = endDelimEndIndex < length && scanner.isNewLine(endDelimEndIndex);
+			if (lineStart) {
+				endDelimEndIndex++;
+			}
+			table.add(beginDelimStartIndex, beginDelimEndIndex, endDelimStartIndex, endDelimEndIndex);
+			index = endDelimEndIndex;
+		}
+		return index;
+	}
+
+	private abstract class Scanner {
+		final int length;
+
+		Scanner(int length) {
+			this.length = length;
+		}
+
+		abstract boolean isNewLine(int index);
+
+		abstract int nextDelimiter(int from);
+
+		abstract int skipDelimiters(int from);
+	}
+
+	private class CharScanner extends Scanner {
+		private final CharSequence text;
+		// For line-only tokenizers on Strings: index of next carriage return, known to be located after this index
+		private int nextCR = -1;
+
+		CharScanner(CharSequence text) {
+			super(text.length());
+			this.text = text;
+		}
+
+		@Override
+		boolean isNewLine(int index) {
+			return text.charAt(index) == '\n';
+		}
+
+		@Override
+		int nextDelimiter(int from) {
+			if (linesOnly && text instanceof String) {
+				String s = (String) text;
+				if (nextCR < from) {
+					nextCR = s.indexOf('\r', from);
+					if (nextCR < 0) {
+						nextCR = length;
+					}
+				}
+				int nl = s.indexOf('\n', from);
+				return nl < 0 || nl > nextCR ? nextCR : nl;
+			}
+			return scanDelimiter(text, from, length);
+		}
+
+		@Override
+		int skipDelimiters(int from) {
+			return CompiledTokenizer.this.skipDelimiters(text, from, length);
+		}
+	}
+
+	private class ByteScanner extends Scanner {
+		private static final long ONES = 0x0101010101010101L;
+		private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+		private final ByteBuffer buffer;
+
+		ByteScanner(ByteBuffer buffer) {
+			super(buffer.limit());
+			this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+		}
+
+		@Override
+		boolean isNewLine(int index) {
+			return buffer.get(index) == '\n';
+		}
+
+		@Override
+		int nextDelimiter(int from) {
+			int i = from;
+			if (linesOnly) {
+				// Look for \r or \n eight bytes at a time: zeroBytes() has high bit set for each byte equal to the searched one
+				for (; i + 8 <= length; i += 8) {
+					long word = buffer.getLong(i);
+					long found = zeroBytes(word ^ '\n' * ONES) | zeroBytes(word ^ '\r' * ONES);
+					if (found != 0) {
+						return i + (Long.numberOfLeadingZeros(found) >>> 3);
+					}
+				}
+			}
+			boolean[] ascii = asciiDelimiters;
+			for (; i < length; i++) {
+				byte b = buffer.get(i);
+				if (b >= 0 && ascii[b]) {
+					return i;
+				}
+			}
+			return length;
+		}
+
+		@Override
+		int skipDelimiters(int from) {
+			boolean[] ascii = asciiDelimiters;
+			for (int i = from; i < length; i++) {
+				byte b = buffer.get(i);
+				if (b == '\n' || b < 0 || !ascii[b]) {
+					return i;
+				}
+			}
+			return length;
+		}
+
+		private long zeroBytes(long x) {
+			return ~((x & LOW_BITS) + LOW_BITS | x | LOW_BITS);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CompiledTokenizer[" + delimiters.replace("\r", "\\r").replace("\n", "\\n").replace("\t", "\\t").replace("\f", "\\f") + "]";
+	}
+
+}
@@ -41,8 +41,22 @@ package org.openflexo.diff;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Java wrapper above diff
@@ -58,6 +72,14 @@ public class ComputeDiff {
 			file1 = b;
 		}
 
+		/**
+		 * Build a Base reading tokens directly in supplied sources, only when required
+		 */
+		protected Base(DiffSource source0, DiffSource source1) {
+			this.source0 = source0;
+			this.source1 = source1;
+		}
+
 		/**
 		 * Set to ignore certain kinds of lines when printing an edit script. For example, ignoring blank lines or comments.
 		 */
@@ -68,6 +90,19 @@ public class ComputeDiff {
 		 */
 		private String[] file0, file1;
 
+		/**
+		 * Set to the sources being compared, when lines are not supplied.
+		 */
+		private DiffSource source0, source1;
+
+		private String line0(int index) {
+			return file0 != null ? file0[index] : source0.tokenValueAt(index);
+		}
+
+		private String line1(int index) {
+			return file1 != null ? file1[index] : source1.tokenValueAt(index);
+		}
+
 		/**
 		 * Divide SCRIPT into pieces by calling HUNKFUN and print each piece with PRINTFUN. Both functions take one arg, an edit script.
 		 * 
@@ -75,7 +110,15 @@ public class ComputeDiff {
 		 */
 		protected DiffReport buildDiffReport(Diff.change script, DiffSource source1, DiffSource source2) {
 			DiffReport returned = new DiffReport(source1, source2);
+			emitChanges(script, source1, source2, returned::addChange);
+			// outfile.flush();
+			return returned;
+		}
 
+		/**
+		 * Same as above, but send changes to supplied consumer, in order, instead of collecting them in a report
+		 */
+		protected void emitChanges(Diff.change script, DiffSource source1, DiffSource source2, DiffConsumer consumer) {
 			Diff.change next = script;
 
 			while (next != null) {
@@ -90,13 +133,14 @@ public class ComputeDiff {
 				next = end.link;
 				end.link = null;
 
-				addChange(returned, t);
+				DiffChange change = makeChange(t, source1, source2);
+				if (change != null) {
+					consumer.consume(change);
+				}
 
 				/* Reconnect the script so it will all be freed properly.  */
 				end.link = next;
 			}
-			// outfile.flush();
-			return returned;
 		}
 
 		/**
@@ -139,12 +183,12 @@ public class ComputeDiff {
 				show_from += next.deleted;
 				show_to += next.inserted;
 				for (i = next.line0; i <= l0 && !nontrivial; i++) {
-					if (!ignore.execute(file0[i])) {
+					if (!ignore.execute(line0(i))) {
 						nontrivial = true;
 					}
 				}
 				for (i = next.line1; i <= l1 && !nontrivial; i++) {
-					if (!ignore.execute(file1[i])) {
+					if (!ignore.execute(line1(i))) {
 						nontrivial = true;
 					}
 				}
@@ -167,17 +211,18 @@ public class ComputeDiff {
 		}
 
 		/**
-		 * Print a hunk of a normal diff. This is a contiguous portion of a complete edit script, describing changes in consecutive lines.
+		 * Build change describing a hunk of a normal diff, or null if hunk should be ignored. This is a contiguous portion of a complete
+		 * edit script, describing changes in consecutive lines. Text of the change is only extracted from sources when requested.
 		 */
 
-		private void addChange(DiffReport report, Diff.change hunk) {
+		private DiffChange makeChange(Diff.change hunk, DiffSource source1, DiffSource source2) {
 
 			DiffChange change;
 
 			/* Determine range of line numbers involved in each file.  */
 			analyze_hunk(hunk);
 			if (deletes == 0 && inserts == 0) {
-				return;
+				return null;
 			}
 
 			if (inserts == 0) {
@@ -194,26 +239,10 @@ public class ComputeDiff {
 			change.first1 = first1;
 			change.last0 = last0;
 			change.last1 = last1;
+			change.source0 = source1;
+			change.source1 = source2;
 
-			/* Print the lines that the first file has.  */
-			if (deletes != 0) {
-				StringBuffer removedString = new StringBuffer();
-				for (int i = first0; i <= last0; i++) {
-					removedString.append(file0[i] + "\n");
-				}
-				change.removedString = removedString.toString();
-			}
-
-			/* Print the lines that the second file has.  */
-			if (inserts != 0) {
-				StringBuffer addedString = new StringBuffer();
-				for (int i = first1; i <= last1; i++) {
-					addedString.append(file1[i] + "\n");
-				}
-				change.addedString = addedString.toString();
-			}
-
-			report.addChange(change);
+			return change;
 		}
 
 	}
@@ -262,6 +291,14 @@ public class ComputeDiff {
 		return computeDiff(source, anOtherSource);
 	}
 
+	/**
+	 * Compute diff between two sources, using supplied {@link TokenInterner} to number tokens. Sharing an interner across calls avoids to
+	 * re-hash identical tokens again and again.
+	 */
+	public static DiffReport diff(DiffSource source, DiffSource anOtherSource, TokenInterner interner) {
+		return computeDiff(source, anOtherSource, interner);
+	}
+
 	public static DiffReport diff(File aFile, String aString, DelimitingMethod method) throws IOException {
 		DiffSource source0 = new DiffSource(aFile, method);
 		DiffSource source1 = new DiffSource(aString, method);
@@ -298,32 +335,544 @@ public class ComputeDiff {
 		return computeDiff(source0, source1);
 	}
 
+	/**
+	 * Compute diff between two sources, using supplied algorithm
+	 */
+	public static DiffReport diff(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm) {
+		return computeDiff(source, anOtherSource, new TokenInterner(source.tokensCount() + anOtherSource.tokensCount()), algorithm);
+	}
+
+	public static DiffReport diff(String aString, String anOtherString, DelimitingMethod method, DiffAlgorithm algorithm) {
+		DiffSource source0 = new DiffSource(aString, method);
+		DiffSource source1 = new DiffSource(anOtherString, method);
+		return diff(source0, source1, algorithm);
+	}
+
+	public static DiffReport diff(File aFile, File anOtherFile, DelimitingMethod method, DiffAlgorithm algorithm) throws IOException {
+		DiffSource source0 = new DiffSource(aFile, method);
+		DiffSource source1 = new DiffSource(anOtherFile, method);
+		return diff(source0, source1, algorithm);
+	}
+
 	private static DiffReport computeDiff(DiffSource source0, DiffSource source1) {
-		Diff d = new Diff(source0.getSignificativeTokens(), source1.getSignificativeTokens());
-		Diff.change script = d.diff_2(false);
+		return computeDiff(source0, source1, new TokenInterner(source0.tokensCount() + source1.tokensCount()));
+	}
+
+	private static DiffReport computeDiff(DiffSource source0, DiffSource source1, TokenInterner interner) {
+		return computeDiff(source0, source1, interner, DiffAlgorithm.MYERS);
+	}
+
+	/**
+	 * Compute diff between two sources, bounding the cost of the computation: once maxCost edit steps have been explored for a given
+	 * region, or once timeout milliseconds have elapsed (when strictly positive), the search switches to an approximate heuristic.
+	 * {@link DiffReport#isMinimal()} tells if the result is guaranteed to be minimal.
+	 */
+	public static DiffReport diff(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm, int maxCost, long timeout) {
+		return computeDiff(source, anOtherSource, new TokenInterner(source.tokensCount() + anOtherSource.tokensCount()), algorithm,
+				maxCost, timeout);
+	}
+
+	private static DiffReport computeDiff(DiffSource source0, DiffSource source1, TokenInterner interner, DiffAlgorithm algorithm) {
+		return computeDiff(source0, source1, interner, algorithm, Integer.MAX_VALUE, 0);
+	}
+
+	private static DiffReport computeDiff(DiffSource source0, DiffSource source1, TokenInterner interner, DiffAlgorithm algorithm,
+			int maxCost, long timeout) {
+		int[] ids0 = source0.getTokenIds(interner);
+		int[] ids1 = source1.getTokenIds(interner);
+		return computeDiff(source0, ids0, source1, ids1, interner.getMaxId(), algorithm, maxCost, timeout);
+	}
+
+	/**
+	 * Inputs whose sides both count at most this number of tokens are compared with a {@link BitParallelDiff}
+	 */
+	private static final int SMALL_INPUT_SIZE = BitParallelDiff.MAX_PATTERN_LENGTH;
+
+	static boolean isSmall(int length0, int length1) {
+		return length0 <= SMALL_INPUT_SIZE && length1 <= SMALL_INPUT_SIZE;
+	}
+
+	/**
+	 * Compute diff between two sources whose tokens were already interned
+	 */
+	static DiffReport computeDiff(DiffSource source0, int[] ids0, DiffSource source1, int[] ids1, int equivMax, DiffAlgorithm algorithm,
+			int maxCost, long timeout) {
+		Diff d = new Diff(ids0, ids1, equivMax);
+		d.too_expensive = maxCost;
+		d.timeout = timeout;
+		d.bit_parallel = isSmall(ids0.length, ids1.length);
+		return buildReport(d.diff_2(false, algorithm), source0, source1, d.isMinimal());
+	}
+
+	/**
+	 * Compute diff between two sources with supplied algorithm, ignoring the differences described by supplied modes. Tokens are compared
+	 * on normalized hashes of their original characters: no normalized copy of the sources is built, and reported changes refer to the
+	 * original tokens. With {@link IgnoreMode#BLANK_LINES}, blank tokens are not compared at all, and are only reported when located inside
+	 * a change.
+	 */
+	public static DiffReport diff(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm, Set<IgnoreMode> ignoreModes) {
+		if (ignoreModes.isEmpty()) {
+			return diff(source, anOtherSource, algorithm);
+		}
+		int length0 = source.tokensCount();
+		int length1 = anOtherSource.tokensCount();
+		TokenInterner interner = new TokenInterner(length0 + length1);
+		HashingStrategy<CharSequence> strategy = IgnoreMode.strategy(ignoreModes);
+		boolean ignoreBlanks = ignoreModes.contains(IgnoreMode.BLANK_LINES);
+		int[] ids0 = new int[length0];
+		int[] indexes0 = new int[length0];
+		int count0 = source.getNormalizedTokenIds(interner, strategy, ignoreBlanks, ids0, indexes0);
+		int[] ids1 = new int[length1];
+		int[] indexes1 = new int[length1];
+		int count1 = anOtherSource.getNormalizedTokenIds(interner, strategy, ignoreBlanks, ids1, indexes1);
+		Diff d = new Diff(ids0, count0, ids1, count1, interner.getMaxId(), new DiffWorkspace());
+		d.bit_parallel = isSmall(count0, count1);
+		Diff.change script = d.diff_2(false, algorithm);
+		if (ignoreBlanks) {
+			script = toSourceIndexes(script, indexes0, count0, length0, indexes1, count1, length1);
+		}
+		return buildReport(script, source, anOtherSource, d.isMinimal());
+	}
+
+	/**
+	 * Translate a script computed on a subset of the tokens of two sources (whose indexes are supplied) into a script on all tokens
+	 */
+	private static Diff.change toSourceIndexes(Diff.change script, int[] indexes0, int count0, int length0, int[] indexes1, int count1,
+			int length1) {
+		Diff.change returned = null;
+		Diff.change last = null;
+		for (Diff.change c = script; c != null; c = c.link) {
+			int line0 = c.line0 < count0 ? indexes0[c.line0] : length0;
+			int line1 = c.line1 < count1 ? indexes1[c.line1] : length1;
+			int deleted = c.deleted > 0 ? indexes0[c.line0 + c.deleted - 1] + 1 - line0 : 0;
+			int inserted = c.inserted > 0 ? indexes1[c.line1 + c.inserted - 1] + 1 - line1 : 0;
+			Diff.change change = new Diff.change(line0, line1, deleted, inserted, null);
+			if (last == null) {
+				returned = change;
+			}
+			else {
+				last.link = change;
+			}
+			last = change;
+		}
+		return returned;
+	}
+
+	/**
+	 * Compute diff between two sources with supplied algorithm, reporting progress to supplied monitor. Computation stops with a
+	 * {@link java.util.concurrent.CancellationException} as soon as the monitor is cancelled (see {@link DiffTask}).
+	 */
+	public static DiffReport diff(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm, DiffMonitor monitor) {
+		monitor.beginPhase(DiffMonitor.Phase.TOKENIZING, source.tokensCount() + anOtherSource.tokensCount());
+		TokenInterner interner = new TokenInterner(source.tokensCount() + anOtherSource.tokensCount());
+		int[] ids0 = source.getTokenIds(interner);
+		monitor.worked(ids0.length);
+		monitor.checkCancelled();
+		int[] ids1 = anOtherSource.getTokenIds(interner);
+		monitor.worked(ids1.length);
+		Diff d = new Diff(ids0, ids1, interner.getMaxId());
+		d.bit_parallel = isSmall(ids0.length, ids1.length);
+		d.monitor = monitor;
+		Diff.change script = d.diff_2(false, algorithm);
+		monitor.beginPhase(DiffMonitor.Phase.REPORTING, ids0.length + ids1.length);
+		return buildReport(script, source, anOtherSource, d.isMinimal());
+	}
+
+	/**
+	 * Compute diff between two sources, splitting the comparison in independent segments which are compared concurrently in the common
+	 * {@link ForkJoinPool}. Segments are delimited by tokens occurring exactly once in each source.
+	 */
+	public static DiffReport diffInParallel(DiffSource source, DiffSource anOtherSource) {
+		return diff(source, anOtherSource, DiffAlgorithm.MYERS, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Compute diff between two sources with supplied algorithm, splitting the comparison in independent segments which are compared
+	 * concurrently in supplied pool. Segments are delimited by tokens occurring exactly once in each source.
+	 */
+	public static DiffReport diff(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm, ForkJoinPool pool) {
+		TokenInterner interner = new TokenInterner(source.tokensCount() + anOtherSource.tokensCount());
+		Diff d = new Diff(source.getTokenIds(interner), anOtherSource.getTokenIds(interner), interner.getMaxId());
+		return buildReport(d.diff_2_parallel(pool, algorithm), source, anOtherSource, d.isMinimal());
+	}
+
+	/**
+	 * Number of unchanged tokens around an edit which are compared again by {@link #updateDiff(DiffReport, DiffSource.TokenEdit)}
+	 */
+	private static final int UPDATE_CONTEXT = 8;
+
+	/**
+	 * Update supplied report after an edit of one of its sources (see {@link DiffSource#applyEdit(int, int, String)}).<br>
+	 * Only the region surrounding the edited tokens is compared again: this region is extended to the changes it touches, and bounded
+	 * by unchanged tokens. Changes located before this region are kept, changes located after are kept and shifted. Result might thus
+	 * differ (while being valid) from the one of a full comparison.<br>
+	 * Report is updated in place, and returned.
+	 */
+	public static DiffReport updateDiff(DiffReport report, DiffSource.TokenEdit edit) {
+		if (report.isImmutable()) {
+			throw new UnsupportedOperationException("Immutable reports cannot be updated");
+		}
+		int side;
+		if (edit.getSource() == report.source0) {
+			side = 0;
+		}
+		else if (edit.getSource() == report.source1) {
+			side = 1;
+		}
+		else {
+			throw new IllegalArgumentException("Edited source is not compared in this report");
+		}
+		int delta = edit.getInsertedTokens() - edit.getRemovedTokens();
+		int oldSize = edit.getSource().tokensCount() - delta;
+
+		// Region to compare again, in old token indexes of edited side, extended to touched changes
+		int lo = Math.max(0, edit.getFirstToken() - UPDATE_CONTEXT);
+		int hi = Math.min(oldSize, edit.getFirstToken() + edit.getRemovedTokens() + UPDATE_CONTEXT);
+		Vector<DiffChange> changes = report.changes;
+		int before = 0;
+		int after = 0;
+		for (DiffChange change : changes) {
+			if (change.end(side) < lo) {
+				before++;
+				after++;
+				continue;
+			}
+			if (change.start(side) > hi) {
+				break;
+			}
+			lo = Math.min(lo, change.start(side));
+			hi = Math.max(hi, change.end(side));
+			after++;
+		}
+
+		// Same region in other side, where tokens are aligned with unchanged tokens of edited side
+		int other = 1 - side;
+		int otherLo = before > 0 ? changes.get(before - 1).end(other) + lo - changes.get(before - 1).end(side) : lo;
+		int otherHi = after > 0 ? changes.get(after - 1).end(other) + hi - changes.get(after - 1).end(side) : hi;
+
+		int start0 = side == 0 ? lo : otherLo;
+		int end0 = side == 0 ? hi + delta : otherHi;
+		int start1 = side == 1 ? lo : otherLo;
+		int end1 = side == 1 ? hi + delta : otherHi;
+		TokenInterner interner = new TokenInterner(end0 - start0 + end1 - start1);
+		Diff d = new Diff(report.source0.getTokenIds(interner, start0, end0), report.source1.getTokenIds(interner, start1, end1),
+				interner.getMaxId());
+		Diff.change script = null;
+		Diff.change last = null;
+		for (Diff.change c = d.diff_2(false); c != null; c = c.link) {
+			Diff.change translated = new Diff.change(c.line0 + start0, c.line1 + start1, c.deleted, c.inserted, null);
+			if (last == null) {
+				script = translated;
+			}
+			else {
+				last.link = translated;
+			}
+			last = translated;
+		}
+
+		Vector<DiffChange> updated = new Vector<>();
+		updated.addAll(changes.subList(0, before));
+		if (script != null) {
+			Base p = new Base(report.source0, report.source1);
+			updated.addAll(p.buildDiffReport(script, report.source0, report.source1).getChanges());
+		}
+		for (DiffChange change : changes.subList(after, changes.size())) {
+			change.shift(side, delta);
+			updated.add(change);
+		}
+		report.changes = updated;
+		report.minimal = report.minimal && d.isMinimal();
+		return report;
+	}
+
+	/**
+	 * Compute diff between two sources, sending changes to supplied consumer, in order. No report is built, and text of changes is only
+	 * extracted from sources when requested.
+	 */
+	public static void diff(DiffSource source, DiffSource anOtherSource, DiffConsumer consumer) {
+		diff(source, anOtherSource, DiffAlgorithm.MYERS, consumer);
+	}
+
+	/**
+	 * Compute diff between two sources with supplied algorithm, sending changes to supplied consumer, in order
+	 */
+	public static void diff(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm, DiffConsumer consumer) {
+		Diff.change script = computeScript(source, anOtherSource, algorithm);
+		new Base(source, anOtherSource).emitChanges(script, source, anOtherSource, consumer);
+	}
+
+	/**
+	 * Compute diff between two sources, and return a lazy stream of changes: each change is built when the stream reaches it
+	 */
+	public static Stream<DiffChange> changes(DiffSource source, DiffSource anOtherSource) {
+		return changes(source, anOtherSource, DiffAlgorithm.MYERS);
+	}
+
+	/**
+	 * Compute diff between two sources with supplied algorithm, and return a lazy stream of changes
+	 */
+	public static Stream<DiffChange> changes(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm) {
+		Iterator<DiffChange> iterator = changeIterator(source, anOtherSource, algorithm);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Compute diff between two sources with supplied algorithm, and return a lazy iterator on changes
+	 */
+	public static Iterator<DiffChange> changeIterator(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm) {
+		return new ChangeIterator(computeScript(source, anOtherSource, algorithm), source, anOtherSource);
+	}
+
+	/**
+	 * Compute compact edit script between two sources
+	 */
+	public static EditScript editScript(DiffSource source, DiffSource anOtherSource) {
+		return editScript(source, anOtherSource, DiffAlgorithm.MYERS);
+	}
+
+	/**
+	 * Compute compact edit script between two sources with supplied algorithm. Script can later be converted to a report with
+	 * {@link EditScript#toDiffReport(DiffSource, DiffSource)}.
+	 */
+	public static EditScript editScript(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm) {
+		TokenInterner interner = new TokenInterner(source.tokensCount() + anOtherSource.tokensCount());
+		int[] ids0 = source.getTokenIds(interner);
+		int[] ids1 = anOtherSource.getTokenIds(interner);
+		Diff d = new Diff(ids0, ids1, interner.getMaxId());
+		d.bit_parallel = isSmall(ids0.length, ids1.length);
+		return d.diff_2_compact(algorithm);
+	}
+
+	/**
+	 * Compute statistics of the differences between two sources, without building any report
+	 */
+	public static DiffStats stats(DiffSource source, DiffSource anOtherSource) {
+		return stats(source, anOtherSource, 1.0);
+	}
+
+	/**
+	 * Compute statistics of the differences between two sources, without building any report. Comparison is abandoned as soon as
+	 * dissimilarity (the ratio of changed tokens, see {@link DiffStats#getSimilarity()}) is known to exceed maxDissimilarity: returned
+	 * statistics are then marked as exceeded.
+	 */
+	public static DiffStats stats(DiffSource source, DiffSource anOtherSource, double maxDissimilarity) {
+		TokenInterner interner = new TokenInterner(source.tokensCount() + anOtherSource.tokensCount());
+		int[] ids0 = source.getTokenIds(interner);
+		int[] ids1 = anOtherSource.getTokenIds(interner);
+		Diff d = new Diff(ids0, ids1, interner.getMaxId());
+		d.bit_parallel = isSmall(ids0.length, ids1.length);
+		return d.diff_2_stats(maxCost(ids0.length, ids1.length, maxDissimilarity));
+	}
+
+	/**
+	 * Return maximal number of changed tokens for a dissimilarity not exceeding supplied one
+	 */
+	static int maxCost(int length0, int length1, double maxDissimilarity) {
+		if (maxDissimilarity >= 1.0) {
+			return length0 + length1;
+		}
+		return (int) Math.floor(Math.max(0.0, maxDissimilarity) * (length0 + length1));
+	}
+
+	/**
+	 * Return similarity ratio of two sources, between 0 (nothing in common) and 1 (identical sources)
+	 */
+	public static double similarity(DiffSource source, DiffSource anOtherSource) {
+		return stats(source, anOtherSource).getSimilarity();
+	}
+
+	/**
+	 * Return similarity ratio of two strings, compared line by line
+	 */
+	public static double similarity(String aString, String anOtherString) {
+		return similarity(new DiffSource(aString), new DiffSource(anOtherString));
+	}
+
+	/**
+	 * Default minimal number of tokens of a moved block (see {@link #detectMoves(DiffReport, int)})
+	 */
+	public static final int DEFAULT_MIN_MOVE_LENGTH = 3;
+
+	/**
+	 * Detect blocks of at least {@link #DEFAULT_MIN_MOVE_LENGTH} tokens moved between the two sources of supplied report
+	 */
+	public static DiffReport detectMoves(DiffReport report) {
+		return detectMoves(report, DEFAULT_MIN_MOVE_LENGTH);
+	}
+
+	/**
+	 * Detect blocks of at least minLength tokens removed by a change of supplied report and added unchanged by another change (or by
+	 * the same one, for swapped blocks). Return a new report where each such block is described by a {@link MoveChange}, and where other
+	 * changes only keep their tokens which were not moved. Supplied report is returned when no move was found.
+	 */
+	public static DiffReport detectMoves(DiffReport report, int minLength) {
+		DiffSource source0 = report.source0;
+		DiffSource source1 = report.source1;
+		TokenInterner interner = new TokenInterner(source0.tokensCount() + source1.tokensCount());
+		int[] ids0 = source0.getTokenIds(interner);
+		int[] ids1 = source1.getTokenIds(interner);
+		boolean[] deleted = new boolean[ids0.length];
+		boolean[] inserted = new boolean[ids1.length];
+		for (DiffChange change : report.getChanges()) {
+			for (int i = change.first0; i <= change.last0; i++) {
+				deleted[i] = true;
+			}
+			for (int i = change.first1; i <= change.last1; i++) {
+				inserted[i] = true;
+			}
+		}
+		int[] moves = new MoveDetector(ids0, deleted, ids1, inserted, minLength).detect();
+		if (moves.length == 0) {
+			return report;
+		}
+
+		boolean[] moved0 = new boolean[ids0.length];
+		boolean[] moved1 = new boolean[ids1.length];
+		Vector<DiffChange> changes = new Vector<>();
+		for (int m = 0; m < moves.length; m += 3) {
+			int start0 = moves[m], start1 = moves[m + 1], length = moves[m + 2];
+			for (int i = 0; i < length; i++) {
+				moved0[start0 + i] = true;
+				moved1[start1 + i] = true;
+			}
+			changes.add(initChange(new MoveChange(), start0, start0 + length - 1, start1, start1 + length - 1, source0, source1));
+		}
+
+		// Keep remaining parts of other changes
+		for (DiffChange change : report.getChanges()) {
+			int[] removed = remainingRanges(moved0, change.first0, change.last0);
+			int[] added = remainingRanges(moved1, change.first1, change.last1);
+			if (removed.length == 2 && added.length == 2) {
+				changes.add(initChange(new ModificationChange(), removed[0], removed[1], added[0], added[1], source0, source1));
+				continue;
+			}
+			for (int r = 0; r < removed.length; r += 2) {
+				changes.add(initChange(new RemovalChange(), removed[r], removed[r + 1], change.first1, change.first1 - 1, source0, source1));
+			}
+			for (int r = 0; r < added.length; r += 2) {
+				changes.add(initChange(new AdditionChange(), change.first0, change.first0 - 1, added[r], added[r + 1], source0, source1));
+			}
+		}
+		changes.sort(Comparator.comparingInt(DiffChange::getFirst0).thenComparingInt(DiffChange::getFirst1));
+
+		DiffReport returned = new DiffReport(source0, source1);
+		returned.changes = changes;
+		returned.minimal = report.minimal;
+		return returned;
+	}
+
+	/**
+	 * Return ranges of [first,last] which were not moved, as pairs of inclusive bounds
+	 */
+	private static int[] remainingRanges(boolean[] moved, int first, int last) {
+		int[] returned = new int[4];
+		int count = 0;
+		int i = first;
+		while (i <= last) {
+			if (moved[i]) {
+				i++;
+				continue;
+			}
+			int start = i;
+			while (i <= last && !moved[i]) {
+				i++;
+			}
+			if (count + 2 > returned.length) {
+				returned = Arrays.copyOf(returned, returned.length * 2);
+			}
+			returned[count++] = start;
+			returned[count++] = i - 1;
+		}
+		return Arrays.copyOf(returned, count);
+	}
+
+	private static DiffChange initChange(DiffChange change, int first0, int last0, int first1, int last1, DiffSource source0,
+			DiffSource source1) {
+		change.first0 = first0;
+		change.last0 = last0;
+		change.first1 = first1;
+		change.last1 = last1;
+		change.source0 = source0;
+		change.source1 = source1;
+		return change;
+	}
+
+	private static Diff.change computeScript(DiffSource source0, DiffSource source1, DiffAlgorithm algorithm) {
+		TokenInterner interner = new TokenInterner(source0.tokensCount() + source1.tokensCount());
+		int[] ids0 = source0.getTokenIds(interner);
+		int[] ids1 = source1.getTokenIds(interner);
+		Diff d = new Diff(ids0, ids1, interner.getMaxId());
+		d.bit_parallel = isSmall(ids0.length, ids1.length);
+		return d.diff_2(false, algorithm);
+	}
+
+	/**
+	 * Iterate on changes of an edit script, building them on demand
+	 */
+	private static class ChangeIterator implements Iterator<DiffChange> {
+		private final Base base;
+		private final DiffSource source0;
+		private final DiffSource source1;
+		private Diff.change next;
+		private DiffChange pending;
+
+		private ChangeIterator(Diff.change script, DiffSource source0, DiffSource source1) {
+			base = new Base(source0, source1);
+			this.source0 = source0;
+			this.source1 = source1;
+			next = script;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (pending == null && next != null) {
+				Diff.change hunk = next;
+				next = hunk.link;
+				hunk.link = null;
+				pending = base.makeChange(hunk, source0, source1);
+				hunk.link = next;
+			}
+			return pending != null;
+		}
+
+		@Override
+		public DiffChange next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			DiffChange returned = pending;
+			pending = null;
+			return returned;
+		}
+	}
+
+	static DiffReport buildReport(Diff.change script, DiffSource source0, DiffSource source1, boolean minimal) {
+		DiffReport returned;
 		if (script == null) {
 			// No differences
-			return new DiffReport(source0, source1);
+			returned = new DiffReport(source0, source1);
 		}
 		else {
-			Base p = null;
-			p = new Base(source0.getSignificativeTokens(), source1.getSignificativeTokens());
-			return p.buildDiffReport(script, source0, source1);
+			Base p = new Base(source0, source1);
+			returned = p.buildDiffReport(script, source0, source1);
 		}
+		returned.minimal = minimal;
+		return returned;
 	}
 
 	public static class DiffReport {
 		private Vector<DiffChange> changes;
 		private DiffSource source0;
 		private DiffSource source1;
+		private boolean minimal = true;
 
 		public void print(boolean isLeftOriented) {
 			Enumeration<DiffChange> en = getChanges().elements();
 			while (en.hasMoreElements()) {
 				DiffChange change = en.nextElement();
 				System.out.println(change.toNiceString(isLeftOriented));
-				System.out.println("\tADDED:" + change.addedString);
-				System.out.println("\tREMOVED:" + change.removedString);
+				System.out.println("\tADDED:" + change.getAddedString());
+				System.out.println("\tREMOVED:" + change.getRemovedString());
 			}
 		}
 
@@ -341,6 +890,27 @@ public class ComputeDiff {
 			return changes;
 		}
 
+		public Stream<DiffChange> stream() {
+			return changes.stream();
+		}
+
+		/**
+		 * Make this report immutable: neither its list of changes nor its changes can be modified any more
+		 */
+		void freeze() {
+			for (DiffChange change : changes) {
+				change.frozen = true;
+			}
+			changes = new ReadOnlyVector<>(changes);
+		}
+
+		/**
+		 * Return true when this report can not be modified (see {@link DiffCache})
+		 */
+		public boolean isImmutable() {
+			return changes instanceof ReadOnlyVector;
+		}
+
 		@Override
 		public String toString() {
 			if (changes.size() == 0) {
@@ -355,6 +925,30 @@ public class ComputeDiff {
 			}
 		}
 
+		/**
+		 * Write the changes of this report to supplied writer, as returned by {@link #toString()}, without building the whole string
+		 */
+		public void write(Writer out) throws IOException {
+			if (changes.size() == 0) {
+				out.write("DiffReport: no changes");
+			}
+			else {
+				for (DiffChange c : getChanges()) {
+					out.write(c.toString());
+					out.write('\n');
+				}
+			}
+			out.flush();
+		}
+
+		public DiffSource getSource0() {
+			return source0;
+		}
+
+		public DiffSource getSource1() {
+			return source1;
+		}
+
 		public String[] getInput0() {
 			return source0.getSignificativeTokens();
 		}
@@ -363,6 +957,15 @@ public class ComputeDiff {
 			return source1.getSignificativeTokens();
 		}
 
+		/**
+		 * Return true when this report is guaranteed to be a minimal set of changes. Only the {@link DiffAlgorithm#MYERS} search can
+		 * guarantee it: false is returned for other algorithms, and when computation was bounded in cost or time and an approximation was
+		 * returned.
+		 */
+		public boolean isMinimal() {
+			return minimal;
+		}
+
 		public DiffChange changeBefore(DiffChange change) {
 			int index = changes.indexOf(change);
 			if (index >= 1) {
@@ -401,12 +1004,25 @@ public class ComputeDiff {
 			return returned;
 		}
 
+		public int getMoveChangeCount() {
+			int returned = 0;
+			for (DiffChange change : getChanges()) {
+				if (change instanceof MoveChange) {
+					returned++;
+				}
+			}
+			return returned;
+		}
+
 	}
 
 	public abstract static class DiffChange {
 		protected int first0, last0, first1, last1;
 		protected String addedString;
 		protected String removedString;
+		private DiffSource source0, source1;
+		private boolean frozen = false;
+		private Refinement wordRefinement, characterRefinement;
 
 		public int getFirst0() {
 			return first0;
@@ -426,19 +1042,105 @@ public class ComputeDiff {
 
 		public abstract String toNiceString(boolean isLeftOriented);
 
+		/**
+		 * Return lines added by this change, each one followed by a newline, or null if no line was added. Text is extracted from second
+		 * source on first call.
+		 */
+		public String getAddedString() {
+			if (addedString == null && source1 != null && last1 >= first1) {
+				addedString = extractLines(source1, first1, last1);
+			}
+			return addedString;
+		}
+
+		/**
+		 * Return lines removed by this change, each one followed by a newline, or null if no line was removed. Text is extracted from
+		 * first source on first call.
+		 */
+		public String getRemovedString() {
+			if (removedString == null && source0 != null && last0 >= first0) {
+				removedString = extractLines(source0, first0, last0);
+			}
+			return removedString;
+		}
+
+		/**
+		 * Return differences between removed and added text of this change, at word level. Refinement is computed on first call.
+		 */
+		public Refinement getWordRefinement() {
+			if (wordRefinement == null) {
+				wordRefinement = Refiner.get().refine(getRemovedString(), getAddedString(), true);
+			}
+			return wordRefinement;
+		}
+
+		/**
+		 * Return differences between removed and added text of this change, at character level. Refinement is computed on first call.
+		 */
+		public Refinement getCharacterRefinement() {
+			if (characterRefinement == null) {
+				characterRefinement = Refiner.get().refine(getRemovedString(), getAddedString(), false);
+			}
+			return characterRefinement;
+		}
+
+		private static String extractLines(DiffSource source, int first, int last) {
+			StringBuffer returned = new StringBuffer();
+			for (int i = first; i <= last; i++) {
+				returned.append(source.tokenSequence(i)).append('\n');
+			}
+			return returned.toString();
+		}
+
+		/**
+		 * Return index of first token of this change in source 0 or 1
+		 */
+		int start(int side) {
+			return side == 0 ? first0 : first1;
+		}
+
+		/**
+		 * Return index following last token of this change in source 0 or 1
+		 */
+		int end(int side) {
+			return side == 0 ? last0 + 1 : last1 + 1;
+		}
+
+		private void checkMutable() {
+			if (frozen) {
+				throw new UnsupportedOperationException("This change belongs to an immutable report");
+			}
+		}
+
+		void shift(int side, int delta) {
+			checkMutable();
+			if (side == 0) {
+				first0 += delta;
+				last0 += delta;
+			}
+			else {
+				first1 += delta;
+				last1 += delta;
+			}
+		}
+
 		public void setFirst0(int first0) {
+			checkMutable();
 			this.first0 = first0;
 		}
 
 		public void setFirst1(int first1) {
+			checkMutable();
 			this.first1 = first1;
 		}
 
 		public void setLast0(int last0) {
+			checkMutable();
 			this.last0 = last0;
 		}
 
 		public void setLast1(int last1) {
+			checkMutable();
 			this.last1 = last1;
 		}
 
@@ -482,6 +1184,8 @@ public class ComputeDiff {
 		}
 
 		public String toNiceStringDebugVersion(boolean isLeftOriented) {
+			String removedString = getRemovedString();
+			String addedString = getAddedString();
 			StringBuffer removedStringBuffer = new StringBuffer();
 			removedStringBuffer.append("[");
 			for (int i = 0; i < removedString.length(); i++) {
@@ -500,4 +1204,141 @@ public class ComputeDiff {
 		}
 	}
 
+	/**
+	 * A block of tokens removed from first source at first0..last0, and inserted unchanged in second source at first1..last1 (see
+	 * {@link ComputeDiff#detectMoves(DiffReport, int)})
+	 */
+	public static class MoveChange extends DiffChange {
+		@Override
+		public String toString() {
+			return ">>>>>> MOVE " + first0 + "," + last0 + " " + first1 + "," + last1;
+		}
+
+		@Override
+		public String toNiceString(boolean isLeftOriented) {
+			return "MOVE " + first0 + "," + last0 + " " + first1 + "," + last1;
+		}
+	}
+
+	/**
+	 * A Vector which can not be modified, used for the changes of immutable reports
+	 */
+	private static class ReadOnlyVector<E> extends Vector<E> {
+
+		private static final long serialVersionUID = 1L;
+
+		private ReadOnlyVector(Collection<E> elements) {
+			super(elements);
+		}
+
+		private static UnsupportedOperationException readOnly() {
+			return new UnsupportedOperationException("Changes of an immutable report cannot be modified");
+		}
+
+		@Override
+		public synchronized void setSize(int newSize) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized void setElementAt(E obj, int index) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized void removeElementAt(int index) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized void insertElementAt(E obj, int index) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized void addElement(E obj) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized boolean removeElement(Object obj) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized void removeAllElements() {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized E set(int index, E element) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized boolean add(E e) {
+			throw readOnly();
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			throw readOnly();
+		}
+
+		@Override
+		public void add(int index, E element) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized E remove(int index) {
+			throw readOnly();
+		}
+
+		@Override
+		public void clear() {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized boolean addAll(Collection<? extends E> c) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized boolean removeAll(Collection<?> c) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized boolean retainAll(Collection<?> c) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized boolean addAll(int index, Collection<? extends E> c) {
+			throw readOnly();
+		}
+
+		@Override
+		protected synchronized void removeRange(int fromIndex, int toIndex) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized boolean removeIf(Predicate<? super E> filter) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized void replaceAll(UnaryOperator<E> operator) {
+			throw readOnly();
+		}
+
+		@Override
+		public synchronized void sort(Comparator<? super E> c) {
+			throw readOnly();
+		}
+	}
+
 }
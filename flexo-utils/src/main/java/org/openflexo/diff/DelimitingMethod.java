@@ -46,6 +46,14 @@ public interface DelimitingMethod {
 
 	public String getName();
 
+	/**
+	 * Return tokenizer compiled from delimiters of this method. Compiled tokenizers are shared between all methods declaring the same
+	 * delimiters.
+	 */
+	public default CompiledTokenizer getTokenizer() {
+		return CompiledTokenizer.forDelimiters(getDelimiters());
+	}
+
 	public static final String DEFAULT_NON_SIGNIFIANT_DELIMS = "\t\n\r\f ";
 
 	public static final DelimitingMethod LINES = new DelimitingMethod() {
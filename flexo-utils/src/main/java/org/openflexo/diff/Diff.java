@@ -39,7 +39,8 @@
 
 package org.openflexo.diff;
 
-import java.util.Hashtable;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A class to compare vectors of objects. The result of comparison is a list of <code>change</code> objects which form an edit script. The
@@ -72,9 +73,34 @@ public class Diff {
 	 * again later to print the results of the comparison as an edit script, if desired.
 	 */
 	public Diff(Object[] a, Object[] b) {
-		Hashtable<Object, Integer> h = new Hashtable<>(a.length + b.length);
-		filevec[0] = new FileData(a, h);
-		filevec[1] = new FileData(b, h);
+		this(a, b, new TokenInterner(a.length + b.length));
+	}
+
+	/**
+	 * Prepare to find differences between two arrays, using supplied {@link TokenInterner} to compute equivalence numbers. The interner
+	 * might be shared across many comparisons.
+	 */
+	public Diff(Object[] a, Object[] b, TokenInterner interner) {
+		this(interner.internAll(a), interner.internAll(b), interner.getMaxId());
+	}
+
+	/**
+	 * Prepare to find differences between two arrays of equivalence numbers, as computed by a {@link TokenInterner}. All values must be
+	 * strictly positive and lower than equivMax. Supplied arrays are not copied and must not be modified during comparison.
+	 */
+	public Diff(int[] equivs0, int[] equivs1, int equivMax) {
+		this(equivs0, equivs0.length, equivs1, equivs1.length, equivMax, new DiffWorkspace());
+	}
+
+	/**
+	 * Prepare to find differences between the first length0 values of equivs0 and the first length1 values of equivs1, using buffers of
+	 * supplied workspace (see {@link DiffEngine})
+	 */
+	Diff(int[] equivs0, int length0, int[] equivs1, int length1, int equivMax, DiffWorkspace workspace) {
+		equiv_max = equivMax;
+		this.workspace = workspace;
+		filevec[0] = new FileData(0, equivs0, length0);
+		filevec[1] = new FileData(1, equivs1, length1);
 	}
 
 	/**
@@ -93,6 +119,40 @@ public class Diff {
 	 */
 	public boolean no_discards = false;
 
+	/**
+	 * Maximum edit cost explored by the search of a midpoint, before giving up and using the best approximate midpoint found so far (this
+	 * is the <code>too_expensive</code> bound of GNU diff). Results are then not guaranteed to be minimal.
+	 */
+	public int too_expensive = Integer.MAX_VALUE;
+
+	/**
+	 * When strictly positive, maximum duration (in milliseconds) of the comparison. Once elapsed, approximate midpoints are used, as if
+	 * <code>too_expensive</code> had been reached.
+	 */
+	public long timeout = 0;
+
+	/**
+	 * When set to true, sub-problems whose shortest side counts at most {@link BitParallelDiff#MAX_PATTERN_LENGTH} lines are solved with
+	 * a {@link BitParallelDiff} instead of being split further around midpoints. Scripts remain minimal.
+	 */
+	public boolean bit_parallel = false;
+
+	/**
+	 * When set, progress of the comparison is reported to this monitor, which is also checked for cancellation at each step of the search:
+	 * once cancelled, comparison stops with a {@link java.util.concurrent.CancellationException}.
+	 */
+	public DiffMonitor monitor = null;
+
+	private final DiffWorkspace workspace;
+
+	/* When computing statistics only, maximum cost of the comparison of undiscarded lines, beyond which search is abandoned.  */
+	private int cost_limit = Integer.MAX_VALUE;
+	private boolean cost_limit_exceeded = false;
+
+	private long deadline;
+	private boolean deadlineReached;
+	private boolean minimal = true;
+
 	private int[] xvec, yvec; /* Vectors being compared. */
 	private int[] fdiag; /* Vector, indexed by diagonal, containing
 							   the X coordinate of the point furthest
@@ -155,6 +215,16 @@ public class Diff {
 			int d; /* Active diagonal. */
 			boolean big_snake = false;
 
+			if (monitor != null) {
+				monitor.checkCancelled();
+			}
+
+			/* Searches did not meet after c-1 steps: cost is at least 2c-1.  */
+			if (2 * c - 1 > cost_limit) {
+				cost_limit_exceeded = true;
+				return fmid;
+			}
+
 			/* Extend the top-down search by an edit step in each diagonal. */
 			if (fmin > dmin) {
 				fd[fdiagoff + --fmin - 1] = -1;
@@ -266,6 +336,7 @@ public class Diff {
 					}
 				}
 				if (best > 0) {
+					minimal = false;
 					cost = 2 * c - 1;
 					return bestpos;
 				}
@@ -294,10 +365,66 @@ public class Diff {
 					}
 				}
 				if (best > 0) {
+					minimal = false;
 					cost = 2 * c - 1;
 					return bestpos;
 				}
 			}
+
+			/* Heuristic: if we've gone well beyond the call of duty
+			   (or beyond the allowed time), give up and report halfway
+			   between our best results so far.  */
+
+			if (c > 1 && (c >= too_expensive || deadline > 0 && isDeadlineReached(c))) {
+				int fxybest = -1, fxbest = 0;
+				int bxybest = Integer.MAX_VALUE, bxbest = 0;
+
+				/* Find forward diagonal that maximizes X + Y.  */
+				for (d = fmax; d >= fmin; d -= 2) {
+					int x = Math.min(fd[fdiagoff + d], xlim);
+					int y = x - d;
+					if (ylim < y) {
+						x = ylim + d;
+						y = ylim;
+					}
+					if (fxybest < x + y) {
+						fxybest = x + y;
+						fxbest = x;
+					}
+				}
+
+				/* Find backward diagonal that minimizes X + Y.  */
+				for (d = bmax; d >= bmin; d -= 2) {
+					int x = Math.max(xoff, bd[bdiagoff + d]);
+					int y = x - d;
+					if (y < yoff) {
+						x = yoff + d;
+						y = yoff;
+					}
+					if (x + y < bxybest) {
+						bxybest = x + y;
+						bxbest = x;
+					}
+				}
+
+				/* Use the better of the two diagonals.  */
+				int x, y;
+				if (xlim + ylim - bxybest < fxybest - (xoff + yoff)) {
+					x = fxbest;
+					y = fxybest - fxbest;
+				}
+				else {
+					x = bxbest;
+					y = bxybest - bxbest;
+				}
+				if (x + y > xoff + yoff && x + y < xlim + ylim) {
+					minimal = false;
+					/* Caller splits the problem at bdiag of returned diagonal.  */
+					bd[bdiagoff + x - y] = x;
+					cost = 2 * c;
+					return x - y;
+				}
+			}
 		}
 	}
 
@@ -313,6 +440,14 @@ public class Diff {
 	 */
 
 	private void compareseq(int xoff, int xlim, int yoff, int ylim) {
+		if (cost_limit_exceeded) {
+			return;
+		}
+		if (monitor != null) {
+			monitor.checkCancelled();
+		}
+		final int size = xlim - xoff + ylim - yoff;
+
 		/* Slide down the bottom initial diagonal. */
 		while (xoff < xlim && yoff < ylim && xvec[xoff] == yvec[yoff]) {
 			++xoff;
@@ -329,16 +464,31 @@ public class Diff {
 			while (yoff < ylim) {
 				filevec[1].changed_flag[1 + filevec[1].realindexes[yoff++]] = true;
 			}
+			if (monitor != null) {
+				monitor.worked(size);
+			}
 		}
 		else if (yoff == ylim) {
 			while (xoff < xlim) {
 				filevec[0].changed_flag[1 + filevec[0].realindexes[xoff++]] = true;
 			}
+			if (monitor != null) {
+				monitor.worked(size);
+			}
+		}
+		else if (bit_parallel && Math.min(xlim - xoff, ylim - yoff) <= BitParallelDiff.MAX_PATTERN_LENGTH) {
+			compareShortSeq(xoff, xlim, yoff, ylim);
+			if (monitor != null) {
+				monitor.worked(size);
+			}
 		}
 		else {
 			/* Find a point of correspondence in the middle of the files.  */
 
 			int d = diag(xoff, xlim, yoff, ylim);
+			if (cost_limit_exceeded) {
+				return;
+			}
 			int c = cost;
 			int b = bdiag[bdiagoff + d];
 
@@ -350,6 +500,10 @@ public class Diff {
 				throw new IllegalArgumentException("Empty subsequence");
 			}
 			else {
+				/* Lines matched at both ends are processed, others are processed by subproblems.  */
+				if (monitor != null) {
+					monitor.worked(size - (xlim - xoff) - (ylim - yoff));
+				}
 				/* Use that point to split this problem into two subproblems.  */
 				compareseq(xoff, b, yoff, b - d);
 				/* This used to use f instead of b,
@@ -361,6 +515,29 @@ public class Diff {
 		}
 	}
 
+	/**
+	 * Compare [XOFF, XLIM) and [YOFF, YLIM), one of which is short, with a bit-parallel longest common subsequence, and mark all lines out
+	 * of this subsequence as changed.
+	 */
+	private void compareShortSeq(int xoff, int xlim, int yoff, int ylim) {
+		int[] matches0 = workspace.matches0();
+		int[] matches1 = workspace.matches1();
+		int count = workspace.kernel().align(xvec, xoff, xlim - xoff, yvec, yoff, ylim - yoff, equiv_max, matches0, matches1);
+		int x = xoff, y = yoff;
+		for (int k = 0; k <= count; k++) {
+			int nextx = k < count ? xoff + matches0[k] : xlim;
+			int nexty = k < count ? yoff + matches1[k] : ylim;
+			while (x < nextx) {
+				filevec[0].changed_flag[1 + filevec[0].realindexes[x++]] = true;
+			}
+			while (y < nexty) {
+				filevec[1].changed_flag[1 + filevec[1].realindexes[y++]] = true;
+			}
+			x++;
+			y++;
+		}
+	}
+
 	/**
 	 * Discard lines from one file that have no matches in the other file.
 	 */
@@ -461,46 +638,291 @@ public class Diff {
 		return script;
 	}
 
+	/**
+	 * Scan the tables of which lines are inserted and deleted, producing a compact edit script in forward order.
+	 */
+
+	private EditScript build_edit_script() {
+		final boolean[] changed0 = filevec[0].changed_flag;
+		final boolean[] changed1 = filevec[1].changed_flag;
+		final int len0 = filevec[0].buffered_lines;
+		final int len1 = filevec[1].buffered_lines;
+		int[] data = new int[32];
+		int size = 0;
+
+		int i0 = 0, i1 = 0;
+
+		while (i0 < len0 || i1 < len1) {
+			if (changed0[1 + i0] || changed1[1 + i1]) {
+				int line0 = i0, line1 = i1;
+
+				while (changed0[1 + i0]) {
+					++i0;
+				}
+				while (changed1[1 + i1]) {
+					++i1;
+				}
+
+				if (4 * size + 4 > data.length) {
+					data = Arrays.copyOf(data, data.length * 2);
+				}
+				data[4 * size] = line0;
+				data[4 * size + 1] = line1;
+				data[4 * size + 2] = i0 - line0;
+				data[4 * size + 3] = i1 - line1;
+				size++;
+			}
+
+			i0++;
+			i1++;
+		}
+
+		return new EditScript(data, size, minimal);
+	}
+
 	/* Report the differences of two files.  DEPTH is the current directory
 	   depth. */
 	public change diff_2(final boolean reverse) {
+		return diff_2(reverse, DiffAlgorithm.MYERS);
+	}
 
-		/* Some lines are obviously insertions or deletions
-		   because they don't match anything.  Detect them now,
-		   and avoid even thinking about them in the main comparison algorithm.  */
+	/**
+	 * Report the differences of two files, using supplied algorithm. {@link DiffAlgorithm#MYERS} is equivalent to
+	 * {@link #diff_2(boolean)}.
+	 */
+	public change diff_2(final boolean reverse, DiffAlgorithm algorithm) {
+		compare(algorithm);
 
-		discard_confusing_lines();
+		/* Get the results of comparison in the form of a chain
+		   of `struct change's -- an edit script.  */
+
+		if (reverse) {
+			return build_reverse_script();
+		}
+		else {
+			return build_script();
+		}
+	}
+
+	/**
+	 * Report the differences of two files, using supplied algorithm, as a compact {@link EditScript} in forward order
+	 */
+	public EditScript diff_2_compact(DiffAlgorithm algorithm) {
+		compare(algorithm);
+		return build_edit_script();
+	}
+
+	/**
+	 * Compute statistics of the differences of two files (see {@link DiffStats}), without building any script. When more than maxCost
+	 * lines would be inserted or deleted, comparison stops as soon as this is known, and returned statistics are marked as exceeded.
+	 */
+	public DiffStats diff_2_stats(int maxCost) {
+		startComparison();
+
+		/* At least the difference of sizes must be inserted or deleted.  */
+		if (Math.abs(filevec[0].buffered_lines - filevec[1].buffered_lines) > maxCost) {
+			return DiffStats.exceeded(filevec[0].buffered_lines, filevec[1].buffered_lines, maxCost);
+		}
 
-		/* Now do the main comparison algorithm, considering just the
-		   undiscarded lines.  */
+		discard_confusing_lines();
 
 		xvec = filevec[0].undiscarded;
 		yvec = filevec[1].undiscarded;
 
+		int discarded = filevec[0].buffered_lines - filevec[0].nondiscarded_lines + filevec[1].buffered_lines
+				- filevec[1].nondiscarded_lines;
+		cost_limit = maxCost - discarded;
+		cost_limit_exceeded = cost_limit < 0;
+
 		int diags = filevec[0].nondiscarded_lines + filevec[1].nondiscarded_lines + 3;
-		fdiag = new int[diags];
+		fdiag = workspace.fdiag(diags);
 		fdiagoff = filevec[1].nondiscarded_lines + 1;
-		bdiag = new int[diags];
+		bdiag = workspace.bdiag(diags);
 		bdiagoff = filevec[1].nondiscarded_lines + 1;
 
 		compareseq(0, filevec[0].nondiscarded_lines, 0, filevec[1].nondiscarded_lines);
 		fdiag = null;
 		bdiag = null;
+		cost_limit = Integer.MAX_VALUE;
+
+		if (cost_limit_exceeded) {
+			cost_limit_exceeded = false;
+			return DiffStats.exceeded(filevec[0].buffered_lines, filevec[1].buffered_lines, maxCost);
+		}
+
+		shift_boundaries();
+		return build_stats(maxCost);
+	}
+
+	/**
+	 * Scan the tables of which lines are inserted and deleted, counting changes of each kind.
+	 */
+
+	private DiffStats build_stats(int maxCost) {
+		final boolean[] changed0 = filevec[0].changed_flag;
+		final boolean[] changed1 = filevec[1].changed_flag;
+		final int len0 = filevec[0].buffered_lines;
+		final int len1 = filevec[1].buffered_lines;
+		int additions = 0, removals = 0, modifications = 0, deleted = 0, inserted = 0;
+
+		int i0 = 0, i1 = 0;
+
+		while (i0 < len0 || i1 < len1) {
+			if (changed0[1 + i0] || changed1[1 + i1]) {
+				int line0 = i0, line1 = i1;
+
+				while (changed0[1 + i0]) {
+					++i0;
+				}
+				while (changed1[1 + i1]) {
+					++i1;
+				}
+
+				if (i1 == line1) {
+					removals++;
+				}
+				else if (i0 == line0) {
+					additions++;
+				}
+				else {
+					modifications++;
+				}
+				deleted += i0 - line0;
+				inserted += i1 - line1;
+			}
+
+			i0++;
+			i1++;
+		}
+
+		if (deleted + inserted > maxCost) {
+			return DiffStats.exceeded(len0, len1, maxCost);
+		}
+		return new DiffStats(len0, len1, additions, removals, modifications, deleted, inserted, minimal);
+	}
+
+	/**
+	 * Compare the two files with supplied algorithm, and store results in changed flags of each file
+	 */
+	private void compare(DiffAlgorithm algorithm) {
+		startComparison();
+		if (monitor != null) {
+			monitor.beginPhase(DiffMonitor.Phase.COMPARING, filevec[0].buffered_lines + filevec[1].buffered_lines);
+		}
+
+		if (algorithm == null || algorithm == DiffAlgorithm.MYERS) {
+
+			/* Some lines are obviously insertions or deletions
+			   because they don't match anything.  Detect them now,
+			   and avoid even thinking about them in the main comparison algorithm.  */
+
+			discard_confusing_lines();
+			if (monitor != null) {
+				monitor.worked(filevec[0].buffered_lines - filevec[0].nondiscarded_lines + filevec[1].buffered_lines
+						- filevec[1].nondiscarded_lines);
+			}
+
+			/* Now do the main comparison algorithm, considering just the
+			   undiscarded lines.  */
+
+			xvec = filevec[0].undiscarded;
+			yvec = filevec[1].undiscarded;
+
+			int diags = filevec[0].nondiscarded_lines + filevec[1].nondiscarded_lines + 3;
+			fdiag = workspace.fdiag(diags);
+			fdiagoff = filevec[1].nondiscarded_lines + 1;
+			bdiag = workspace.bdiag(diags);
+			bdiagoff = filevec[1].nondiscarded_lines + 1;
+
+			compareseq(0, filevec[0].nondiscarded_lines, 0, filevec[1].nondiscarded_lines);
+		}
+		else {
+
+			/* No line is discarded here: anchors are searched on whole files.
+			   Anchors are heuristic, so the result is not guaranteed to be minimal.  */
+
+			minimal = false;
+			filevec[0].keep_all_lines();
+			filevec[1].keep_all_lines();
+
+			xvec = filevec[0].undiscarded;
+			yvec = filevec[1].undiscarded;
+
+			new HistogramDiff(this, xvec, filevec[0].nondiscarded_lines, yvec, filevec[1].nondiscarded_lines, equiv_max,
+					algorithm == DiffAlgorithm.PATIENCE).compute();
+		}
+		fdiag = null;
+		bdiag = null;
 
 		/* Modify the results slightly to make them prettier
 		   in cases where that can validly be done.  */
 
 		shift_boundaries();
+	}
 
-		/* Get the results of comparison in the form of a chain
-		   of `struct change's -- an edit script.  */
+	/**
+	 * Report the differences of two files, in forward order, splitting the comparison in independent segments which are compared
+	 * concurrently in supplied pool, using supplied algorithm.<br>
+	 * Segments are delimited by tokens occurring exactly once in each file, and considered as unchanged: resulting script might thus be
+	 * less minimal than the one returned by {@link #diff_2(boolean, DiffAlgorithm)}, and is only reported as minimal (see
+	 * {@link #isMinimal()}) when no segment was cut.
+	 */
+	public change diff_2_parallel(ForkJoinPool pool, DiffAlgorithm algorithm) {
+		startComparison();
+		ParallelDiff parallelDiff = new ParallelDiff(this, filevec[0].exactEquivs(), filevec[1].exactEquivs(), equiv_max);
+		change script = parallelDiff.compute(pool, algorithm);
+		minimal = parallelDiff.isMinimal();
+		return script;
+	}
 
-		if (reverse) {
-			return build_reverse_script();
+	private void startComparison() {
+		minimal = true;
+		deadlineReached = false;
+		deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+	}
+
+	/**
+	 * Check (occasionally, to keep it cheap) if deadline is reached. Once reached, all further searches are cut after
+	 * MIN_COST_AFTER_DEADLINE steps: cutting them earlier would split problems too close to their corners, and recurse too deeply.
+	 */
+	private boolean isDeadlineReached(int c) {
+		if (!deadlineReached && (c & 15) == 0) {
+			deadlineReached = System.currentTimeMillis() > deadline;
 		}
-		else {
-			return build_script();
+		return deadlineReached && c >= MIN_COST_AFTER_DEADLINE;
+	}
+
+	private static final int MIN_COST_AFTER_DEADLINE = 64;
+
+	/**
+	 * Return true when last computed edit script is guaranteed to be minimal. Only the {@link DiffAlgorithm#MYERS} search can guarantee
+	 * it: false is returned for other algorithms, and when the search was cut by <code>too_expensive</code> or <code>timeout</code> and
+	 * the script is an approximation.
+	 */
+	public boolean isMinimal() {
+		return minimal;
+	}
+
+	/**
+	 * Mark line (origin-0) of file 0 or 1 as a deletion or an insertion. Used by alternative algorithms to record their results.
+	 */
+	void markChanged(int file, int line) {
+		filevec[file].changed_flag[1 + line] = true;
+	}
+
+	/**
+	 * Compare with Myers algorithm contiguous subsequences of the two files [XOFF, XLIM) and [YOFF, YLIM). Used by alternative algorithms
+	 * as a fallback, when no line is discarded.
+	 */
+	void compareRange(int xoff, int xlim, int yoff, int ylim) {
+		if (fdiag == null) {
+			int diags = filevec[0].nondiscarded_lines + filevec[1].nondiscarded_lines + 3;
+			fdiag = workspace.fdiag(diags);
+			fdiagoff = filevec[1].nondiscarded_lines + 1;
+			bdiag = workspace.bdiag(diags);
+			bdiagoff = filevec[1].nondiscarded_lines + 1;
 		}
+		compareseq(xoff, xlim, yoff, ylim);
 	}
 
 	/**
@@ -554,7 +976,7 @@ public class Diff {
 			   is an insertion or deletion.
 			   Allocate an extra element, always zero, at each end of each vector.
 			 */
-			changed_flag = new boolean[buffered_lines + 2];
+			changed_flag = workspace.changed(file, buffered_lines + 2);
 		}
 
 		/**
@@ -563,7 +985,7 @@ public class Diff {
 		 * @return the array of equivalence class counts.
 		 */
 		int[] equivCount() {
-			int[] equiv_count = new int[equiv_max];
+			int[] equiv_count = workspace.equivCounts(equiv_max);
 			for (int i = 0; i < buffered_lines; ++i) {
 				++equiv_count[equivs[i]];
 			}
@@ -608,7 +1030,7 @@ public class Diff {
 
 		private byte[] discardable(final int[] counts) {
 			final int end = buffered_lines;
-			final byte[] discards = new byte[end];
+			final byte[] discards = workspace.discards(end);
 			final int[] equivs2 = this.equivs;
 			int many = 5;
 			int tem = end / 64;
@@ -784,24 +1206,37 @@ public class Diff {
 			nondiscarded_lines = j;
 		}
 
-		FileData(Object[] data, Hashtable<Object, Integer> h) {
-			buffered_lines = data.length;
+		/**
+		 * Prepare this file to be compared without discarding any line.
+		 */
+		void keep_all_lines() {
+			clear();
+			System.arraycopy(equivs, 0, undiscarded, 0, buffered_lines);
+			for (int i = 0; i < buffered_lines; i++) {
+				realindexes[i] = i;
+			}
+			nondiscarded_lines = buffered_lines;
+		}
 
-			equivs = new int[buffered_lines];
-			undiscarded = new int[buffered_lines];
-			realindexes = new int[buffered_lines];
+		FileData(int file, int[] equivs, int length) {
+			this.file = file;
+			buffered_lines = length;
 
-			for (int i = 0; i < data.length; ++i) {
-				Integer ir = h.get(data[i]);
-				if (ir == null) {
-					h.put(data[i], Integer.valueOf(equivs[i] = equiv_max++));
-				}
-				else {
-					equivs[i] = ir.intValue();
-				}
-			}
+			this.equivs = equivs;
+			undiscarded = workspace.undiscarded(file, buffered_lines);
+			realindexes = workspace.realindexes(file, buffered_lines);
 		}
 
+		/**
+		 * Return equivalence codes of this file, in an array of the exact length of the file
+		 */
+		int[] exactEquivs() {
+			return equivs.length == buffered_lines ? equivs : Arrays.copyOf(equivs, buffered_lines);
+		}
+
+		/** Index of this file: 0 or 1 */
+		private final int file;
+
 		/**
 		 * Adjust inserts/deletes of blank lines to join changes as much as possible.
 		 * 
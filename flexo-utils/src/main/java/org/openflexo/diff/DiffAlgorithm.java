@@ -0,0 +1,67 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+/**
+ * Algorithms available to compute the edit script between two token sequences.<br>
+ * All algorithms produce a {@link Diff.change} script, so that they are interchangeable from the point of view of {@link ComputeDiff} and
+ * of merges.
+ */
+public enum DiffAlgorithm {
+
+	/**
+	 * GNU diff derived algorithm (Myers O(ND)), producing a minimal edit script
+	 */
+	MYERS,
+
+	/**
+	 * Patience diff: tokens appearing exactly once in both sequences are used as anchors, longest increasing sequence of anchors is kept,
+	 * and regions between anchors are processed recursively. Falls back to {@link #MYERS} when a region has no unique common token.
+	 */
+	PATIENCE,
+
+	/**
+	 * Histogram diff: an extension of patience diff also considering low-occurrence (and not only unique) tokens as anchors. Usually
+	 * faster than {@link #MYERS} on real source files and produces more readable hunks on files with many repeated lines (braces, blank
+	 * lines). Falls back to {@link #MYERS} when a region only contains very frequent common tokens.
+	 */
+	HISTOGRAM;
+
+}
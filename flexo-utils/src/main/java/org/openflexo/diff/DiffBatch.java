@@ -0,0 +1,121 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+/**
+ * Compare one baseline source to many variants.<br>
+ * 
+ * Baseline is tokenized and interned only once (see {@link PreparedDiffSource}), and all variants share the same token dictionary.
+ * Returned reports are ordered as supplied variants, with baseline as first source and variant as second source.
+ */
+public class DiffBatch {
+
+	private final PreparedDiffSource baseline;
+	private final DiffAlgorithm algorithm;
+
+	public DiffBatch(DiffSource baseline) {
+		this(baseline, DiffAlgorithm.MYERS);
+	}
+
+	public DiffBatch(DiffSource baseline, DiffAlgorithm algorithm) {
+		this(new PreparedDiffSource(baseline), algorithm);
+	}
+
+	public DiffBatch(PreparedDiffSource baseline, DiffAlgorithm algorithm) {
+		this.baseline = baseline;
+		this.algorithm = algorithm;
+	}
+
+	public PreparedDiffSource getBaseline() {
+		return baseline;
+	}
+
+	public DiffAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Compare baseline to supplied variant
+	 */
+	public DiffReport diff(DiffSource variant) {
+		return baseline.diff(variant, algorithm);
+	}
+
+	/**
+	 * Compare baseline to all supplied variants, sequentially
+	 */
+	public List<DiffReport> diff(List<DiffSource> variants) {
+		List<DiffReport> returned = new ArrayList<>(variants.size());
+		for (DiffSource variant : variants) {
+			returned.add(diff(variant));
+		}
+		return returned;
+	}
+
+	/**
+	 * Compare baseline to all supplied variants, concurrently in the common {@link ForkJoinPool}
+	 */
+	public List<DiffReport> diffInParallel(List<DiffSource> variants) {
+		return diff(variants, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Compare baseline to all supplied variants, concurrently in supplied pool
+	 */
+	public List<DiffReport> diff(List<DiffSource> variants, ForkJoinPool pool) {
+		List<ForkJoinTask<DiffReport>> tasks = new ArrayList<>(variants.size());
+		for (final DiffSource variant : variants) {
+			tasks.add(pool.submit(() -> diff(variant)));
+		}
+		List<DiffReport> returned = new ArrayList<>(variants.size());
+		for (ForkJoinTask<DiffReport> task : tasks) {
+			returned.add(task.join());
+		}
+		return returned;
+	}
+
+}
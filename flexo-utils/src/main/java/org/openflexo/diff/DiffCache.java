@@ -0,0 +1,335 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+/**
+ * A cache of diff reports, keyed by a SHA-256 hash of the contents of both compared inputs, their {@link DelimitingMethod}, ignored
+ * columns and {@link DiffAlgorithm}.<br>
+ * 
+ * Cache is bounded by a number of entries and an approximate memory footprint: least recently used reports are evicted first. Returned
+ * reports are immutable (see {@link DiffReport#isImmutable()}), since they are shared by all callers; their sources must not be modified
+ * either.<br>
+ * 
+ * This class is thread-safe. Reports are computed outside of any lock, so that a slow comparison does not block cache hits.
+ */
+public class DiffCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 256;
+	public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+	private final int maxEntries;
+	private final long maxMemory;
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long memory = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	public DiffCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_MEMORY);
+	}
+
+	public DiffCache(int maxEntries, long maxMemory) {
+		this.maxEntries = maxEntries;
+		this.maxMemory = maxMemory;
+	}
+
+	public DiffReport diff(String aString, String anOtherString) {
+		return diff(aString, anOtherString, DelimitingMethod.LINES, -1);
+	}
+
+	public DiffReport diff(String aString, String anOtherString, DelimitingMethod method) {
+		return diff(aString, anOtherString, method, -1);
+	}
+
+	public DiffReport diff(String aString, String anOtherString, DelimitingMethod method, int ignoredCols) {
+		return diff(aString, anOtherString, method, ignoredCols, DiffAlgorithm.MYERS);
+	}
+
+	public DiffReport diff(String aString, String anOtherString, DelimitingMethod method, int ignoredCols, DiffAlgorithm algorithm) {
+		Key key = new Key(digest(aString), digest(anOtherString), method, ignoredCols, algorithm);
+		DiffReport returned = lookup(key);
+		if (returned == null) {
+			returned = ComputeDiff.diff(new DiffSource(aString, method, ignoredCols), new DiffSource(anOtherString, method, ignoredCols),
+					algorithm);
+			returned = store(key, returned);
+		}
+		return returned;
+	}
+
+	public DiffReport diff(File aFile, File anOtherFile) throws IOException {
+		return diff(aFile, anOtherFile, DelimitingMethod.LINES, -1);
+	}
+
+	public DiffReport diff(File aFile, File anOtherFile, DelimitingMethod method) throws IOException {
+		return diff(aFile, anOtherFile, method, -1);
+	}
+
+	public DiffReport diff(File aFile, File anOtherFile, DelimitingMethod method, int ignoredCols) throws IOException {
+		return diff(aFile, anOtherFile, method, ignoredCols, DiffAlgorithm.MYERS);
+	}
+
+	public DiffReport diff(File aFile, File anOtherFile, DelimitingMethod method, int ignoredCols, DiffAlgorithm algorithm)
+			throws IOException {
+		Key key = new Key(digest(aFile), digest(anOtherFile), method, ignoredCols, algorithm);
+		DiffReport returned = lookup(key);
+		if (returned == null) {
+			returned = ComputeDiff.diff(new DiffSource(aFile, method, ignoredCols), new DiffSource(anOtherFile, method, ignoredCols),
+					algorithm);
+			returned = store(key, returned);
+		}
+		return returned;
+	}
+
+	/**
+	 * Return report comparing supplied sources. Sources are identified by their text (which has already been tokenized), delimiting
+	 * method and ignored columns. Since supplied sources might be modified later (see {@link DiffSource#updateWith(String)}), the report
+	 * is computed on private copies of them: sources of returned report are not the supplied ones.
+	 */
+	public DiffReport diff(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm) {
+		String text0 = source.getText();
+		String text1 = anOtherSource.getText();
+		Key key = new Key(digest(text0), digest(text1), source.getDelimitingMethod(), source.getIgnoredCols(),
+				anOtherSource.getDelimitingMethod(), anOtherSource.getIgnoredCols(), algorithm);
+		DiffReport returned = lookup(key);
+		if (returned == null) {
+			returned = store(key, ComputeDiff.diff(new DiffSource(text0, source.getDelimitingMethod(), source.getIgnoredCols()),
+					new DiffSource(text1, anOtherSource.getDelimitingMethod(), anOtherSource.getIgnoredCols()), algorithm));
+		}
+		return returned;
+	}
+
+	private synchronized DiffReport lookup(Key key) {
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			hits++;
+			return entry.report;
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Store supplied report, and return the one which is now cached for supplied key (which might have been computed concurrently)
+	 */
+	private DiffReport store(Key key, DiffReport report) {
+		report.freeze();
+		long size = estimateMemory(report);
+		synchronized (this) {
+			Entry existing = entries.get(key);
+			if (existing != null) {
+				return existing.report;
+			}
+			if (size > maxMemory) {
+				return report;
+			}
+			entries.put(key, new Entry(report, size));
+			memory += size;
+			Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+			while ((entries.size() > maxEntries || memory > maxMemory) && iterator.hasNext()) {
+				Entry evicted = iterator.next().getValue();
+				iterator.remove();
+				memory -= evicted.size;
+				evictions++;
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * Approximate memory used by a report and its sources
+	 */
+	private static long estimateMemory(DiffReport report) {
+		long returned = 64;
+		for (DiffSource source : new DiffSource[] { report.getSource0(), report.getSource1() }) {
+			// Text, token table and cached token strings
+			returned += 2L * source.getText().length() + 80L * source.tokensCount();
+		}
+		return returned + 64L * report.getChanges().size();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		memory = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Return approximate memory used by cached reports, in bytes
+	 */
+	public synchronized long getMemoryUsage() {
+		return memory;
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "DiffCache: " + entries.size() + " entries, " + memory + " bytes, " + hits + " hits, " + misses + " misses, " + evictions
+				+ " evictions";
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Cannot happen: SHA-256 is supported by all Java platforms
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] digest(String text) {
+		MessageDigest digest = newDigest();
+		if (text == null) {
+			return digest.digest();
+		}
+		byte[] buffer = new byte[8192];
+		int length = text.length();
+		for (int start = 0; start < length; start += buffer.length / 2) {
+			int end = Math.min(length, start + buffer.length / 2);
+			int n = 0;
+			for (int i = start; i < end; i++) {
+				char c = text.charAt(i);
+				buffer[n++] = (byte) (c >> 8);
+				buffer[n++] = (byte) c;
+			}
+			digest.update(buffer, 0, n);
+		}
+		return digest.digest();
+	}
+
+	private static byte[] digest(File file) throws IOException {
+		MessageDigest digest = newDigest();
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			byte[] buffer = new byte[65536];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+		}
+		return digest.digest();
+	}
+
+	private static class Entry {
+		private final DiffReport report;
+		private final long size;
+
+		private Entry(DiffReport report, long size) {
+			this.report = report;
+			this.size = size;
+		}
+	}
+
+	private static class Key {
+		private final byte[] digest0;
+		private final byte[] digest1;
+		private final String methodName0;
+		private final String delimiters0;
+		private final int ignoredCols0;
+		private final String methodName1;
+		private final String delimiters1;
+		private final int ignoredCols1;
+		private final DiffAlgorithm algorithm;
+		private final int hashCode;
+
+		private Key(byte[] digest0, byte[] digest1, DelimitingMethod method, int ignoredCols, DiffAlgorithm algorithm) {
+			this(digest0, digest1, method, ignoredCols, method, ignoredCols, algorithm);
+		}
+
+		private Key(byte[] digest0, byte[] digest1, DelimitingMethod method0, int ignoredCols0, DelimitingMethod method1, int ignoredCols1,
+				DiffAlgorithm algorithm) {
+			this.digest0 = digest0;
+			this.digest1 = digest1;
+			this.methodName0 = method0.getName();
+			this.delimiters0 = method0.getDelimiters();
+			this.ignoredCols0 = ignoredCols0;
+			this.methodName1 = method1.getName();
+			this.delimiters1 = method1.getDelimiters();
+			this.ignoredCols1 = ignoredCols1;
+			this.algorithm = algorithm;
+			hashCode = Arrays.hashCode(digest0) * 31 + Arrays.hashCode(digest1);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return Arrays.equals(digest0, other.digest0) && Arrays.equals(digest1, other.digest1) && methodName0.equals(other.methodName0)
+					&& delimiters0.equals(other.delimiters0) && ignoredCols0 == other.ignoredCols0 && methodName1.equals(other.methodName1)
+					&& delimiters1.equals(other.delimiters1) && ignoredCols1 == other.ignoredCols1 && algorithm == other.algorithm;
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.List;
+
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+/**
+ * Reusable diff engine, for high-throughput diffing of many (usually small) pairs of sources.<br>
+ * 
+ * An engine owns a {@link TokenInterner}, identifier buffers and the scratch vectors of {@link Diff}. All of them only grow and are
+ * reused from one comparison to the next one, so that once warmed up, an engine mostly allocates the resulting script and report.
+ * Results are identical to those of {@link ComputeDiff}.<br>
+ * 
+ * An engine is not thread-safe: use one engine per thread, for instance the one returned by {@link #forCurrentThread()}.
+ */
+public final class DiffEngine {
+
+	private static final ThreadLocal<DiffEngine> ENGINES = new ThreadLocal<DiffEngine>() {
+		@Override
+		protected DiffEngine initialValue() {
+			return new DiffEngine();
+		}
+	};
+
+	/**
+	 * Return the engine owned by current thread
+	 */
+	public static DiffEngine forCurrentThread() {
+		return ENGINES.get();
+	}
+
+	private final TokenInterner interner = new TokenInterner(1024);
+	private final DiffWorkspace workspace = new DiffWorkspace();
+	private int[] ids0 = new int[256];
+	private int[] ids1 = new int[256];
+	private boolean minimal;
+
+	public DiffEngine() {
+	}
+
+	/**
+	 * Compute diff between two sources
+	 */
+	public DiffReport diff(DiffSource source0, DiffSource source1) {
+		return diff(source0, source1, DiffAlgorithm.MYERS);
+	}
+
+	/**
+	 * Compute diff between two sources, with supplied algorithm
+	 */
+	public DiffReport diff(DiffSource source0, DiffSource source1, DiffAlgorithm algorithm) {
+		Diff.change script = computeScript(source0, source1, algorithm);
+		return ComputeDiff.buildReport(script, source0, source1, minimal);
+	}
+
+	/**
+	 * Compute diff between two sources with supplied algorithm, sending changes to supplied consumer, in order
+	 */
+	public void diff(DiffSource source0, DiffSource source1, DiffAlgorithm algorithm, DiffConsumer consumer) {
+		Diff.change script = computeScript(source0, source1, algorithm);
+		new ComputeDiff.Base(source0, source1).emitChanges(script, source0, source1, consumer);
+	}
+
+	/**
+	 * Compute compact edit script between two sources, with supplied algorithm
+	 */
+	public EditScript editScript(DiffSource source0, DiffSource source1, DiffAlgorithm algorithm) {
+		internTokens(source0, source1);
+		return editScript(source0.tokensCount(), source1.tokensCount(), algorithm);
+	}
+
+	/**
+	 * Compute compact edit script between two lists, with supplied algorithm. Elements are hashed and compared with supplied strategy.
+	 * Interner is cleared when done, so that this engine does not retain the elements.
+	 */
+	public <T> EditScript editScript(List<? extends T> list0, List<? extends T> list1, HashingStrategy<? super T> strategy,
+			DiffAlgorithm algorithm) {
+		ensureCapacity(list0.size(), list1.size());
+		interner.clear();
+		try {
+			int i = 0;
+			for (T element : list0) {
+				ids0[i++] = interner.intern(element, strategy);
+			}
+			i = 0;
+			for (T element : list1) {
+				ids1[i++] = interner.intern(element, strategy);
+			}
+			return editScript(list0.size(), list1.size(), algorithm);
+		} finally {
+			interner.clear();
+		}
+	}
+
+	/**
+	 * Compute compact edit script between two int sequences, with supplied algorithm
+	 */
+	public EditScript editScript(IntSequence sequence0, IntSequence sequence1, DiffAlgorithm algorithm) {
+		int length0 = sequence0.size();
+		int length1 = sequence1.size();
+		ensureCapacity(length0, length1);
+		interner.clear();
+		for (int i = 0; i < length0; i++) {
+			ids0[i] = interner.intern(sequence0.get(i));
+		}
+		for (int i = 0; i < length1; i++) {
+			ids1[i] = interner.intern(sequence1.get(i));
+		}
+		return editScript(length0, length1, algorithm);
+	}
+
+	/**
+	 * Compute compact edit script between two long arrays, with supplied algorithm
+	 */
+	public EditScript editScript(long[] values0, long[] values1, DiffAlgorithm algorithm) {
+		ensureCapacity(values0.length, values1.length);
+		interner.clear();
+		for (int i = 0; i < values0.length; i++) {
+			ids0[i] = interner.intern(values0[i]);
+		}
+		for (int i = 0; i < values1.length; i++) {
+			ids1[i] = interner.intern(values1[i]);
+		}
+		return editScript(values0.length, values1.length, algorithm);
+	}
+
+	private EditScript editScript(int length0, int length1, DiffAlgorithm algorithm) {
+		Diff d = new Diff(ids0, length0, ids1, length1, interner.getMaxId(), workspace);
+		d.bit_parallel = ComputeDiff.isSmall(length0, length1);
+		return d.diff_2_compact(algorithm);
+	}
+
+	/**
+	 * Compute statistics of the differences between two sources, abandoning comparison as soon as dissimilarity is known to exceed
+	 * maxDissimilarity (see {@link ComputeDiff#stats(DiffSource, DiffSource, double)})
+	 */
+	public DiffStats stats(DiffSource source0, DiffSource source1, double maxDissimilarity) {
+		internTokens(source0, source1);
+		int length0 = source0.tokensCount();
+		int length1 = source1.tokensCount();
+		Diff d = new Diff(ids0, length0, ids1, length1, interner.getMaxId(), workspace);
+		d.bit_parallel = ComputeDiff.isSmall(length0, length1);
+		return d.diff_2_stats(ComputeDiff.maxCost(length0, length1, maxDissimilarity));
+	}
+
+	/**
+	 * Compute edit script between the first length0 values of equivs0 and the first length1 values of equivs1, with supplied algorithm.
+	 * Values must be strictly positive and lower than equivMax, as computed by a {@link TokenInterner}.
+	 */
+	public Diff.change diff(int[] equivs0, int length0, int[] equivs1, int length1, int equivMax, DiffAlgorithm algorithm) {
+		Diff d = new Diff(equivs0, length0, equivs1, length1, equivMax, workspace);
+		d.bit_parallel = ComputeDiff.isSmall(length0, length1);
+		Diff.change returned = d.diff_2(false, algorithm);
+		minimal = d.isMinimal();
+		return returned;
+	}
+
+	private Diff.change computeScript(DiffSource source0, DiffSource source1, DiffAlgorithm algorithm) {
+		internTokens(source0, source1);
+		return diff(ids0, source0.tokensCount(), ids1, source1.tokensCount(), interner.getMaxId(), algorithm);
+	}
+
+	/**
+	 * Store identifiers of tokens of both sources in ids0 and ids1
+	 */
+	private void internTokens(DiffSource source0, DiffSource source1) {
+		int length0 = source0.tokensCount();
+		int length1 = source1.tokensCount();
+		ensureCapacity(length0, length1);
+		interner.clear();
+		source0.getTokenIds(interner, 0, length0, ids0);
+		source1.getTokenIds(interner, 0, length1, ids1);
+	}
+
+	private void ensureCapacity(int length0, int length1) {
+		if (ids0.length < length0) {
+			ids0 = new int[Math.max(length0, ids0.length * 2)];
+		}
+		if (ids1.length < length1) {
+			ids1 = new int[Math.max(length1, ids1.length * 2)];
+		}
+	}
+
+}
@@ -0,0 +1,174 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Follow and control a long running comparison or merge.<br>
+ * 
+ * A monitor is polled by the computation (see {@link Diff#monitor}): once {@link #cancel()} has been called, the computation stops at its
+ * next check by throwing a {@link CancellationException}, and leaves its scratch buffers to the garbage collector. The computation
+ * reports its progress as a number of processed tokens in its current {@link Phase}, forwarded to an optional {@link ProgressListener}
+ * about every percent of the phase.<br>
+ * 
+ * A monitor is updated by one computing thread, and may be read or cancelled from any thread.
+ */
+public final class DiffMonitor {
+
+	public enum Phase {
+		TOKENIZING, COMPARING, REPORTING, MERGING, DONE
+	}
+
+	/**
+	 * Notified in computing thread of the progress of a computation
+	 */
+	@FunctionalInterface
+	public interface ProgressListener {
+		public void progress(Phase phase, long processed, long total);
+	}
+
+	private final ProgressListener listener;
+	private volatile boolean cancelled = false;
+	private volatile Phase phase = null;
+	private volatile long processed;
+	private volatile long total;
+	private long nextNotification;
+
+	public DiffMonitor() {
+		this(null);
+	}
+
+	public DiffMonitor(ProgressListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Request the computation to stop as soon as possible
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Throw a {@link CancellationException} if computation was cancelled
+	 */
+	public void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException("Computation cancelled during " + phase);
+		}
+	}
+
+	/**
+	 * Return current phase of the computation, or null if not started yet
+	 */
+	public Phase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Return number of tokens processed so far in current phase
+	 */
+	public long getProcessed() {
+		return processed;
+	}
+
+	/**
+	 * Return number of tokens to process in current phase
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Start a new phase, processing supplied number of tokens
+	 */
+	public void beginPhase(Phase phase, long total) {
+		checkCancelled();
+		this.phase = phase;
+		this.total = total;
+		processed = 0;
+		nextNotification = 0;
+		notifyProgress();
+	}
+
+	/**
+	 * Record that supplied number of tokens were processed since last call
+	 */
+	public void worked(long count) {
+		progress(processed + count);
+	}
+
+	/**
+	 * Record that supplied number of tokens were processed since beginning of current phase
+	 */
+	public void progress(long processed) {
+		this.processed = processed;
+		if (processed >= nextNotification) {
+			notifyProgress();
+		}
+	}
+
+	/**
+	 * Record that the computation is complete
+	 */
+	public void done() {
+		phase = Phase.DONE;
+		processed = total;
+		notifyProgress();
+	}
+
+	private void notifyProgress() {
+		nextNotification = processed + Math.max(1, total / 100);
+		if (listener != null) {
+			listener.progress(phase, processed, total);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DiffMonitor[" + phase + " " + processed + "/" + total + (cancelled ? " cancelled" : "") + "]";
+	}
+
+}
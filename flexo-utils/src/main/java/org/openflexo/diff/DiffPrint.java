@@ -40,12 +40,16 @@
 package org.openflexo.diff;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.Vector;
 
 interface UnaryPredicate {
@@ -69,6 +73,12 @@ interface UnaryPredicate {
  */
 
 public class DiffPrint {
+
+	/**
+	 * Size of the buffer used by printers streaming their output to a writer
+	 */
+	public static final int BUFFER_SIZE = 8192;
+
 	/**
 	 * A Base class for printing edit scripts produced by Diff. This class divides the change list into "hunks", and calls
 	 * <code>print_hunk</code> for each hunk. Various utility methods are provided as well.
@@ -81,6 +91,27 @@ public class DiffPrint {
 			file1 = b;
 		}
 
+		/**
+		 * Build a printer streaming its output to supplied writer, through a bounded buffer: output is not accumulated, and
+		 * {@link #getDiffResult()} returns null
+		 */
+		protected Base(Object[] a, Object[] b, Writer out) {
+			outfile = new PrintWriter(new BufferedWriter(out, BUFFER_SIZE));
+			diffResult = null;
+			file0 = a;
+			file1 = b;
+		}
+
+		/**
+		 * Build a printer streaming lines of supplied sources to supplied writer. Lines are read from the sources while printing, so that
+		 * no copy of the compared texts is made.
+		 */
+		protected Base(DiffSource a, DiffSource b, Writer out) {
+			this((Object[]) null, (Object[]) null, out);
+			source0 = a;
+			source1 = b;
+		}
+
 		/**
 		 * Set to ignore certain kinds of lines when printing an edit script. For example, ignoring blank lines or comments.
 		 */
@@ -91,6 +122,39 @@ public class DiffPrint {
 		 */
 		protected Object[] file0, file1;
 
+		/**
+		 * Set to the sources being compared, when lines are read from sources rather than from arrays
+		 */
+		protected DiffSource source0, source1;
+
+		/**
+		 * Return line of first file at supplied index
+		 */
+		protected Object line0(int i) {
+			return source0 != null ? source0.tokenSequence(i) : file0[i];
+		}
+
+		/**
+		 * Return line of second file at supplied index
+		 */
+		protected Object line1(int i) {
+			return source1 != null ? source1.tokenSequence(i) : file1[i];
+		}
+
+		protected int lines0() {
+			return source0 != null ? source0.tokensCount() : file0.length;
+		}
+
+		protected int lines1() {
+			return source1 != null ? source1.tokensCount() : file1.length;
+		}
+
+		/**
+		 * Print the header of the diff, when the output format has one
+		 */
+		public void print_header(String name0, String name1) {
+		}
+
 		/**
 		 * Divide SCRIPT into pieces by calling HUNKFUN and print each piece with PRINTFUN. Both functions take one arg, an edit script.
 		 * 
@@ -123,6 +187,47 @@ public class DiffPrint {
 			outfile.flush();
 		}
 
+		/**
+		 * Print a compact edit script. Hunks are built one at a time from the script, so that memory used while printing does not depend
+		 * on the number of changes.
+		 */
+		public void print_script(EditScript script) {
+			script.forEach(this::print_change);
+			finish();
+		}
+
+		/* Hunk being built by print_change, and its last change */
+		private Diff.change pendingHunk, pendingEnd;
+
+		/**
+		 * Print changes one by one, in forward order, as they are computed: each hunk is printed as soon as a change not belonging to it is
+		 * received. {@link #finish()} must be called after the last change.
+		 */
+		public void print_change(int line0, int line1, int deleted, int inserted) {
+			Diff.change change = new Diff.change(line0, line1, deleted, inserted, null);
+			if (pendingHunk != null && joins(pendingEnd, line0)) {
+				pendingEnd.link = change;
+				pendingEnd = change;
+			}
+			else {
+				if (pendingHunk != null) {
+					print_hunk(pendingHunk);
+				}
+				pendingHunk = pendingEnd = change;
+			}
+		}
+
+		/**
+		 * Print the last hunk received by {@link #print_change(int, int, int, int)}, and flush output
+		 */
+		public void finish() {
+			if (pendingHunk != null) {
+				print_hunk(pendingHunk);
+				pendingHunk = pendingEnd = null;
+			}
+			outfile.flush();
+		}
+
 		/**
 		 * If using LinePrint class results are returned as string
 		 */
@@ -134,9 +239,20 @@ public class DiffPrint {
 		 * Called with the tail of the script and returns the last link that belongs together with the start of the tail.
 		 */
 		protected Diff.change hunkfun(Diff.change hunk) {
+			while (hunk.link != null && joins(hunk, hunk.link.line0)) {
+				hunk = hunk.link;
+			}
 			return hunk;
 		}
 
+		/**
+		 * Return true when a change starting at line <code>line0</code> of first file belongs to the same hunk than change
+		 * <code>previous</code>. By default, each change is printed as a hunk of its own.
+		 */
+		protected boolean joins(Diff.change previous, int line0) {
+			return false;
+		}
+
 		protected int first0, last0, first1, last1, deletes, inserts;
 		protected PrintWriter outfile;
 		protected StringBuffer diffResult;
@@ -169,12 +285,12 @@ public class DiffPrint {
 				show_from += next.deleted;
 				show_to += next.inserted;
 				for (i = next.line0; i <= l0 && !nontrivial; i++) {
-					if (!ignore.execute(file0[i])) {
+					if (!ignore.execute(line0(i))) {
 						nontrivial = true;
 					}
 				}
 				for (i = next.line1; i <= l1 && !nontrivial; i++) {
-					if (!ignore.execute(file1[i])) {
+					if (!ignore.execute(line1(i))) {
 						nontrivial = true;
 					}
 				}
@@ -199,8 +315,11 @@ public class DiffPrint {
 		protected abstract void print_hunk(Diff.change hunk);
 
 		protected void print_1_line(String pre, Object linbuf) {
-			outfile.println(pre + linbuf.toString());
-			diffResult.append(pre + linbuf.toString() + "\n");
+			outfile.print(pre);
+			outfile.println(linbuf.toString());
+			if (diffResult != null) {
+				diffResult.append(pre + linbuf.toString() + "\n");
+			}
 		}
 
 		/**
@@ -215,11 +334,15 @@ public class DiffPrint {
 			 which is B.  */
 			if (++b > ++a) {
 				outfile.print("" + a + sepchar + b);
-				diffResult.append("" + a + sepchar + b);
+				if (diffResult != null) {
+					diffResult.append("" + a + sepchar + b);
+				}
 			}
 			else {
 				outfile.print(b);
-				diffResult.append(b);
+				if (diffResult != null) {
+					diffResult.append(b);
+				}
 			}
 		}
 
@@ -247,6 +370,14 @@ public class DiffPrint {
 			super(a, b);
 		}
 
+		public LinePrint(Object[] a, Object[] b, Writer out) {
+			super(a, b, out);
+		}
+
+		public LinePrint(DiffSource a, DiffSource b, Writer out) {
+			super(a, b, out);
+		}
+
 		/**
 		 * Print a hunk of a normal diff. This is a contiguous portion of a complete edit script, describing changes in consecutive lines.
 		 */
@@ -263,27 +394,33 @@ public class DiffPrint {
 			/* Print out the line number header for this hunk */
 			print_number_range(',', first0, last0);
 			outfile.print(change_letter(inserts, deletes));
-			diffResult.append(change_letter(inserts, deletes));
+			if (diffResult != null) {
+				diffResult.append(change_letter(inserts, deletes));
+			}
 			print_number_range(',', first1, last1);
 			outfile.println();
-			diffResult.append("\n");
+			if (diffResult != null) {
+				diffResult.append("\n");
+			}
 
 			/* Print the lines that the first file has.  */
 			if (deletes != 0) {
 				for (int i = first0; i <= last0; i++) {
-					print_1_line("< ", file0[i]);
+					print_1_line("< ", line0(i));
 				}
 			}
 
 			if (inserts != 0 && deletes != 0) {
 				outfile.println("---");
-				diffResult.append("---\n");
+				if (diffResult != null) {
+					diffResult.append("---\n");
+				}
 			}
 
 			/* Print the lines that the second file has.  */
 			if (inserts != 0) {
 				for (int i = first1; i <= last1; i++) {
-					print_1_line("> ", file1[i]);
+					print_1_line("> ", line1(i));
 				}
 			}
 		}
@@ -298,6 +435,14 @@ public class DiffPrint {
 			super(a, b);
 		}
 
+		public NormalPrint(Object[] a, Object[] b, Writer out) {
+			super(a, b, out);
+		}
+
+		public NormalPrint(DiffSource a, DiffSource b, Writer out) {
+			super(a, b, out);
+		}
+
 		/**
 		 * Print a hunk of a normal diff. This is a contiguous portion of a complete edit script, describing changes in consecutive lines.
 		 */
@@ -320,7 +465,7 @@ public class DiffPrint {
 			/* Print the lines that the first file has.  */
 			if (deletes != 0) {
 				for (int i = first0; i <= last0; i++) {
-					print_1_line("< ", file0[i]);
+					print_1_line("< ", line0(i));
 				}
 			}
 
@@ -331,7 +476,7 @@ public class DiffPrint {
 			/* Print the lines that the second file has.  */
 			if (inserts != 0) {
 				for (int i = first1; i <= last1; i++) {
-					print_1_line("> ", file1[i]);
+					print_1_line("> ", line1(i));
 				}
 			}
 		}
@@ -347,6 +492,25 @@ public class DiffPrint {
 			super(a, b);
 		}
 
+		public EdPrint(Object[] a, Object[] b, Writer out) {
+			super(a, b, out);
+		}
+
+		public EdPrint(DiffSource a, DiffSource b, Writer out) {
+			super(a, b, out);
+		}
+
+		/**
+		 * Print a compact edit script, from its last change to its first one, as expected by <code>ed</code>
+		 */
+		@Override
+		public void print_script(EditScript script) {
+			for (int i = script.size() - 1; i >= 0; i--) {
+				print_hunk(new Diff.change(script.getLine0(i), script.getLine1(i), script.getDeleted(i), script.getInserted(i), null));
+			}
+			outfile.flush();
+		}
+
 		/** Print a hunk of an ed diff */
 		@Override
 		protected void print_hunk(Diff.change hunk) {
@@ -376,7 +540,7 @@ public class DiffPrint {
 					 so that we will output another ed-command later
 					 to change the double dot into a single dot.  */
 
-					if (".".equals(file1[i])) {
+					if (".".equals(line1(i).toString())) {
 						outfile.println("..");
 						outfile.println(".");
 						/* Now change that double dot to the desired single dot.  */
@@ -385,7 +549,7 @@ public class DiffPrint {
 					}
 					else {
 						/* Line is not `.', so output it unmodified.  */
-						print_1_line("", file1[i]);
+						print_1_line("", line1(i));
 					}
 				}
 
@@ -397,6 +561,186 @@ public class DiffPrint {
 		}
 	}
 
+	/**
+	 * Base class for formats printing changes surrounded by lines of context. Changes whose contexts overlap are printed in the same hunk.
+	 */
+	public static abstract class ContextBase extends Base {
+
+		/**
+		 * Number of unchanged lines printed before and after each change
+		 */
+		public int context = 3;
+
+		protected ContextBase(Object[] a, Object[] b, Writer out) {
+			super(a, b, out);
+		}
+
+		protected ContextBase(DiffSource a, DiffSource b, Writer out) {
+			super(a, b, out);
+		}
+
+		@Override
+		protected boolean joins(Diff.change previous, int line0) {
+			return line0 - (previous.line0 + previous.deleted) <= 2 * context;
+		}
+
+		/**
+		 * Analyze hunk, and extend ranges of line numbers with context lines
+		 */
+		protected void analyze_hunk_with_context(Diff.change hunk) {
+			analyze_hunk(hunk);
+			first0 = Math.max(first0 - context, 0);
+			first1 = Math.max(first1 - context, 0);
+			last0 = Math.min(last0 + context, lines0() - 1);
+			last1 = Math.min(last1 + context, lines1() - 1);
+		}
+	}
+
+	/**
+	 * Print a change list in the context diff format.
+	 */
+	public static class ContextPrint extends ContextBase {
+
+		public ContextPrint(Object[] a, Object[] b, Writer out) {
+			super(a, b, out);
+		}
+
+		public ContextPrint(DiffSource a, DiffSource b, Writer out) {
+			super(a, b, out);
+		}
+
+		@Override
+		public void print_header(String name0, String name1) {
+			outfile.println("*** " + name0);
+			outfile.println("--- " + name1);
+		}
+
+		/** Print a hunk of a context diff */
+		@Override
+		protected void print_hunk(Diff.change hunk) {
+
+			/* Determine range of line numbers involved in each file.  */
+			analyze_hunk_with_context(hunk);
+			if (deletes == 0 && inserts == 0) {
+				return;
+			}
+
+			outfile.println("***************");
+			outfile.print("*** ");
+			print_number_range(',', first0, last0);
+			outfile.println(" ****");
+
+			/* Print the lines that the first file has, marking deleted and changed lines.  */
+			if (deletes != 0) {
+				Diff.change next = hunk;
+				for (int i = first0; i <= last0; i++) {
+					while (next != null && next.line0 + next.deleted <= i) {
+						next = next.link;
+					}
+					if (next != null && next.line0 <= i) {
+						print_1_line(next.inserted > 0 ? "! " : "- ", line0(i));
+					}
+					else {
+						print_1_line("  ", line0(i));
+					}
+				}
+			}
+
+			outfile.print("--- ");
+			print_number_range(',', first1, last1);
+			outfile.println(" ----");
+
+			/* Print the lines that the second file has, marking inserted and changed lines.  */
+			if (inserts != 0) {
+				Diff.change next = hunk;
+				for (int i = first1; i <= last1; i++) {
+					while (next != null && next.line1 + next.inserted <= i) {
+						next = next.link;
+					}
+					if (next != null && next.line1 <= i) {
+						print_1_line(next.deleted > 0 ? "! " : "+ ", line1(i));
+					}
+					else {
+						print_1_line("  ", line1(i));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Print a change list in the unified diff format.
+	 */
+	public static class UnifiedPrint extends ContextBase {
+
+		public UnifiedPrint(Object[] a, Object[] b, Writer out) {
+			super(a, b, out);
+		}
+
+		public UnifiedPrint(DiffSource a, DiffSource b, Writer out) {
+			super(a, b, out);
+		}
+
+		@Override
+		public void print_header(String name0, String name1) {
+			outfile.println("--- " + name0);
+			outfile.println("+++ " + name1);
+		}
+
+		/** Print a hunk of a unified diff */
+		@Override
+		protected void print_hunk(Diff.change hunk) {
+
+			/* Determine range of line numbers involved in each file.  */
+			analyze_hunk_with_context(hunk);
+			if (deletes == 0 && inserts == 0) {
+				return;
+			}
+
+			outfile.print("@@ -");
+			print_unidiff_number_range(first0, last0);
+			outfile.print(" +");
+			print_unidiff_number_range(first1, last1);
+			outfile.println(" @@");
+
+			/* Print common lines as context, then deleted and inserted lines of each change.  */
+			Diff.change next = hunk;
+			int i = first0;
+			int j = first1;
+			while (i <= last0 || j <= last1) {
+				if (next == null || i < next.line0) {
+					print_1_line(" ", line0(i));
+					i++;
+					j++;
+				}
+				else {
+					for (int k = 0; k < next.deleted; k++) {
+						print_1_line("-", line0(i++));
+					}
+					for (int k = 0; k < next.inserted; k++) {
+						print_1_line("+", line1(j++));
+					}
+					next = next.link;
+				}
+			}
+		}
+
+		/**
+		 * Print a range of lines as start and count. An empty range is printed as the line before the range, followed by a zero count.
+		 */
+		protected void print_unidiff_number_range(int a, int b) {
+			if (b < a) {
+				outfile.print(b + 1 + ",0");
+			}
+			else if (b == a) {
+				outfile.print(a + 1);
+			}
+			else {
+				outfile.print(a + 1 + "," + (b - a + 1));
+			}
+		}
+	}
+
 	/**
 	 * Read a text file into an array of String. This provides basic diff functionality. A more advanced diff utility will use specialized
 	 * objects to represent the text lines, with options to, for example, convert sequences of whitespace to a single space for comparison
@@ -544,6 +888,34 @@ public class DiffPrint {
 		}
 	}
 
+	/**
+	 * Stream differences between supplied sources to supplied writer, in the unified format. Return true when sources differ.
+	 */
+	public static boolean unifiedDiff(DiffSource source0, DiffSource source1, String name0, String name1, Writer out) throws IOException {
+		EditScript script = DiffEngine.forCurrentThread().editScript(source0, source1, DiffAlgorithm.MYERS);
+		if (script.size() == 0) {
+			// No differences
+			return false;
+		}
+		UnifiedPrint p = new UnifiedPrint(source0, source1, out);
+		p.print_header(name0, name1);
+		p.print_script(script);
+		if (p.outfile.checkError()) {
+			throw new IOException("Unable to write differences between " + name0 + " and " + name1);
+		}
+		return true;
+	}
+
+	/**
+	 * Stream differences between supplied text files to supplied stream, in the unified format. Files are memory-mapped and lines are
+	 * written as they are printed, so that memory used does not depend on the size of the files. Return true when files differ.
+	 */
+	public static boolean unifiedDiff(File file0, File file1, OutputStream out, Charset charset) throws IOException {
+		DiffSource source0 = new DiffSource(file0, DelimitingMethod.LINES, charset);
+		DiffSource source1 = new DiffSource(file1, DelimitingMethod.LINES, charset);
+		return unifiedDiff(source0, source1, file0.getPath(), file1.getPath(), new OutputStreamWriter(out, charset));
+	}
+
 	public static boolean diff(File aFile, String aString, int ignoredCols) throws IOException {
 		String[] a = slurpFile(aFile, ignoredCols);
 		String[] b = slurpString(aString, ignoredCols);
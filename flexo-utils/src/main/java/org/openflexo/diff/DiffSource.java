@@ -43,8 +43,17 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Vector;
 
 import org.openflexo.toolbox.FileUtils;
@@ -56,40 +65,66 @@ public class DiffSource {
 	private String sourceString;
 	private File sourceFile;
 	private int ignoredCols = -1;
-	private MergeToken[] textTokens;
+	private TokenTable tokens;
 	private String text;
 
+	// Token strings, lazily cached
+	private String[] tokenValues;
+	private boolean allTokenValuesCached = false;
+
+	// Memory-mapped mode: text is only decoded on demand, and tokens are computed on first access (see getTokenTable())
+	private MappedByteBuffer mappedText;
+	private Charset charset;
+
 	private int maxCols = 0;
 
 	private DelimitingMethod _delimitingMethod = DelimitingMethod.LINES;
 
+	/**
+	 * A lightweight view on a token of this source: token data is stored in the token table of the source
+	 */
 	public class MergeToken {
-		private final int beginDelimStartIndex;
-		private final int beginDelimEndIndex;
-		private final int endDelimStartIndex;
-		private final int endDelimEndIndex;
+		private final int index;
 
-		protected MergeToken(int beginDelimStartIndex, int beginDelimEndIndex, int endDelimStartIndex, int endDelimEndIndex) {
-			this.beginDelimStartIndex = beginDelimStartIndex;
-			this.beginDelimEndIndex = beginDelimEndIndex;
-			this.endDelimStartIndex = endDelimStartIndex;
-			this.endDelimEndIndex = endDelimEndIndex;
+		protected MergeToken(int index) {
+			this.index = index;
 		}
 
 		public String getBeginDelim() {
-			return text.substring(beginDelimStartIndex, beginDelimEndIndex);
+			TokenTable table = getTokenTable();
+			return textRegion(table.beginDelimStarts[index], table.tokenStarts[index]);
 		}
 
 		public String getEndDelim() {
-			return text.substring(endDelimStartIndex, endDelimEndIndex);
+			TokenTable table = getTokenTable();
+			return textRegion(table.tokenEnds[index], table.endDelimEnds[index]);
 		}
 
 		public String getToken() {
-			return text.substring(beginDelimEndIndex, endDelimStartIndex);
+			return tokenValueAt(index);
 		}
 
 		public String getFullString() {
-			return text.substring(beginDelimStartIndex, endDelimEndIndex);
+			TokenTable table = getTokenTable();
+			return textRegion(table.beginDelimStarts[index], table.endDelimEnds[index]);
+		}
+
+		/**
+		 * Return a view of the token, without copying characters when possible
+		 */
+		public CharSequence getTokenSequence() {
+			return tokenSequence(index);
+		}
+
+		/**
+		 * Return a view of the token with its delimiters, without copying characters when possible
+		 */
+		public CharSequence getFullSequence() {
+			return fullSequence(index);
+		}
+
+		public long getHash() {
+			return tokenHash(index);
 		}
 
 		@Override
@@ -98,11 +133,50 @@ public class DiffSource {
 		}
 
 		public int getTokenStartIndex() {
-			return beginDelimEndIndex;
+			return getTokenTable().tokenStarts[index];
 		}
 
 		public int getTokenEndIndex() {
-			return endDelimStartIndex;
+			return getTokenTable().tokenEnds[index];
+		}
+	}
+
+	/**
+	 * Describe how tokens of a source were changed by an edit (see {@link DiffSource#applyEdit(int, int, String)}): removed tokens
+	 * [firstToken,firstToken+removedTokens[ were replaced by inserted tokens [firstToken,firstToken+insertedTokens[
+	 */
+	public static class TokenEdit {
+		private final DiffSource source;
+		private final int firstToken;
+		private final int removedTokens;
+		private final int insertedTokens;
+
+		protected TokenEdit(DiffSource source, int firstToken, int removedTokens, int insertedTokens) {
+			this.source = source;
+			this.firstToken = firstToken;
+			this.removedTokens = removedTokens;
+			this.insertedTokens = insertedTokens;
+		}
+
+		public DiffSource getSource() {
+			return source;
+		}
+
+		public int getFirstToken() {
+			return firstToken;
+		}
+
+		public int getRemovedTokens() {
+			return removedTokens;
+		}
+
+		public int getInsertedTokens() {
+			return insertedTokens;
+		}
+
+		@Override
+		public String toString() {
+			return "TokenEdit: " + removedTokens + " tokens replaced by " + insertedTokens + " tokens at " + firstToken;
 		}
 	}
 
@@ -129,10 +203,10 @@ public class DiffSource {
 		this.ignoredCols = ignoredCols;
 		_delimitingMethod = method;
 		if (aString == null) {
-			textTokens = slurpString("", ignoredCols, method);
+			tokens = slurpString("", ignoredCols, method);
 		}
 		else {
-			textTokens = slurpString(aString, ignoredCols, method);
+			tokens = slurpString(aString, ignoredCols, method);
 		}
 	}
 
@@ -154,13 +228,117 @@ public class DiffSource {
 		sourceFile = aFile;
 		this.ignoredCols = ignoredCols;
 		_delimitingMethod = method;
-		textTokens = slurpFile(aFile, ignoredCols, method);
+		tokens = slurpFile(aFile, ignoredCols, method);
+	}
+
+	/**
+	 * Build a DiffSource backed by a read-only memory map of supplied file.<br>
+	 * 
+	 * The file is neither copied into a String nor rewritten: it is tokenized lazily, on first access to its tokens, into compact offset
+	 * arrays, and characters are only decoded when the text of a token is requested. Carriage returns are considered as delimiters
+	 * instead of being removed from the text. Offsets (and thus {@link MergeToken} indexes) are expressed in bytes.<br>
+	 * 
+	 * Supplied charset must be ASCII-compatible (such as UTF-8 or ISO-8859-1), and delimiters of supplied method must be ASCII
+	 * characters. Files larger than 2GB are not supported.
+	 * 
+	 * @throws IOException
+	 */
+	public DiffSource(File aFile, DelimitingMethod method, Charset charset) throws IOException {
+		checkMappable(method, charset);
+		type = MergeSourceType.File;
+		sourceString = null;
+		sourceFile = aFile;
+		_delimitingMethod = method;
+		this.charset = charset;
+		try (FileChannel channel = FileChannel.open(aFile.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("File " + aFile + " is too large to be mapped (" + size + " bytes)");
+			}
+			mappedText = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+	static void checkMappable(DelimitingMethod method, Charset charset) {
+		String delims = method.getDelimiters() + "\r";
+		for (int i = 0; i < delims.length(); i++) {
+			char c = delims.charAt(i);
+			ByteBuffer encoded = charset.encode(String.valueOf(c));
+			if (c > 0x7F || encoded.remaining() != 1 || encoded.get(0) != c) {
+				throw new IllegalArgumentException("Cannot map text with charset " + charset + " and delimiting method "
+						+ method.getName() + ": delimiters must be ASCII characters encoded on one byte");
+			}
+		}
+	}
+
+	/**
+	 * Return true when this source is backed by a memory-mapped file
+	 */
+	public boolean isMapped() {
+		return mappedText != null;
 	}
 
 	public void updateWith(String aString) {
 		sourceString = aString;
 		sourceFile = null;
-		textTokens = slurpString(aString, 0, _delimitingMethod);
+		mappedText = null;
+		tokens = slurpString(aString, 0, _delimitingMethod);
+	}
+
+	/**
+	 * Apply an edit to the text of this source (as returned by {@link #getText()}): removedLength chars located at offset are replaced by
+	 * insertedText. Only tokens surrounding the edit are tokenized again: tokenization restarts at the token preceding the edit, and
+	 * stops as soon as new tokens are aligned again with old ones.<br>
+	 * Memory-mapped sources cannot be edited.
+	 * 
+	 * @return description of changed tokens, which might be used to update a diff (see
+	 *         {@link ComputeDiff#updateDiff(org.openflexo.diff.ComputeDiff.DiffReport, TokenEdit)})
+	 */
+	public TokenEdit applyEdit(int offset, int removedLength, String insertedText) {
+		if (mappedText != null) {
+			throw new UnsupportedOperationException("Memory-mapped sources cannot be edited");
+		}
+		if (offset < 0 || removedLength < 0 || offset + removedLength > text.length()) {
+			throw new IndexOutOfBoundsException("Invalid edit: offset=" + offset + " removedLength=" + removedLength + " length="
+					+ text.length());
+		}
+		String inserted = insertedText != null ? insertedText.replace("\r", "") : "";
+		String newText = new StringBuilder(text.length() + inserted.length() - removedLength).append(text, 0, offset).append(inserted)
+				.append(text, offset + removedLength, text.length()).toString();
+
+		final TokenTable old = tokens;
+		final int first = offset > 0 ? old.tokenIndexAt(offset - 1) : 0;
+		int from = first < old.size ? old.beginDelimStarts[first] : 0;
+		final int delta = inserted.length() - removedLength;
+		final int editEnd = offset + inserted.length();
+		final int[] end = { old.size };
+		TokenTable window = new TokenTable(16);
+		_delimitingMethod.getTokenizer().tokenize(newText, from, window, index -> {
+			// Stop on first token boundary located after edit, which is also a boundary of an old token
+			if (index <= editEnd) {
+				return false;
+			}
+			int oldToken = Arrays.binarySearch(old.beginDelimStarts, first, old.size, index - delta);
+			if (oldToken >= 0) {
+				end[0] = oldToken;
+				return true;
+			}
+			return false;
+		});
+		window.computeHashes(newText);
+		tokens = old.splice(first, end[0], window, delta);
+
+		if (tokenValues != null) {
+			String[] values = new String[tokens.size];
+			System.arraycopy(tokenValues, 0, values, 0, first);
+			System.arraycopy(tokenValues, end[0], values, first + window.size, old.size - end[0]);
+			tokenValues = values;
+		}
+		allTokenValuesCached = false;
+		text = newText;
+		sourceString = newText;
+		sourceFile = null;
+		return new TokenEdit(this, first, end[0] - first, window.size);
 	}
 
 	public void updateSourceString() {
@@ -288,92 +466,174 @@ public class DiffSource {
 	 * 
 	 * @throws IOException
 	 */
-	private MergeToken[] slurpFile(File aFile, int ignoredCols, DelimitingMethod delimitingMethod) throws IOException {
+	private TokenTable slurpFile(File aFile, int ignoredCols, DelimitingMethod delimitingMethod) throws IOException {
 		return slurpString(FileUtils.fileContents(aFile), ignoredCols, delimitingMethod);
 	}
 
-	private static enum TokenLocation {
-		BEGIN, TOKEN, END;
-	}
-
 	/**
 	 * Internally tokenize a String given some ignored cols and a delimiting method
 	 */
-	private MergeToken[] slurpString(String aString, int ignoredCols, DelimitingMethod delimitingMethod) {
+	private TokenTable slurpString(String aString, int ignoredCols, DelimitingMethod delimitingMethod) {
 		if (ignoredCols > 0) {
 			aString = deleteFirstColumns(aString, ignoredCols);
 		}
 		aString = aString.replace("\r", "");
 		text = aString;
 
-		_significativeTokens = null;
+		tokenValues = null;
+		allTokenValuesCached = false;
 		maxCols = 0;
 
-		String delims = delimitingMethod.getDelimiters();
-
-		List<MergeToken> tokens = new ArrayList<>();
-		int index = 0;
-		int beginDelimStartIndex = 0;
-		int beginDelimEndIndex = 0;
-		int endDelimStartIndex = 0;
-		int endDelimEndIndex = 0;
-		TokenLocation location = TokenLocation.BEGIN;
-		while (index < aString.length()) {
-			char c = aString.charAt(index);
-			boolean isDelim = delims.indexOf(c) > -1;
-			boolean isNewLine = c == '\n';
-			if (isNewLine) {
-				if (location == TokenLocation.BEGIN) {
-					beginDelimEndIndex = index;
-				}
-				if (location == TokenLocation.BEGIN || location == TokenLocation.TOKEN) {
-					endDelimStartIndex = index;
+		TokenTable table = delimitingMethod.getTokenizer().tokenize(aString);
+		table.computeHashes(aString);
+		return tokens = table;
+	}
+
+	/**
+	 * Return token table, tokenizing mapped text if not done yet
+	 */
+	private TokenTable getTokenTable() {
+		if (tokens == null) {
+			TokenTable table = _delimitingMethod.getTokenizer().tokenize(mappedText);
+			computeMappedHashes(table);
+			tokens = table;
+		}
+		return tokens;
+	}
+
+	/**
+	 * Compute hashes of tokens of a memory-mapped source: ASCII tokens are hashed in place, others are decoded first, so that hashes are
+	 * the same as the ones computed on String sources
+	 */
+	private void computeMappedHashes(TokenTable table) {
+		ByteText byteText = new ByteText(mappedText, 0, mappedText.limit());
+		RegionDecoder decoder = null;
+		table.hashes = new long[table.size];
+		table.nonAscii = new BitSet();
+		for (int i = 0; i < table.size; i++) {
+			int start = table.tokenStarts[i];
+			int end = table.tokenEnds[i];
+			if (isAscii(start, end)) {
+				table.hashes[i] = TokenInterner.hash(byteText, start, end);
+			}
+			else {
+				if (decoder == null) {
+					decoder = new RegionDecoder(charset);
 				}
-				location = TokenLocation.END;
+				CharBuffer decoded = decoder.decode(mappedText, start, end);
+				table.hashes[i] = TokenInterner.hash(decoded, 0, decoded.remaining());
+				table.nonAscii.set(i);
 			}
-			switch (location) {
-				case BEGIN:
-					if (!isDelim) {
-						beginDelimEndIndex = index;
-						location = TokenLocation.TOKEN;
-					}
-					break;
-				case END:
-					if (!isDelim || isNewLine) {
-						endDelimEndIndex = isNewLine ? index + 1 : index;
-						if (beginDelimStartIndex < endDelimEndIndex) {
-							tokens.add(new MergeToken(beginDelimStartIndex, beginDelimEndIndex, endDelimStartIndex, endDelimEndIndex));
-						}
-						beginDelimStartIndex = endDelimEndIndex;
-						if (isNewLine) {
-							location = TokenLocation.BEGIN;
-						}
-						else {
-							location = TokenLocation.TOKEN;
-						}
-					}
-					break;
-				case TOKEN:
-					if (isDelim) {
-						endDelimStartIndex = index;
-						location = TokenLocation.END;
-					}
-					break;
+		}
+	}
+
+	private boolean isAscii(int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (mappedText.get(i) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return text located between supplied indexes, decoding it if this source is memory-mapped
+	 */
+	private String textRegion(int beginIndex, int endIndex) {
+		if (mappedText != null) {
+			ByteBuffer region = mappedText.duplicate();
+			region.limit(endIndex);
+			region.position(beginIndex);
+			return charset.decode(region).toString();
+		}
+		return text.substring(beginIndex, endIndex);
+	}
+
+	/**
+	 * Return a view of text located between supplied indexes: characters are not copied, unless this source is memory-mapped and region
+	 * contains non-ASCII characters
+	 */
+	private CharSequence textSequence(int beginIndex, int endIndex) {
+		if (mappedText != null) {
+			if (isAscii(beginIndex, endIndex)) {
+				return new ByteText(mappedText, beginIndex, endIndex);
+			}
+			return textRegion(beginIndex, endIndex);
+		}
+		return CharBuffer.wrap(text, beginIndex, endIndex);
+	}
+
+	/**
+	 * A view of a byte buffer region as a {@link CharSequence}, one char per byte. Used to hash and intern ASCII contents of memory-mapped
+	 * files without decoding them.
+	 */
+	private static class ByteText implements CharSequence {
+		private final ByteBuffer buffer;
+		private final int start;
+		private final int end;
+
+		private ByteText(ByteBuffer buffer, int start, int end) {
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (buffer.get(start + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new ByteText(buffer, this.start + start, this.start + end);
+		}
+
+		@Override
+		public String toString() {
+			char[] chars = new char[length()];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = charAt(i);
 			}
-			index++;
+			return new String(chars);
 		}
-		switch (location) {
-			case BEGIN:
-				beginDelimEndIndex = index;
-			case TOKEN:
-				endDelimStartIndex = index;
-			case END:
-				endDelimEndIndex = index;
+	}
+
+	/**
+	 * Decode regions of a byte buffer, reusing the same decoder and char buffer
+	 */
+	private static class RegionDecoder {
+		private final CharsetDecoder decoder;
+		private CharBuffer decoded;
+
+		private RegionDecoder(Charset charset) {
+			decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
 		}
-		if (beginDelimStartIndex < endDelimEndIndex) {
-			tokens.add(new MergeToken(beginDelimStartIndex, beginDelimEndIndex, endDelimStartIndex, endDelimEndIndex));
+
+		/**
+		 * Decode region [start,end[ of supplied buffer. Returned buffer is only valid until next call.
+		 */
+		private CharBuffer decode(ByteBuffer buffer, int start, int end) {
+			ByteBuffer region = buffer.duplicate();
+			region.limit(end);
+			region.position(start);
+			int maxChars = (int) Math.ceil((end - start) * (double) decoder.maxCharsPerByte()) + 1;
+			if (decoded == null || decoded.capacity() < maxChars) {
+				decoded = CharBuffer.allocate(Math.max(maxChars, 256));
+			}
+			decoded.clear();
+			decoder.reset();
+			CoderResult result = decoder.decode(region, decoded, true);
+			if (!result.isError()) {
+				decoder.flush(decoded);
+			}
+			decoded.flip();
+			return decoded;
 		}
-		return textTokens = tokens.toArray(new MergeToken[tokens.size()]);
 	}
 
 	/**
@@ -413,25 +673,101 @@ public class DiffSource {
 		return sourceString;
 	}
 
+	/**
+	 * Return tokens of this source. Tokens are lightweight views instantiated on each call: prefer {@link #tokensCount()} and
+	 * {@link #tokenAt(int)}.
+	 */
 	public MergeToken[] getTextTokens() {
-		return textTokens;
+		MergeToken[] returned = new MergeToken[tokensCount()];
+		for (int i = 0; i < returned.length; i++) {
+			returned[i] = new MergeToken(i);
+		}
+		return returned;
 	}
 
-	private String[] _significativeTokens;
-
+	/**
+	 * Return significative tokens of this source. Returned array is cached: it should not be modified.
+	 */
 	public String[] getSignificativeTokens() {
-		if (_significativeTokens == null) {
-			_significativeTokens = new String[textTokens.length];
+		if (!allTokenValuesCached) {
+			int count = tokensCount();
+			for (int i = 0; i < count; i++) {
+				tokenValueAt(i);
+			}
+			if (tokenValues == null) {
+				tokenValues = new String[0];
+			}
+			allTokenValuesCached = true;
 		}
-		for (int i = 0; i < textTokens.length; i++) {
-			_significativeTokens[i] = textTokens[i].getToken();
+		return tokenValues;
+	}
+
+	/**
+	 * Return identifiers of significative tokens, as interned by supplied {@link TokenInterner}.<br>
+	 * Tokens are interned directly from backing text, using their precomputed hashes: no substring is created.
+	 */
+	public int[] getTokenIds(TokenInterner interner) {
+		return getTokenIds(interner, 0, tokensCount());
+	}
+
+	/**
+	 * Return identifiers of significative tokens [from,to[, as interned by supplied {@link TokenInterner}
+	 */
+	public int[] getTokenIds(TokenInterner interner, int from, int to) {
+		return getTokenIds(interner, from, to, new int[to - from]);
+	}
+
+	/**
+	 * Store in supplied array identifiers of significative tokens [from,to[, as interned by supplied {@link TokenInterner}, and return
+	 * this array. Array length must be at least to-from.
+	 */
+	public int[] getTokenIds(TokenInterner interner, int from, int to, int[] returned) {
+		TokenTable table = getTokenTable();
+		if (mappedText != null) {
+			ByteText byteText = new ByteText(mappedText, 0, mappedText.limit());
+			RegionDecoder decoder = null;
+			for (int i = from; i < to; i++) {
+				if (table.isAscii(i)) {
+					returned[i - from] = interner.intern(byteText, table.tokenStarts[i], table.tokenEnds[i], table.hashes[i]);
+				}
+				else {
+					if (decoder == null) {
+						decoder = new RegionDecoder(charset);
+					}
+					CharBuffer decoded = decoder.decode(mappedText, table.tokenStarts[i], table.tokenEnds[i]);
+					returned[i - from] = interner.intern(decoded, 0, decoded.remaining(), table.hashes[i]);
+				}
+			}
+		}
+		else {
+			for (int i = from; i < to; i++) {
+				returned[i - from] = interner.intern(text, table.tokenStarts[i], table.tokenEnds[i], table.hashes[i]);
+			}
+		}
+		return returned;
+	}
+
+	/**
+	 * Store in ids the identifiers of significative tokens, as interned by supplied {@link TokenInterner} with supplied normalizing
+	 * strategy (see {@link IgnoreMode}), and in indexes the index of each of these tokens. Tokens are hashed and compared in place: no
+	 * normalized copy of the text is built. Blank tokens are skipped when ignoreBlanks is true. Return number of stored identifiers.
+	 */
+	int getNormalizedTokenIds(TokenInterner interner, HashingStrategy<CharSequence> strategy, boolean ignoreBlanks, int[] ids,
+			int[] indexes) {
+		int count = 0;
+		for (int i = 0; i < tokensCount(); i++) {
+			CharSequence token = tokenSequence(i);
+			if (!ignoreBlanks || !IgnoreMode.isBlank(token)) {
+				ids[count] = interner.intern(token, strategy);
+				indexes[count++] = i;
+			}
 		}
-		return _significativeTokens;
+		return count;
 	}
 
 	public MergeToken tokenAt(int index) {
-		if (index < textTokens.length) {
-			return textTokens[index];
+		if (index < tokensCount()) {
+			return new MergeToken(index);
 		}
 		else {
 			return null;
@@ -439,19 +775,100 @@ public class DiffSource {
 	}
 
 	public String tokenValueAt(int index) {
-		if (index < textTokens.length) {
-			return textTokens[index].getToken();
+		TokenTable table = getTokenTable();
+		if (index < table.size) {
+			if (tokenValues == null) {
+				tokenValues = new String[table.size];
+			}
+			String returned = tokenValues[index];
+			if (returned == null) {
+				returned = tokenValues[index] = textRegion(table.tokenStarts[index], table.tokenEnds[index]);
+			}
+			return returned;
 		}
 		else {
 			return "???";
 		}
 	}
 
+	/**
+	 * Return a view of token at supplied index, without copying characters when possible
+	 */
+	public CharSequence tokenSequence(int index) {
+		TokenTable table = getTokenTable();
+		if (tokenValues != null && tokenValues[index] != null) {
+			return tokenValues[index];
+		}
+		return textSequence(table.tokenStarts[index], table.tokenEnds[index]);
+	}
+
+	/**
+	 * Return a view of token at supplied index with its delimiters, without copying characters when possible
+	 */
+	public CharSequence fullSequence(int index) {
+		TokenTable table = getTokenTable();
+		return textSequence(table.beginDelimStarts[index], table.endDelimEnds[index]);
+	}
+
+	/**
+	 * Return 64-bit hash of token at supplied index (see {@link TokenInterner#hash(CharSequence, int, int)})
+	 */
+	public long tokenHash(int index) {
+		return getTokenTable().hashes[index];
+	}
+
+	/**
+	 * Return true when token at supplied index is equal to token of other source at other index. Hashes are compared first, so that
+	 * characters are only compared for tokens which are very likely to be equal.
+	 */
+	public boolean tokenEquals(int index, DiffSource other, int otherIndex) {
+		TokenTable table = getTokenTable();
+		TokenTable otherTable = other.getTokenTable();
+		if (table.hashes[index] != otherTable.hashes[otherIndex]) {
+			return false;
+		}
+		int length = table.tokenEnds[index] - table.tokenStarts[index];
+		if (mappedText == null && other.mappedText == null) {
+			return length == otherTable.tokenEnds[otherIndex] - otherTable.tokenStarts[otherIndex]
+					&& text.regionMatches(table.tokenStarts[index], other.text, otherTable.tokenStarts[otherIndex], length);
+		}
+		CharSequence token = tokenSequence(index);
+		CharSequence otherToken = other.tokenSequence(otherIndex);
+		if (token.length() != otherToken.length()) {
+			return false;
+		}
+		for (int i = 0; i < token.length(); i++) {
+			if (token.charAt(i) != otherToken.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Append token at supplied index, with its delimiters, to supplied buffer
+	 */
+	public void appendFullString(int index, StringBuffer sb) {
+		TokenTable table = getTokenTable();
+		if (mappedText != null) {
+			sb.append(fullSequence(index));
+		}
+		else {
+			sb.append(text, table.beginDelimStarts[index], table.endDelimEnds[index]);
+		}
+	}
+
 	public int tokensCount() {
-		return textTokens.length;
+		return getTokenTable().size;
 	}
 
+	/**
+	 * Return text of this source. For a memory-mapped source, whole text is decoded on each call.
+	 */
 	public String getText() {
+		if (mappedText != null) {
+			return textRegion(0, mappedText.limit());
+		}
 		return text;
 	}
 
@@ -461,10 +878,9 @@ public class DiffSource {
 
 	public String extractText(int beginIndex, int endIndex) {
 		StringBuffer returned = new StringBuffer();
-		for (int i = beginIndex; i <= endIndex; i++) {
-			if (i >= 0 && i < textTokens.length) {
-				returned.append(textTokens[i].getFullString());
-			}
+		int count = tokensCount();
+		for (int i = Math.max(beginIndex, 0); i <= endIndex && i < count; i++) {
+			appendFullString(i, returned);
 		}
 		return returned.toString();
 	}
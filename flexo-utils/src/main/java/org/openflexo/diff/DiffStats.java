@@ -0,0 +1,173 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+/**
+ * Statistics of the differences between two token sequences: number of changes of each kind, number of deleted and inserted tokens,
+ * similarity ratio. Statistics are computed directly from the comparison, without building any script or report (see
+ * {@link ComputeDiff#stats(DiffSource, DiffSource, double)}).<br>
+ * 
+ * When a maximal cost was supplied and is exceeded, comparison is abandoned: statistics are then marked as exceeded, change counts are
+ * unknown (-1), cost is a lower bound and similarity an upper bound.
+ */
+public final class DiffStats {
+
+	private final int size0, size1;
+	private final int additions, removals, modifications;
+	private final int deleted, inserted;
+	private final boolean minimal;
+	private final boolean exceeded;
+
+	DiffStats(int size0, int size1, int additions, int removals, int modifications, int deleted, int inserted, boolean minimal) {
+		this(size0, size1, additions, removals, modifications, deleted, inserted, minimal, false);
+	}
+
+	private DiffStats(int size0, int size1, int additions, int removals, int modifications, int deleted, int inserted, boolean minimal,
+			boolean exceeded) {
+		this.size0 = size0;
+		this.size1 = size1;
+		this.additions = additions;
+		this.removals = removals;
+		this.modifications = modifications;
+		this.deleted = deleted;
+		this.inserted = inserted;
+		this.minimal = minimal;
+		this.exceeded = exceeded;
+	}
+
+	/**
+	 * Build statistics of a comparison abandoned because its cost exceeded maxCost
+	 */
+	static DiffStats exceeded(int size0, int size1, int maxCost) {
+		// Cost is at least maxCost+1: split it evenly, as far as sizes allow
+		int cost = maxCost + 1;
+		int deleted = Math.min(size0, Math.max(cost - size1, cost / 2));
+		return new DiffStats(size0, size1, -1, -1, -1, deleted, Math.min(size1, cost - deleted), false, true);
+	}
+
+	/**
+	 * Return number of tokens of first sequence
+	 */
+	public int getSize0() {
+		return size0;
+	}
+
+	/**
+	 * Return number of tokens of second sequence
+	 */
+	public int getSize1() {
+		return size1;
+	}
+
+	public int getAdditionChangeCount() {
+		return additions;
+	}
+
+	public int getRemovalChangeCount() {
+		return removals;
+	}
+
+	public int getModificationChangeCount() {
+		return modifications;
+	}
+
+	/**
+	 * Return number of changes, or -1 if maximal cost was exceeded
+	 */
+	public int getChangeCount() {
+		return exceeded ? -1 : additions + removals + modifications;
+	}
+
+	/**
+	 * Return number of tokens of first sequence deleted by changes
+	 */
+	public int getDeletedCount() {
+		return deleted;
+	}
+
+	/**
+	 * Return number of tokens of second sequence inserted by changes
+	 */
+	public int getInsertedCount() {
+		return inserted;
+	}
+
+	/**
+	 * Return number of deleted and inserted tokens
+	 */
+	public int getCost() {
+		return deleted + inserted;
+	}
+
+	/**
+	 * Return similarity ratio, between 0 (nothing in common) and 1 (identical sequences): number of unchanged tokens in both sequences,
+	 * divided by their total number of tokens
+	 */
+	public double getSimilarity() {
+		if (size0 + size1 == 0) {
+			return 1.0;
+		}
+		return 1.0 - (double) getCost() / (size0 + size1);
+	}
+
+	/**
+	 * Return true when statistics come from a minimal edit script
+	 */
+	public boolean isMinimal() {
+		return minimal;
+	}
+
+	/**
+	 * Return true when maximal cost was exceeded, and comparison abandoned
+	 */
+	public boolean isExceeded() {
+		return exceeded;
+	}
+
+	@Override
+	public String toString() {
+		if (exceeded) {
+			return "DiffStats: more than " + (getCost() - 1) + " changed tokens out of " + size0 + "/" + size1;
+		}
+		return "DiffStats: " + additions + " additions, " + removals + " removals, " + modifications + " modifications, " + deleted
+				+ " deleted and " + inserted + " inserted tokens out of " + size0 + "/" + size1;
+	}
+
+}
@@ -0,0 +1,125 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+/**
+ * A comparison running asynchronously, which can be followed and cancelled.<br>
+ * 
+ * Result is available through {@link #getFuture()}. Cancelling the task, or its future, stops the computation at its next check of the
+ * {@link DiffMonitor} of the task: the future then completes with a {@link java.util.concurrent.CancellationException}, and the scratch
+ * memory of the computation is released as the exception unwinds.
+ */
+public class DiffTask<T> {
+
+	private final DiffMonitor monitor;
+	private final CompletableFuture<T> future = new CompletableFuture<>();
+
+	/**
+	 * Submit supplied computation to supplied executor. Computation is expected to check supplied monitor regularly.
+	 */
+	protected DiffTask(Function<DiffMonitor, T> computation, DiffMonitor.ProgressListener listener, Executor executor) {
+		monitor = new DiffMonitor(listener);
+		future.whenComplete((result, exception) -> {
+			if (future.isCancelled()) {
+				monitor.cancel();
+			}
+		});
+		executor.execute(() -> {
+			if (future.isDone()) {
+				// Cancelled before being started
+				return;
+			}
+			try {
+				T result = computation.apply(monitor);
+				monitor.done();
+				future.complete(result);
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+	}
+
+	/**
+	 * Compare two sources with supplied algorithm, in the common {@link ForkJoinPool}
+	 */
+	public static DiffTask<DiffReport> diff(DiffSource source, DiffSource anOtherSource, DiffAlgorithm algorithm) {
+		return diff(source, anOtherSource, algorithm, null, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Compare two sources with supplied algorithm in supplied executor, reporting progress to supplied listener (which may be null)
+	 */
+	public static DiffTask<DiffReport> diff(final DiffSource source, final DiffSource anOtherSource, final DiffAlgorithm algorithm,
+			DiffMonitor.ProgressListener listener, Executor executor) {
+		return new DiffTask<>(monitor -> ComputeDiff.diff(source, anOtherSource, algorithm, monitor), listener, executor);
+	}
+
+	public CompletableFuture<T> getFuture() {
+		return future;
+	}
+
+	public DiffMonitor getMonitor() {
+		return monitor;
+	}
+
+	/**
+	 * Cancel this task. Return false if the task was already completed.
+	 */
+	public boolean cancel() {
+		monitor.cancel();
+		return future.cancel(false);
+	}
+
+	public boolean isCancelled() {
+		return future.isCancelled();
+	}
+
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+}
@@ -0,0 +1,164 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+
+/**
+ * Scratch buffers of a {@link Diff}: vectors of each file, diagonals and counters. Buffers only grow, so that a workspace reused across
+ * comparisons (see {@link DiffEngine}) stops allocating once it has seen its largest inputs. A workspace serves one comparison at a time.
+ */
+final class DiffWorkspace {
+
+	private final int[][] undiscarded = new int[2][];
+	private final int[][] realindexes = new int[2][];
+	private final boolean[][] changed = new boolean[2][];
+	private byte[] discards;
+	private int[] equivCounts;
+	private int[] fdiag, bdiag;
+	private BitParallelDiff kernel;
+	private final int[] matches0 = new int[BitParallelDiff.MAX_PATTERN_LENGTH];
+	private final int[] matches1 = new int[BitParallelDiff.MAX_PATTERN_LENGTH];
+
+	DiffWorkspace() {
+		for (int file = 0; file < 2; file++) {
+			undiscarded[file] = new int[0];
+			realindexes[file] = new int[0];
+			changed[file] = new boolean[0];
+		}
+		discards = new byte[0];
+		equivCounts = new int[0];
+		fdiag = new int[0];
+		bdiag = new int[0];
+	}
+
+	private static int grow(int length, int required) {
+		return Math.max(required, length * 2);
+	}
+
+	int[] undiscarded(int file, int size) {
+		if (undiscarded[file].length < size) {
+			undiscarded[file] = new int[grow(undiscarded[file].length, size)];
+		}
+		return undiscarded[file];
+	}
+
+	int[] realindexes(int file, int size) {
+		if (realindexes[file].length < size) {
+			realindexes[file] = new int[grow(realindexes[file].length, size)];
+		}
+		return realindexes[file];
+	}
+
+	/**
+	 * Return a flag array of at least supplied size, whose size first flags are false
+	 */
+	boolean[] changed(int file, int size) {
+		if (changed[file].length < size) {
+			changed[file] = new boolean[grow(changed[file].length, size)];
+		}
+		else {
+			Arrays.fill(changed[file], 0, size, false);
+		}
+		return changed[file];
+	}
+
+	/**
+	 * Return a byte array of at least supplied size, whose size first values are 0
+	 */
+	byte[] discards(int size) {
+		if (discards.length < size) {
+			discards = new byte[grow(discards.length, size)];
+		}
+		else {
+			Arrays.fill(discards, 0, size, (byte) 0);
+		}
+		return discards;
+	}
+
+	/**
+	 * Return an int array of at least supplied size, whose size first values are 0
+	 */
+	int[] equivCounts(int size) {
+		if (equivCounts.length < size) {
+			equivCounts = new int[grow(equivCounts.length, size)];
+		}
+		else {
+			Arrays.fill(equivCounts, 0, size, 0);
+		}
+		return equivCounts;
+	}
+
+	/**
+	 * Return forward diagonals: values are not initialized, since the search of a midpoint writes each diagonal before reading it
+	 */
+	int[] fdiag(int size) {
+		if (fdiag.length < size) {
+			fdiag = new int[grow(fdiag.length, size)];
+		}
+		return fdiag;
+	}
+
+	/**
+	 * Return backward diagonals (see {@link #fdiag(int)})
+	 */
+	int[] bdiag(int size) {
+		if (bdiag.length < size) {
+			bdiag = new int[grow(bdiag.length, size)];
+		}
+		return bdiag;
+	}
+
+	BitParallelDiff kernel() {
+		if (kernel == null) {
+			kernel = new BitParallelDiff();
+		}
+		return kernel;
+	}
+
+	int[] matches0() {
+		return matches0;
+	}
+
+	int[] matches1() {
+		return matches1;
+	}
+
+}
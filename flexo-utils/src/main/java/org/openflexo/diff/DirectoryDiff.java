@@ -0,0 +1,319 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.openflexo.diff.ComputeDiff.DiffReport;
+import org.openflexo.toolbox.FileFormat;
+import org.openflexo.toolbox.FileFormat.TextFileFormat;
+
+/**
+ * Compare two directory trees.<br>
+ * 
+ * Files of both trees are paired by relative path. Files of a pair having the same size are hashed (concurrently with other pairs), and
+ * skipped when their hashes are equal. Remaining text files are compared in a {@link ForkJoinPool}, each with the
+ * {@link DelimitingMethod} matching its {@link FileFormat}, as memory-mapped {@link DiffSource}s. Results are sent to a consumer as soon
+ * as they are available, one {@link FileDiff} per different file: calls to the consumer are serialized, but are not ordered.
+ */
+public class DirectoryDiff {
+
+	public enum Status {
+		ADDED, REMOVED, MODIFIED
+	}
+
+	/**
+	 * Differences of a file between the two compared trees
+	 */
+	public static class FileDiff {
+		private final String path;
+		private final File file0;
+		private final File file1;
+		private final Status status;
+		private final DiffReport report;
+
+		protected FileDiff(String path, File file0, File file1, Status status, DiffReport report) {
+			this.path = path;
+			this.file0 = file0;
+			this.file1 = file1;
+			this.status = status;
+			this.report = report;
+		}
+
+		/**
+		 * Return path of the file, relative to the compared directories, with '/' as separator
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * Return file in first tree, or null if file was added
+		 */
+		public File getFile0() {
+			return file0;
+		}
+
+		/**
+		 * Return file in second tree, or null if file was removed
+		 */
+		public File getFile1() {
+			return file1;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * Return differences between both versions of a modified text file, or null for a binary, added or removed file
+		 */
+		public DiffReport getReport() {
+			return report;
+		}
+
+		public boolean isBinary() {
+			return status == Status.MODIFIED && report == null;
+		}
+
+		@Override
+		public String toString() {
+			return status + " " + path + (report != null ? " (" + report.getChanges().size() + " changes)" : "");
+		}
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/* Number of bytes searched for a NUL character to recognize a binary file of unknown format */
+	private static final int BINARY_SNIFF_LENGTH = 8000;
+
+	private final File directory0;
+	private final File directory1;
+	private final DiffAlgorithm algorithm;
+	private final Charset charset;
+	private final ForkJoinPool pool;
+
+	public DirectoryDiff(File directory0, File directory1) {
+		this(directory0, directory1, DiffAlgorithm.MYERS, Charset.forName("UTF-8"), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Build a diff of supplied trees, comparing text files with supplied algorithm and charset (which must be ASCII-compatible, see
+	 * {@link DiffSource#DiffSource(File, DelimitingMethod, Charset)}), in supplied pool
+	 */
+	public DirectoryDiff(File directory0, File directory1, DiffAlgorithm algorithm, Charset charset, ForkJoinPool pool) {
+		this.directory0 = directory0;
+		this.directory1 = directory1;
+		this.algorithm = algorithm;
+		this.charset = charset;
+		this.pool = pool;
+	}
+
+	public File getDirectory0() {
+		return directory0;
+	}
+
+	public File getDirectory1() {
+		return directory1;
+	}
+
+	/**
+	 * Compare both trees, and return differences ordered by path
+	 */
+	public List<FileDiff> compare() throws IOException {
+		List<FileDiff> returned = new ArrayList<>();
+		compare(returned::add);
+		returned.sort((d1, d2) -> d1.getPath().compareTo(d2.getPath()));
+		return returned;
+	}
+
+	/**
+	 * Compare both trees, sending differences of each different file to supplied consumer. Returns once all files were compared.
+	 */
+	public void compare(final Consumer<? super FileDiff> consumer) throws IOException {
+		SortedMap<String, File> files0 = listFiles(directory0);
+		SortedMap<String, File> files1 = listFiles(directory1);
+		TreeSet<String> paths = new TreeSet<>(files0.keySet());
+		paths.addAll(files1.keySet());
+		final Object lock = new Object();
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		for (final String path : paths) {
+			final File file0 = files0.get(path);
+			final File file1 = files1.get(path);
+			if (file0 == null || file1 == null) {
+				synchronized (lock) {
+					consumer.accept(new FileDiff(path, file0, file1, file0 == null ? Status.ADDED : Status.REMOVED, null));
+				}
+			}
+			else {
+				tasks.add(pool.submit(() -> {
+					FileDiff diff = compareFiles(path, file0, file1);
+					if (diff != null) {
+						synchronized (lock) {
+							consumer.accept(diff);
+						}
+					}
+				}));
+			}
+		}
+		try {
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Compare two versions of a file, and return their differences, or null if they are identical
+	 */
+	protected FileDiff compareFiles(String path, File file0, File file1) {
+		try {
+			if (file0.length() == file1.length() && Arrays.equals(digest(file0), digest(file1))) {
+				return null;
+			}
+			DelimitingMethod method = getDelimitingMethod(path, file0, file1);
+			if (method == null) {
+				return new FileDiff(path, file0, file1, Status.MODIFIED, null);
+			}
+			DiffSource source0 = new DiffSource(file0, method, charset);
+			DiffSource source1 = new DiffSource(file1, method, charset);
+			return new FileDiff(path, file0, file1, Status.MODIFIED, DiffEngine.forCurrentThread().diff(source0, source1, algorithm));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Return method used to tokenize a text file, or null for a binary file. Method is chosen from the {@link FileFormat} registered for
+	 * the extension of the file. Files of unknown format are compared as lines, unless they contain a NUL character.
+	 */
+	protected DelimitingMethod getDelimitingMethod(String path, File file0, File file1) throws IOException {
+		int dot = path.lastIndexOf('.');
+		FileFormat format = FileFormat.getDefaultFileFormatByExtension(dot > path.lastIndexOf('/') ? path.substring(dot + 1) : "");
+		if (format instanceof TextFileFormat) {
+			switch (((TextFileFormat) format).getSyntax()) {
+			case Java:
+				return DelimitingMethod.JAVA;
+			case XML:
+				return DelimitingMethod.XML;
+			case HTML:
+				return DelimitingMethod.HTML;
+			case PList:
+				return DelimitingMethod.PLIST;
+			case Latex:
+				return DelimitingMethod.TEX;
+			case SQL:
+				return DelimitingMethod.SQL;
+			default:
+				return DelimitingMethod.LINES;
+			}
+		}
+		if (FileFormat.isUnknown(format) && !containsNul(file0) && !containsNul(file1)) {
+			return DelimitingMethod.LINES;
+		}
+		return null;
+	}
+
+	private static SortedMap<String, File> listFiles(File directory) throws IOException {
+		final Path root = directory.toPath();
+		SortedMap<String, File> returned = new TreeMap<>();
+		try (Stream<Path> paths = Files.walk(root)) {
+			paths.filter(Files::isRegularFile).forEach(
+					path -> returned.put(root.relativize(path).toString().replace(File.separatorChar, '/'), path.toFile()));
+		}
+		return returned;
+	}
+
+	private static byte[] digest(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		return digest.digest();
+	}
+
+	private static boolean containsNul(File file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BINARY_SNIFF_LENGTH);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// Fill buffer
+			}
+		}
+		for (int i = 0; i < buffer.position(); i++) {
+			if (buffer.get(i) == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
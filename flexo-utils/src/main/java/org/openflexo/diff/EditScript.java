@@ -0,0 +1,220 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+/**
+ * Compact edit script: changes are stored in a single int array, as quadruples (line0, line1, deleted, inserted) with the same meaning
+ * as the fields of {@link Diff.change}, in forward order.<br>
+ * 
+ * Changes are accessed by index, searched by line with a binary search, or visited without any allocation. An edit script is immutable,
+ * and is converted to a linked {@link Diff.change} script or to a {@link DiffReport} only on demand.
+ */
+public final class EditScript {
+
+	/**
+	 * Receive each change of an edit script (see {@link EditScript#forEach(Visitor)})
+	 */
+	@FunctionalInterface
+	public interface Visitor {
+		public void visit(int line0, int line1, int deleted, int inserted);
+	}
+
+	private final int[] data;
+	private final int size;
+	private final boolean minimal;
+
+	EditScript(int[] data, int size, boolean minimal) {
+		this.data = data;
+		this.size = size;
+		this.minimal = minimal;
+	}
+
+	/**
+	 * Build a compact copy of supplied linked script
+	 */
+	public static EditScript of(Diff.change script, boolean minimal) {
+		int size = 0;
+		for (Diff.change c = script; c != null; c = c.link) {
+			size++;
+		}
+		int[] data = new int[4 * size];
+		int i = 0;
+		for (Diff.change c = script; c != null; c = c.link) {
+			data[i++] = c.line0;
+			data[i++] = c.line1;
+			data[i++] = c.deleted;
+			data[i++] = c.inserted;
+		}
+		return new EditScript(data, size, minimal);
+	}
+
+	/**
+	 * Return number of changes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return true when this script is guaranteed to be minimal
+	 */
+	public boolean isMinimal() {
+		return minimal;
+	}
+
+	public int getLine0(int index) {
+		return data[4 * checkIndex(index)];
+	}
+
+	public int getLine1(int index) {
+		return data[4 * checkIndex(index) + 1];
+	}
+
+	public int getDeleted(int index) {
+		return data[4 * checkIndex(index) + 2];
+	}
+
+	public int getInserted(int index) {
+		return data[4 * checkIndex(index) + 3];
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return index;
+	}
+
+	/**
+	 * Search change deleting supplied line of file 0. Return its index if found; otherwise return (-(insertion point) - 1), where
+	 * insertion point is the index of the first change located after this line.
+	 */
+	public int search0(int line) {
+		return search(0, line);
+	}
+
+	/**
+	 * Search change inserting supplied line of file 1. Return its index if found; otherwise return (-(insertion point) - 1), where
+	 * insertion point is the index of the first change located after this line.
+	 */
+	public int search1(int line) {
+		return search(1, line);
+	}
+
+	private int search(int file, int line) {
+		// Find last change starting at or before line: changes are sorted, and separated by at least one unchanged line
+		int low = 0, high = size - 1;
+		while (low <= high) {
+			int middle = low + high >>> 1;
+			if (data[4 * middle + file] <= line) {
+				low = middle + 1;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		int last = low - 1;
+		if (last >= 0 && line < data[4 * last + file] + data[4 * last + 2 + file]) {
+			return last;
+		}
+		return -(last + 1) - 1;
+	}
+
+	/**
+	 * Visit each change, in order
+	 */
+	public void forEach(Visitor visitor) {
+		for (int i = 0; i < 4 * size; i += 4) {
+			visitor.visit(data[i], data[i + 1], data[i + 2], data[i + 3]);
+		}
+	}
+
+	/**
+	 * Return total number of deleted lines
+	 */
+	public int getDeletedCount() {
+		int returned = 0;
+		for (int i = 2; i < 4 * size; i += 4) {
+			returned += data[i];
+		}
+		return returned;
+	}
+
+	/**
+	 * Return total number of inserted lines
+	 */
+	public int getInsertedCount() {
+		int returned = 0;
+		for (int i = 3; i < 4 * size; i += 4) {
+			returned += data[i];
+		}
+		return returned;
+	}
+
+	/**
+	 * Build equivalent linked script
+	 */
+	public Diff.change toChangeList() {
+		Diff.change returned = null;
+		for (int i = 4 * (size - 1); i >= 0; i -= 4) {
+			returned = new Diff.change(data[i], data[i + 1], data[i + 2], data[i + 3], returned);
+		}
+		return returned;
+	}
+
+	/**
+	 * Build the report describing this script, between supplied sources
+	 */
+	public DiffReport toDiffReport(DiffSource source0, DiffSource source1) {
+		return ComputeDiff.buildReport(toChangeList(), source0, source1, minimal);
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer returned = new StringBuffer();
+		for (int i = 0; i < 4 * size; i += 4) {
+			returned.append(data[i] + "," + data[i + 2] + " " + data[i + 1] + "," + data[i + 3] + "\n");
+		}
+		return returned.toString();
+	}
+
+}
@@ -0,0 +1,860 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+/**
+ * Compare two text files line by line, with a heap usage bounded by <code>maxLinesInMemory</code> and not depending on the size of the
+ * files.<br>
+ * 
+ * Both files are streamed once and the 64 bits hash of each line is written to a temporary file. Hashes are then sorted on disk (sorted
+ * runs of at most <code>maxLinesInMemory</code> records, merged afterwards) so that lines appearing exactly once in each file are found:
+ * those lines are the anchors of the comparison. Longest sequence of anchors appearing in the same order in both files is kept (computed
+ * by blocks of <code>maxLinesInMemory</code> anchors), and only windows of lines between two consecutive anchors are compared in memory,
+ * by the {@link DiffEngine} of current thread. A window larger than <code>maxLinesInMemory</code> lines is reported as a single change.<br>
+ * 
+ * Lines are split exactly as the tokens of {@link DelimitingMethod#LINES}, and compared through their hashes. Charset must encode line
+ * delimiters as single ASCII bytes.
+ */
+public final class ExternalDiff {
+
+	public static final int DEFAULT_MAX_LINES_IN_MEMORY = 1 << 20;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/* Sort records are a long key followed by an int value */
+	private static final int RECORD_SIZE = 12;
+
+	private final File file0;
+	private final File file1;
+	private final Charset charset;
+	private final File tempDirectory;
+	private final int maxLinesInMemory;
+	private DiffAlgorithm algorithm = DiffAlgorithm.MYERS;
+
+	private int lineCount0 = -1;
+	private int lineCount1 = -1;
+	/* True when all windows were compared with a minimal script */
+	private boolean windowsMinimal;
+	/* True when at least one anchor was kept */
+	private boolean anchored;
+	/* True when at least one change was found */
+	private boolean changed;
+
+	public ExternalDiff(File file0, File file1, Charset charset) {
+		this(file0, file1, charset, null, DEFAULT_MAX_LINES_IN_MEMORY);
+	}
+
+	/**
+	 * Build a comparison of supplied files, storing temporary files in supplied directory (default temporary directory when null), and
+	 * keeping at most <code>maxLinesInMemory</code> lines or anchors in memory at a time
+	 */
+	public ExternalDiff(File file0, File file1, Charset charset, File tempDirectory, int maxLinesInMemory) {
+		if (maxLinesInMemory < 2) {
+			throw new IllegalArgumentException("At least two lines must be kept in memory");
+		}
+		DiffSource.checkMappable(DelimitingMethod.LINES, charset);
+		this.file0 = file0;
+		this.file1 = file1;
+		this.charset = charset;
+		this.tempDirectory = tempDirectory;
+		this.maxLinesInMemory = maxLinesInMemory;
+	}
+
+	/**
+	 * Set algorithm used to compare windows between anchors
+	 */
+	public void setAlgorithm(DiffAlgorithm algorithm) {
+		this.algorithm = algorithm;
+	}
+
+	/**
+	 * Return the number of lines of first file, or -1 when files were not compared yet
+	 */
+	public int getLineCount0() {
+		return lineCount0;
+	}
+
+	/**
+	 * Return the number of lines of second file, or -1 when files were not compared yet
+	 */
+	public int getLineCount1() {
+		return lineCount1;
+	}
+
+	/**
+	 * Return true when the whole script of last comparison is guaranteed to be minimal. Since anchors are considered unchanged, this is
+	 * only the case when files are equal, or when no anchor was kept and the only window was compared with a minimal script.
+	 */
+	public boolean isMinimal() {
+		return windowsMinimal && !(anchored && changed);
+	}
+
+	/**
+	 * Return true when last comparison compared all windows between anchors with a minimal script (no window was too large to be
+	 * compared). Note that the whole script might still not be minimal (see {@link #isMinimal()}).
+	 */
+	public boolean areWindowsMinimal() {
+		return windowsMinimal;
+	}
+
+	/**
+	 * Compare files and send changes to supplied visitor, in forward order, as they are computed
+	 */
+	public void diff(EditScript.Visitor visitor) throws IOException {
+		List<Path> temporaryFiles = new ArrayList<>();
+		try {
+			windowsMinimal = true;
+			anchored = false;
+			changed = false;
+			Path hashes0 = createTempFile(temporaryFiles);
+			Path hashes1 = createTempFile(temporaryFiles);
+			lineCount0 = hashLines(file0, hashes0);
+			lineCount1 = hashLines(file1, hashes1);
+			try (HashReader reader0 = new HashReader(hashes0); HashReader reader1 = new HashReader(hashes1)) {
+				RecordSource lines = new Concatenation(reader0.records(false), reader1.records(true));
+				try (MergeCursor sortedLines = sort(lines, (long) lineCount0 + lineCount1, temporaryFiles);
+						MergeCursor anchors = sort(new AnchorSource(sortedLines), Math.min(lineCount0, lineCount1), temporaryFiles)) {
+					visitAnchors(anchors, reader0, reader1, (line0, line1, deleted, inserted) -> {
+						changed = true;
+						visitor.visit(line0, line1, deleted, inserted);
+					});
+				}
+			}
+		} finally {
+			for (Path path : temporaryFiles) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	/**
+	 * Compare files and return the compact edit script. Memory used by the script grows with the number of changes.
+	 */
+	public EditScript editScript() throws IOException {
+		int[][] data = { new int[64] };
+		int[] size = { 0 };
+		diff((line0, line1, deleted, inserted) -> {
+			if (4 * size[0] + 4 > data[0].length) {
+				int[] grown = new int[2 * data[0].length];
+				System.arraycopy(data[0], 0, grown, 0, data[0].length);
+				data[0] = grown;
+			}
+			int i = 4 * size[0]++;
+			data[0][i] = line0;
+			data[0][i + 1] = line1;
+			data[0][i + 2] = deleted;
+			data[0][i + 3] = inserted;
+		});
+		return new EditScript(data[0], size[0], isMinimal());
+	}
+
+	/**
+	 * Compare files and return the differences as a {@link DiffReport} built on memory-mapped sources. Unlike other methods, the report
+	 * keeps the position of each line of both files in memory.
+	 */
+	public DiffReport toDiffReport() throws IOException {
+		EditScript script = editScript();
+		return script.toDiffReport(new DiffSource(file0, DelimitingMethod.LINES, charset),
+				new DiffSource(file1, DelimitingMethod.LINES, charset));
+	}
+
+	/**
+	 * Compare files and stream differences to supplied writer, in the unified format. Lines of both files are read again while printing,
+	 * sequentially. Return true when files differ.
+	 */
+	public boolean writeUnified(Writer out, String name0, String name1) throws IOException {
+		try (LineReader lines0 = new LineReader(file0.toPath(), charset); LineReader lines1 = new LineReader(file1.toPath(), charset)) {
+			DiffPrint.UnifiedPrint printer = new DiffPrint.UnifiedPrint((Object[]) null, (Object[]) null, out) {
+				@Override
+				protected Object line0(int i) {
+					return lines0.line(i);
+				}
+
+				@Override
+				protected Object line1(int i) {
+					return lines1.line(i);
+				}
+
+				@Override
+				protected int lines0() {
+					return lineCount0;
+				}
+
+				@Override
+				protected int lines1() {
+					return lineCount1;
+				}
+			};
+			boolean[] differ = { false };
+			try {
+				diff((line0, line1, deleted, inserted) -> {
+					if (!differ[0]) {
+						printer.print_header(name0, name1);
+						differ[0] = true;
+					}
+					printer.print_change(line0, line1, deleted, inserted);
+				});
+				printer.finish();
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			if (printer.outfile.checkError()) {
+				throw new IOException("Unable to write differences between " + name0 + " and " + name1);
+			}
+			return differ[0];
+		}
+	}
+
+	private Path createTempFile(List<Path> temporaryFiles) throws IOException {
+		Path returned = tempDirectory != null ? Files.createTempFile(tempDirectory.toPath(), "ExternalDiff", ".tmp")
+				: Files.createTempFile("ExternalDiff", ".tmp");
+		temporaryFiles.add(returned);
+		return returned;
+	}
+
+	/**
+	 * Write the hash of each line of supplied file to supplied path, and return the number of lines
+	 */
+	private static int hashLines(File file, Path hashes) throws IOException {
+		long count = 0;
+		try (LineScanner scanner = new LineScanner(file.toPath()); Output out = new Output(hashes)) {
+			while (scanner.next(false)) {
+				out.putLong(scanner.hash);
+				count++;
+			}
+		}
+		if (count > Integer.MAX_VALUE) {
+			throw new IOException("File " + file + " has too many lines (" + count + ")");
+		}
+		return (int) count;
+	}
+
+	/**
+	 * Sort records of supplied source by unsigned key: records are sorted in memory by runs of at most <code>maxLinesInMemory</code>
+	 * records, written to a temporary file, and merged while read from the returned cursor
+	 */
+	private MergeCursor sort(RecordSource source, long expectedSize, List<Path> temporaryFiles) throws IOException {
+		Path runsFile = createTempFile(temporaryFiles);
+		int runLength = (int) Math.max(1, Math.min(maxLinesInMemory, expectedSize));
+		long[] keys = new long[runLength];
+		int[] values = new int[runLength];
+		long[] sortedKeys = new long[runLength];
+		int[] sortedValues = new int[runLength];
+		List<long[]> runs = new ArrayList<>();
+		long records = 0;
+		try (Output out = new Output(runsFile)) {
+			int n;
+			while ((n = fill(source, keys, values)) > 0) {
+				radixSort(keys, values, sortedKeys, sortedValues, n);
+				for (int i = 0; i < n; i++) {
+					out.putLong(keys[i]);
+					out.putInt(values[i]);
+				}
+				runs.add(new long[] { records * RECORD_SIZE, n });
+				records += n;
+			}
+		}
+		return new MergeCursor(runsFile, runs);
+	}
+
+	private static int fill(RecordSource source, long[] keys, int[] values) throws IOException {
+		int n = 0;
+		while (n < keys.length && source.next()) {
+			keys[n] = source.key();
+			values[n] = source.value();
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Stable LSD radix sort of the first n records, by unsigned key, one byte at a time. Passes on a byte shared by all keys are skipped.
+	 */
+	private static void radixSort(long[] keys, int[] values, long[] tmpKeys, int[] tmpValues, int n) {
+		int[] counts = new int[257];
+		long[] srcKeys = keys, dstKeys = tmpKeys;
+		int[] srcValues = values, dstValues = tmpValues;
+		for (int shift = 0; shift < 64; shift += 8) {
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < n; i++) {
+				counts[(int) (srcKeys[i] >>> shift & 0xFF) + 1]++;
+			}
+			if (counts[(int) (srcKeys[0] >>> shift & 0xFF) + 1] == n) {
+				continue;
+			}
+			for (int i = 1; i < 257; i++) {
+				counts[i] += counts[i - 1];
+			}
+			for (int i = 0; i < n; i++) {
+				int j = counts[(int) (srcKeys[i] >>> shift & 0xFF)]++;
+				dstKeys[j] = srcKeys[i];
+				dstValues[j] = srcValues[i];
+			}
+			long[] k = srcKeys;
+			srcKeys = dstKeys;
+			dstKeys = k;
+			int[] v = srcValues;
+			srcValues = dstValues;
+			dstValues = v;
+		}
+		if (srcKeys != keys) {
+			System.arraycopy(srcKeys, 0, keys, 0, n);
+			System.arraycopy(srcValues, 0, values, 0, n);
+		}
+	}
+
+	/**
+	 * Read anchors sorted by line of first file by blocks, keep longest sequence of each block also increasing in second file, and visit
+	 * windows between kept anchors
+	 */
+	private void visitAnchors(RecordSource anchors, HashReader hashes0, HashReader hashes1, EditScript.Visitor visitor) throws IOException {
+		int blockLength = Math.max(1, Math.min(maxLinesInMemory, Math.min(lineCount0, lineCount1)));
+		int[] block0 = new int[blockLength];
+		int[] block1 = new int[blockLength];
+		int[] tails = new int[blockLength];
+		int[] previous = new int[blockLength];
+		int last0 = -1;
+		int last1 = -1;
+		boolean more = true;
+		while (more) {
+			int n = 0;
+			while (n < blockLength && (more = anchors.next())) {
+				if (anchors.value() > last1) {
+					block0[n] = (int) anchors.key();
+					block1[n] = anchors.value();
+					n++;
+				}
+			}
+			// Patience sorting: tails[k] is the block index ending the best increasing sequence of length k + 1
+			int length = 0;
+			for (int i = 0; i < n; i++) {
+				int low = 0;
+				int high = length;
+				while (low < high) {
+					int middle = (low + high) >>> 1;
+					if (block1[tails[middle]] < block1[i]) {
+						low = middle + 1;
+					}
+					else {
+						high = middle;
+					}
+				}
+				previous[i] = low > 0 ? tails[low - 1] : -1;
+				tails[low] = i;
+				if (low == length) {
+					length++;
+				}
+			}
+			// Reuse tails to store the sequence in forward order
+			for (int k = length - 1, i = length > 0 ? tails[length - 1] : -1; k >= 0; k--, i = previous[i]) {
+				tails[k] = i;
+			}
+			for (int k = 0; k < length; k++) {
+				int anchor0 = block0[tails[k]];
+				int anchor1 = block1[tails[k]];
+				visitWindow(hashes0, hashes1, last0 + 1, anchor0, last1 + 1, anchor1, visitor);
+				anchored = true;
+				last0 = anchor0;
+				last1 = anchor1;
+			}
+		}
+		visitWindow(hashes0, hashes1, last0 + 1, lineCount0, last1 + 1, lineCount1, visitor);
+	}
+
+	private void visitWindow(HashReader hashes0, HashReader hashes1, int start0, int end0, int start1, int end1, EditScript.Visitor visitor)
+			throws IOException {
+		int length0 = end0 - start0;
+		int length1 = end1 - start1;
+		if (length0 == 0 && length1 == 0) {
+			return;
+		}
+		if (length0 == 0 || length1 == 0) {
+			visitor.visit(start0, start1, length0, length1);
+			return;
+		}
+		if ((long) length0 + length1 > maxLinesInMemory) {
+			windowsMinimal = false;
+			visitor.visit(start0, start1, length0, length1);
+			return;
+		}
+		EditScript script = DiffEngine.forCurrentThread().editScript(hashes0.read(start0, length0), hashes1.read(start1, length1), algorithm);
+		if (!script.isMinimal()) {
+			windowsMinimal = false;
+		}
+		script.forEach((line0, line1, deleted, inserted) -> visitor.visit(start0 + line0, start1 + line1, deleted, inserted));
+	}
+
+	/**
+	 * A stream of records, read one at a time
+	 */
+	private interface RecordSource {
+		/**
+		 * Move to next record, and return false when there is none
+		 */
+		public boolean next() throws IOException;
+
+		public long key();
+
+		public int value();
+	}
+
+	private static class Concatenation implements RecordSource {
+		private final RecordSource first;
+		private final RecordSource second;
+		private RecordSource current;
+
+		Concatenation(RecordSource first, RecordSource second) {
+			this.first = first;
+			this.second = second;
+			current = first;
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			if (current == first && first.next()) {
+				return true;
+			}
+			current = second;
+			return second.next();
+		}
+
+		@Override
+		public long key() {
+			return current.key();
+		}
+
+		@Override
+		public int value() {
+			return current.value();
+		}
+	}
+
+	/**
+	 * Turn records (hash, line of first file or complement of line of second file) sorted by hash into anchors (line of first file, line
+	 * of second file), for hashes found exactly once in each file
+	 */
+	private static class AnchorSource implements RecordSource {
+		private final RecordSource sortedLines;
+		private boolean started;
+		private boolean exhausted;
+		private int line0;
+		private int line1;
+
+		AnchorSource(RecordSource sortedLines) {
+			this.sortedLines = sortedLines;
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			if (!started) {
+				exhausted = !sortedLines.next();
+				started = true;
+			}
+			while (!exhausted) {
+				long hash = sortedLines.key();
+				int count0 = 0;
+				int count1 = 0;
+				do {
+					int value = sortedLines.value();
+					if (value >= 0) {
+						count0++;
+						line0 = value;
+					}
+					else {
+						count1++;
+						line1 = ~value;
+					}
+					exhausted = !sortedLines.next();
+				} while (!exhausted && sortedLines.key() == hash);
+				if (count0 == 1 && count1 == 1) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public long key() {
+			return line0;
+		}
+
+		@Override
+		public int value() {
+			return line1;
+		}
+	}
+
+	/**
+	 * Merge sorted runs of a temporary file
+	 */
+	private static class MergeCursor implements RecordSource, Closeable {
+		private final FileChannel channel;
+		private final PriorityQueue<RunReader> queue;
+		private RunReader current;
+
+		MergeCursor(Path runsFile, List<long[]> runs) throws IOException {
+			channel = FileChannel.open(runsFile, StandardOpenOption.READ);
+			queue = new PriorityQueue<>(Math.max(1, runs.size()), (r1, r2) -> Long.compareUnsigned(r1.key, r2.key));
+			for (long[] run : runs) {
+				RunReader reader = new RunReader(channel, run[0], run[1]);
+				if (reader.next()) {
+					queue.add(reader);
+				}
+			}
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			if (current != null && current.next()) {
+				queue.add(current);
+			}
+			current = queue.poll();
+			return current != null;
+		}
+
+		@Override
+		public long key() {
+			return current.key;
+		}
+
+		@Override
+		public int value() {
+			return current.value;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	private static class RunReader {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private long position;
+		private long remaining;
+		private long key;
+		private int value;
+
+		RunReader(FileChannel channel, long position, long records) {
+			this.channel = channel;
+			this.position = position;
+			this.remaining = records * RECORD_SIZE;
+			buffer = ByteBuffer.allocate((int) Math.min(remaining, BUFFER_SIZE / RECORD_SIZE * RECORD_SIZE));
+			buffer.flip();
+		}
+
+		boolean next() throws IOException {
+			if (!buffer.hasRemaining()) {
+				if (remaining == 0) {
+					return false;
+				}
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), remaining));
+				position = readFully(channel, buffer, position);
+				remaining -= buffer.limit();
+				buffer.flip();
+			}
+			key = buffer.getLong();
+			value = buffer.getInt();
+			return true;
+		}
+	}
+
+	private static long readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException();
+			}
+			position += read;
+		}
+		return position;
+	}
+
+	/**
+	 * Random access to the hashes of the lines of a file
+	 */
+	private static class HashReader implements Closeable {
+		private final FileChannel channel;
+
+		HashReader(Path hashes) throws IOException {
+			channel = FileChannel.open(hashes, StandardOpenOption.READ);
+		}
+
+		long[] read(int start, int length) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(8 * length);
+			readFully(channel, buffer, 8L * start);
+			buffer.flip();
+			long[] returned = new long[length];
+			buffer.asLongBuffer().get(returned);
+			return returned;
+		}
+
+		/**
+		 * Return records (hash, line), or (hash, ~line) when <code>complement</code> is true
+		 */
+		RecordSource records(boolean complement) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			buffer.flip();
+			return new RecordSource() {
+				private long position = 0;
+				private int line = -1;
+				private long hash;
+
+				@Override
+				public boolean next() throws IOException {
+					if (!buffer.hasRemaining()) {
+						buffer.clear();
+						buffer.limit((int) Math.min(buffer.capacity(), channel.size() - position));
+						position = readFully(channel, buffer, position);
+						buffer.flip();
+						if (!buffer.hasRemaining()) {
+							return false;
+						}
+					}
+					hash = buffer.getLong();
+					line++;
+					return true;
+				}
+
+				@Override
+				public long key() {
+					return hash;
+				}
+
+				@Override
+				public int value() {
+					return complement ? ~line : line;
+				}
+			};
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Buffered output to a temporary file
+	 */
+	private static class Output implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		Output(Path path) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		void putLong(long value) throws IOException {
+			if (buffer.remaining() < 8) {
+				flush();
+			}
+			buffer.putLong(value);
+		}
+
+		void putInt(int value) throws IOException {
+			if (buffer.remaining() < 4) {
+				flush();
+			}
+			buffer.putInt(value);
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Split a file into the same lines as {@link DelimitingMethod#LINES}: carriage returns starting a line are skipped, a line ends at
+	 * next carriage return or newline, and carriage returns ending a line are skipped, as well as the newline following them. When they
+	 * are not followed by a newline, next line starts right after them.
+	 */
+	private static class LineScanner implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		/* Next byte to process, or -1 at end of file */
+		private int next;
+		private boolean lineStart = true;
+
+		/** Hash of last line (see {@link TokenInterner#hash(CharSequence, int, int)}) */
+		long hash;
+		/** Bytes of last line, when collected */
+		byte[] bytes = new byte[256];
+		int length;
+
+		LineScanner(Path path) throws IOException {
+			channel = FileChannel.open(path, StandardOpenOption.READ);
+			buffer.flip();
+			next = read();
+		}
+
+		private int read() throws IOException {
+			if (!buffer.hasRemaining()) {
+				buffer.clear();
+				int n = 0;
+				while (n == 0) {
+					n = channel.read(buffer);
+				}
+				buffer.flip();
+				if (n < 0) {
+					return -1;
+				}
+			}
+			return buffer.get() & 0xFF;
+		}
+
+		/**
+		 * Move to next line, and return false when there is none. Bytes of the line are collected when <code>collect</code> is true.
+		 */
+		boolean next(boolean collect) throws IOException {
+			if (next < 0) {
+				return false;
+			}
+			if (lineStart) {
+				while (next == '\r') {
+					next = read();
+				}
+			}
+			long h = TokenInterner.HASH_SEED;
+			length = 0;
+			while (next >= 0 && next != '\r' && next != '\n') {
+				h = (h ^ next) * TokenInterner.HASH_PRIME;
+				if (collect) {
+					if (length == bytes.length) {
+						bytes = Arrays.copyOf(bytes, 2 * length);
+					}
+					bytes[length++] = (byte) next;
+				}
+				next = read();
+			}
+			hash = h;
+			while (next == '\r') {
+				next = read();
+			}
+			lineStart = next == '\n';
+			if (lineStart) {
+				next = read();
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Sequential reader of the lines of a file: lines must be requested in increasing order, and only the last read line can be requested
+	 * again
+	 */
+	private static class LineReader implements Closeable {
+		private final LineScanner scanner;
+		private final Charset charset;
+		private int nextLine = 0;
+		private String last;
+
+		LineReader(Path path, Charset charset) throws IOException {
+			scanner = new LineScanner(path);
+			this.charset = charset;
+		}
+
+		String line(int index) {
+			if (index == nextLine - 1) {
+				return last;
+			}
+			if (index < nextLine) {
+				throw new IllegalStateException("Line " + index + " was already read");
+			}
+			try {
+				while (nextLine <= index) {
+					if (!scanner.next(nextLine == index)) {
+						throw new IllegalStateException("No line " + index);
+					}
+					nextLine++;
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			last = new String(scanner.bytes, 0, scanner.length, charset);
+			return last;
+		}
+
+		@Override
+		public void close() throws IOException {
+			scanner.close();
+		}
+	}
+
+}
@@ -0,0 +1,160 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Define how elements of a sequence compared by a {@link TypedDiff} are hashed and compared, so that custom equalities (ignoring case,
+ * comparing by identifier...) can be used without wrapping elements.<br>
+ * 
+ * Two elements equal according to {@link #equals(Object, Object)} must have the same hash code.
+ */
+public interface HashingStrategy<T> {
+
+	public int computeHashCode(T object);
+
+	public boolean equals(T object1, T object2);
+
+	/**
+	 * Return strategy using <code>equals</code> and <code>hashCode</code> of elements
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> HashingStrategy<T> natural() {
+		return (HashingStrategy<T>) NATURAL;
+	}
+
+	/**
+	 * Return strategy comparing elements on the key computed by supplied function, with <code>equals</code> and <code>hashCode</code>
+	 */
+	public static <T, K> HashingStrategy<T> by(final Function<? super T, ? extends K> key) {
+		return new HashingStrategy<T>() {
+			@Override
+			public int computeHashCode(T object) {
+				return Objects.hashCode(key.apply(object));
+			}
+
+			@Override
+			public boolean equals(T object1, T object2) {
+				return Objects.equals(key.apply(object1), key.apply(object2));
+			}
+		};
+	}
+
+	public static final HashingStrategy<Object> NATURAL = new HashingStrategy<Object>() {
+		@Override
+		public int computeHashCode(Object object) {
+			return Objects.hashCode(object);
+		}
+
+		@Override
+		public boolean equals(Object object1, Object object2) {
+			return Objects.equals(object1, object2);
+		}
+	};
+
+	/**
+	 * Compare character sequences ignoring case, without building lower case copies
+	 */
+	public static final HashingStrategy<CharSequence> IGNORE_CASE = new HashingStrategy<CharSequence>() {
+		@Override
+		public int computeHashCode(CharSequence object) {
+			int h = 0;
+			for (int i = 0; i < object.length(); i++) {
+				h = 31 * h + Character.toLowerCase(Character.toUpperCase(object.charAt(i)));
+			}
+			return h;
+		}
+
+		@Override
+		public boolean equals(CharSequence object1, CharSequence object2) {
+			if (object1.length() != object2.length()) {
+				return false;
+			}
+			for (int i = 0; i < object1.length(); i++) {
+				char c1 = object1.charAt(i);
+				char c2 = object2.charAt(i);
+				if (c1 != c2 && Character.toLowerCase(Character.toUpperCase(c1)) != Character.toLowerCase(Character.toUpperCase(c2))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	};
+
+	/**
+	 * Compare character sequences ignoring all whitespace characters, without building stripped copies
+	 */
+	public static final HashingStrategy<CharSequence> IGNORE_WHITESPACE = new HashingStrategy<CharSequence>() {
+		@Override
+		public int computeHashCode(CharSequence object) {
+			int h = 0;
+			for (int i = 0; i < object.length(); i++) {
+				char c = object.charAt(i);
+				if (!Character.isWhitespace(c)) {
+					h = 31 * h + c;
+				}
+			}
+			return h;
+		}
+
+		@Override
+		public boolean equals(CharSequence object1, CharSequence object2) {
+			int i1 = 0, i2 = 0;
+			int length1 = object1.length(), length2 = object2.length();
+			while (true) {
+				while (i1 < length1 && Character.isWhitespace(object1.charAt(i1))) {
+					i1++;
+				}
+				while (i2 < length2 && Character.isWhitespace(object2.charAt(i2))) {
+					i2++;
+				}
+				if (i1 == length1 || i2 == length2) {
+					return i1 == length1 && i2 == length2;
+				}
+				if (object1.charAt(i1++) != object2.charAt(i2++)) {
+					return false;
+				}
+			}
+		}
+	};
+
+}
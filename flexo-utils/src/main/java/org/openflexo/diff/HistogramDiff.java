@@ -0,0 +1,310 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+
+/**
+ * Histogram and patience diff, working on equivalence vectors of a {@link Diff}.<br>
+ * 
+ * Results are recorded, as for the Myers algorithm, by marking inserted and deleted lines in the <code>changed_flag</code> vectors of the
+ * {@link Diff}, which then builds the edit script. Regions where no suitable anchor can be found are delegated to the Myers algorithm.
+ * Processing is iterative (no recursion), so that very large inputs cannot exhaust the stack.
+ */
+final class HistogramDiff {
+
+	/**
+	 * Tokens occurring more than this number of times in a region are not considered as anchors
+	 */
+	static final int MAX_CHAIN_LENGTH = 64;
+
+	private final Diff diff;
+	private final int[] a;
+	private final int[] b;
+	/** Number of values of a and b to compare: arrays might be longer */
+	private final int aLength, bLength;
+	private final boolean patience;
+
+	/** Number of occurrences of each equivalence number in the region of a being processed */
+	private final int[] countA;
+	/** Number of occurrences of each equivalence number in the region of b being processed (patience only) */
+	private final int[] countB;
+	/** Last position in region of a of each equivalence number, or -1 */
+	private final int[] head;
+	/** Previous position in region of a of same equivalence number, or -1 */
+	private final int[] next;
+
+	/** Stack of regions still to process, as quadruples (aStart, aEnd, bStart, bEnd) */
+	private int[] stack = new int[64];
+	private int stackSize = 0;
+
+	HistogramDiff(Diff diff, int[] a, int aLength, int[] b, int bLength, int equivMax, boolean patience) {
+		this.diff = diff;
+		this.a = a;
+		this.b = b;
+		this.aLength = aLength;
+		this.bLength = bLength;
+		this.patience = patience;
+		countA = new int[equivMax];
+		countB = patience ? new int[equivMax] : null;
+		head = new int[equivMax];
+		Arrays.fill(head, -1);
+		next = new int[aLength];
+	}
+
+	void compute() {
+		push(0, aLength, 0, bLength);
+		while (stackSize > 0) {
+			stackSize -= 4;
+			int aStart = stack[stackSize];
+			int aEnd = stack[stackSize + 1];
+			int bStart = stack[stackSize + 2];
+			int bEnd = stack[stackSize + 3];
+			processRegion(aStart, aEnd, bStart, bEnd);
+		}
+	}
+
+	private void push(int aStart, int aEnd, int bStart, int bEnd) {
+		if (aStart >= aEnd && bStart >= bEnd) {
+			return;
+		}
+		if (stackSize + 4 > stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		stack[stackSize++] = aStart;
+		stack[stackSize++] = aEnd;
+		stack[stackSize++] = bStart;
+		stack[stackSize++] = bEnd;
+	}
+
+	private void processRegion(int aStart, int aEnd, int bStart, int bEnd) {
+		// Trim common prefix and suffix
+		while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+			aStart++;
+			bStart++;
+		}
+		while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+			aEnd--;
+			bEnd--;
+		}
+		if (aStart == aEnd || bStart == bEnd) {
+			markChanged(aStart, aEnd, bStart, bEnd);
+			return;
+		}
+		if (patience) {
+			processPatienceRegion(aStart, aEnd, bStart, bEnd);
+		}
+		else {
+			processHistogramRegion(aStart, aEnd, bStart, bEnd);
+		}
+	}
+
+	private void markChanged(int aStart, int aEnd, int bStart, int bEnd) {
+		for (int i = aStart; i < aEnd; i++) {
+			diff.markChanged(0, i);
+		}
+		for (int i = bStart; i < bEnd; i++) {
+			diff.markChanged(1, i);
+		}
+	}
+
+	private void indexA(int aStart, int aEnd) {
+		for (int i = aStart; i < aEnd; i++) {
+			int e = a[i];
+			countA[e]++;
+			next[i] = head[e];
+			head[e] = i;
+		}
+	}
+
+	private void clearIndexA(int aStart, int aEnd) {
+		for (int i = aStart; i < aEnd; i++) {
+			countA[a[i]] = 0;
+			head[a[i]] = -1;
+		}
+	}
+
+	private void processHistogramRegion(int aStart, int aEnd, int bStart, int bEnd) {
+		indexA(aStart, aEnd);
+
+		boolean hasCommon = false;
+		int bestCount = MAX_CHAIN_LENGTH + 1;
+		int bestAStart = -1, bestAEnd = -1, bestBStart = -1, bestBEnd = -1;
+
+		for (int bi = bStart; bi < bEnd;) {
+			int e = b[bi];
+			int c = countA[e];
+			if (c == 0) {
+				bi++;
+				continue;
+			}
+			hasCommon = true;
+			if (c > bestCount) {
+				bi++;
+				continue;
+			}
+			int bNext = bi + 1;
+			for (int ai = head[e]; ai != -1; ai = next[ai]) {
+				int as = ai, bs = bi, ae = ai + 1, be = bi + 1;
+				int rc = c;
+				while (as > aStart && bs > bStart && a[as - 1] == b[bs - 1]) {
+					as--;
+					bs--;
+					rc = Math.min(rc, countA[a[as]]);
+				}
+				while (ae < aEnd && be < bEnd && a[ae] == b[be]) {
+					rc = Math.min(rc, countA[a[ae]]);
+					ae++;
+					be++;
+				}
+				if (bestAStart == -1 || ae - as > bestAEnd - bestAStart || rc < bestCount) {
+					bestAStart = as;
+					bestAEnd = ae;
+					bestBStart = bs;
+					bestBEnd = be;
+					bestCount = rc;
+				}
+				if (be > bNext) {
+					bNext = be;
+				}
+			}
+			bi = bNext;
+		}
+
+		clearIndexA(aStart, aEnd);
+
+		if (!hasCommon) {
+			markChanged(aStart, aEnd, bStart, bEnd);
+		}
+		else if (bestAStart == -1) {
+			// Only very frequent tokens in common
+			diff.compareRange(aStart, aEnd, bStart, bEnd);
+		}
+		else {
+			push(aStart, bestAStart, bStart, bestBStart);
+			push(bestAEnd, aEnd, bestBEnd, bEnd);
+		}
+	}
+
+	private void processPatienceRegion(int aStart, int aEnd, int bStart, int bEnd) {
+		indexA(aStart, aEnd);
+		for (int i = bStart; i < bEnd; i++) {
+			countB[b[i]]++;
+		}
+
+		// Collect unique common tokens, in b order, as (position in a, position in b) pairs
+		boolean hasCommon = false;
+		int[] pairsA = null;
+		int[] pairsB = null;
+		int pairs = 0;
+		for (int bi = bStart; bi < bEnd; bi++) {
+			int e = b[bi];
+			if (countA[e] > 0) {
+				hasCommon = true;
+				if (countA[e] == 1 && countB[e] == 1) {
+					if (pairsA == null) {
+						pairsA = new int[Math.min(aEnd - aStart, bEnd - bStart)];
+						pairsB = new int[pairsA.length];
+					}
+					pairsA[pairs] = head[e];
+					pairsB[pairs] = bi;
+					pairs++;
+				}
+			}
+		}
+
+		clearIndexA(aStart, aEnd);
+		for (int i = bStart; i < bEnd; i++) {
+			countB[b[i]] = 0;
+		}
+
+		if (!hasCommon) {
+			markChanged(aStart, aEnd, bStart, bEnd);
+			return;
+		}
+		if (pairs == 0) {
+			diff.compareRange(aStart, aEnd, bStart, bEnd);
+			return;
+		}
+
+		// Anchors split the region in independant sub-regions
+		int[] anchors = longestIncreasingSubsequence(pairsA, pairs);
+		int aLimit = aEnd, bLimit = bEnd;
+		for (int i = anchors.length - 1; i >= 0; i--) {
+			int k = anchors[i];
+			push(pairsA[k] + 1, aLimit, pairsB[k] + 1, bLimit);
+			aLimit = pairsA[k];
+			bLimit = pairsB[k];
+		}
+		push(aStart, aLimit, bStart, bLimit);
+	}
+
+	/**
+	 * Return indexes of a longest strictly increasing subsequence of values[0..count[, in increasing order (patience sorting)
+	 */
+	static int[] longestIncreasingSubsequence(int[] values, int count) {
+		int[] tails = new int[count];
+		int[] predecessors = new int[count];
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			int lo = 0, hi = length;
+			while (lo < hi) {
+				int mid = lo + hi >>> 1;
+				if (values[tails[mid]] < values[i]) {
+					lo = mid + 1;
+				}
+				else {
+					hi = mid;
+				}
+			}
+			predecessors[i] = lo > 0 ? tails[lo - 1] : -1;
+			tails[lo] = i;
+			if (lo == length) {
+				length++;
+			}
+		}
+		int[] returned = new int[length];
+		for (int k = length > 0 ? tails[length - 1] : -1, i = length - 1; k != -1; k = predecessors[k], i--) {
+			returned[i] = k;
+		}
+		return returned;
+	}
+
+}
@@ -0,0 +1,169 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Set;
+
+/**
+ * Differences which may be ignored when comparing tokens of two {@link DiffSource}s (see
+ * {@link ComputeDiff#diff(DiffSource, DiffSource, DiffAlgorithm, Set)}).<br>
+ * Tokens are never rewritten: they are hashed and compared through a normalizing {@link HashingStrategy}, directly on their original
+ * characters.
+ */
+public enum IgnoreMode {
+
+	/**
+	 * Ignore all whitespace characters
+	 */
+	ALL_WHITESPACE,
+
+	/**
+	 * Consider any run of whitespace characters as a single space, and ignore trailing whitespace
+	 */
+	WHITESPACE_CHANGE,
+
+	/**
+	 * Ignore case of letters
+	 */
+	CASE,
+
+	/**
+	 * Ignore tokens made only of whitespace characters (blank lines, when lines are compared)
+	 */
+	BLANK_LINES;
+
+	/**
+	 * Return the strategy hashing and comparing tokens according to supplied modes ({@link #BLANK_LINES} is not handled by the strategy)
+	 */
+	public static HashingStrategy<CharSequence> strategy(Set<IgnoreMode> modes) {
+		int whitespace = modes.contains(ALL_WHITESPACE) ? NormalizingStrategy.IGNORE_ALL : modes.contains(WHITESPACE_CHANGE)
+				? NormalizingStrategy.IGNORE_CHANGE : NormalizingStrategy.KEEP;
+		return new NormalizingStrategy(whitespace, modes.contains(CASE));
+	}
+
+	/**
+	 * Return true when supplied sequence is only made of whitespace characters
+	 */
+	static boolean isBlank(CharSequence sequence) {
+		for (int i = 0; i < sequence.length(); i++) {
+			if (!Character.isWhitespace(sequence.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hash and compare character sequences as if they were normalized, walking their characters in place
+	 */
+	private static class NormalizingStrategy implements HashingStrategy<CharSequence> {
+
+		private static final int KEEP = 0;
+		private static final int IGNORE_CHANGE = 1;
+		private static final int IGNORE_ALL = 2;
+
+		private final int whitespace;
+		private final boolean ignoreCase;
+
+		private NormalizingStrategy(int whitespace, boolean ignoreCase) {
+			this.whitespace = whitespace;
+			this.ignoreCase = ignoreCase;
+		}
+
+		private char fold(char c) {
+			return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+		}
+
+		@Override
+		public int computeHashCode(CharSequence object) {
+			int h = 0;
+			int length = object.length();
+			int i = 0;
+			while (i < length) {
+				char c = object.charAt(i++);
+				if (whitespace != KEEP && Character.isWhitespace(c)) {
+					while (i < length && Character.isWhitespace(object.charAt(i))) {
+						i++;
+					}
+					if (whitespace == IGNORE_CHANGE && i < length) {
+						h = 31 * h + ' ';
+					}
+				}
+				else {
+					h = 31 * h + fold(c);
+				}
+			}
+			return h;
+		}
+
+		@Override
+		public boolean equals(CharSequence object1, CharSequence object2) {
+			int length1 = object1.length();
+			int length2 = object2.length();
+			int i1 = 0, i2 = 0;
+			while (true) {
+				if (whitespace != KEEP) {
+					boolean space1 = false, space2 = false;
+					while (i1 < length1 && Character.isWhitespace(object1.charAt(i1))) {
+						i1++;
+						space1 = true;
+					}
+					while (i2 < length2 && Character.isWhitespace(object2.charAt(i2))) {
+						i2++;
+						space2 = true;
+					}
+					// With IGNORE_CHANGE, whitespace runs must match, unless they are trailing
+					if (whitespace == IGNORE_CHANGE && (space1 && i1 < length1) != (space2 && i2 < length2)) {
+						return false;
+					}
+				}
+				if (i1 == length1 || i2 == length2) {
+					return i1 == length1 && i2 == length2;
+				}
+				char c1 = object1.charAt(i1++);
+				char c2 = object2.charAt(i2++);
+				if (c1 != c2 && fold(c1) != fold(c2)) {
+					return false;
+				}
+			}
+		}
+	}
+
+}
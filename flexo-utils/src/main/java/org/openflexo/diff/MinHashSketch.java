@@ -0,0 +1,209 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+
+/**
+ * MinHash sketch of the tokens of a {@link DiffSource}, for any {@link DelimitingMethod}.<br>
+ * 
+ * Tokens (or shingles of consecutive tokens) are considered as a multiset: the n-th occurrence of a token is a distinct element. Each
+ * value of the sketch is the minimum of an independent hash function over those elements, so that the fraction of equal values of two
+ * sketches estimates the Jaccard index of both multisets. Standard error of this estimate is at most 0.5/sqrt(size).<br>
+ * 
+ * Sketches are immutable. They only rely on token hashes already computed by sources, and are thus cheap to compute.
+ */
+public final class MinHashSketch {
+
+	public static final int DEFAULT_SIZE = 128;
+	public static final int DEFAULT_SHINGLE_SIZE = 1;
+
+	private final int[] values;
+	private final int elements;
+
+	private MinHashSketch(int[] values, int elements) {
+		this.values = values;
+		this.elements = elements;
+	}
+
+	/**
+	 * Compute sketch of supplied source, with default size and single tokens
+	 */
+	public static MinHashSketch of(DiffSource source) {
+		return of(source, DEFAULT_SIZE, DEFAULT_SHINGLE_SIZE);
+	}
+
+	/**
+	 * Compute sketch of supplied source, with supplied number of hash functions, on shingles of shingleSize consecutive tokens
+	 */
+	public static MinHashSketch of(DiffSource source, int size, int shingleSize) {
+		if (size < 1 || shingleSize < 1) {
+			throw new IllegalArgumentException("Invalid sketch size " + size + " or shingle size " + shingleSize);
+		}
+		int[] values = new int[size];
+		Arrays.fill(values, Integer.MAX_VALUE);
+		int count = Math.max(0, source.tokensCount() - shingleSize + 1);
+		OccurrenceCounter occurrences = new OccurrenceCounter(count);
+		for (int i = 0; i < count; i++) {
+			long shingle = 0;
+			for (int j = i; j < i + shingleSize; j++) {
+				shingle = mix(shingle * 31 + source.tokenHash(j));
+			}
+			long element = mix(shingle + occurrences.next(shingle) * 0x9E3779B97F4A7C15L);
+			// Hash functions h(k) = a + k*b, mixed (Kirsch-Mitzenmacher)
+			int a = (int) element;
+			int b = (int) (element >>> 32) | 1;
+			for (int k = 0; k < size; k++) {
+				int value = mix(a + k * b) >>> 1;
+				if (value < values[k]) {
+					values[k] = value;
+				}
+			}
+		}
+		return new MinHashSketch(values, count);
+	}
+
+	/**
+	 * Return number of values of this sketch
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	public int getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Return number of elements (shingles) this sketch was computed from
+	 */
+	public int getElementsCount() {
+		return elements;
+	}
+
+	/**
+	 * Return estimated Jaccard index of the multisets of elements of both sketches, between 0 and 1
+	 */
+	public double estimateJaccard(MinHashSketch other) {
+		checkCompatible(other);
+		if (elements == 0 || other.elements == 0) {
+			return elements == other.elements ? 1.0 : 0.0;
+		}
+		int equal = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == other.values[i]) {
+				equal++;
+			}
+		}
+		return (double) equal / values.length;
+	}
+
+	/**
+	 * Return estimated similarity of both sources, on the same scale as {@link DiffStats#getSimilarity()}: the Dice coefficient of their
+	 * multisets of elements (2J/(1+J) for a Jaccard index J). With single token shingles, this is an upper bound of the similarity of
+	 * sources computed by a diff.
+	 */
+	public double estimateSimilarity(MinHashSketch other) {
+		double jaccard = estimateJaccard(other);
+		return 2 * jaccard / (1 + jaccard);
+	}
+
+	void checkCompatible(MinHashSketch other) {
+		if (other.values.length != values.length) {
+			throw new IllegalArgumentException("Sketches of different sizes: " + values.length + " and " + other.values.length);
+		}
+	}
+
+	/**
+	 * Return hash of values [from,to[, identifying a band of this sketch
+	 */
+	long bandHash(int from, int to) {
+		long returned = from;
+		for (int i = from; i < to; i++) {
+			returned = mix(returned * 31 + values[i]);
+		}
+		return returned;
+	}
+
+	static long mix(long h) {
+		h = (h ^ h >>> 33) * 0xff51afd7ed558ccdL;
+		h = (h ^ h >>> 33) * 0xc4ceb9fe1a85ec53L;
+		return h ^ h >>> 33;
+	}
+
+	private static int mix(int h) {
+		h = (h ^ h >>> 16) * 0x85ebca6b;
+		h = (h ^ h >>> 13) * 0xc2b2ae35;
+		return h ^ h >>> 16;
+	}
+
+	/**
+	 * Count occurrences of each element hash, with open addressing
+	 */
+	private static final class OccurrenceCounter {
+		private final long[] keys;
+		private final int[] counts;
+		private final boolean[] used;
+
+		OccurrenceCounter(int expected) {
+			int capacity = Integer.highestOneBit(Math.max(8, expected * 2 - 1)) << 1;
+			keys = new long[capacity];
+			counts = new int[capacity];
+			used = new boolean[capacity];
+		}
+
+		/**
+		 * Return number of previous occurrences of supplied key, and count this one
+		 */
+		int next(long key) {
+			int mask = keys.length - 1;
+			int slot = (int) (key ^ key >>> 32) & mask;
+			while (used[slot] && keys[slot] != key) {
+				slot = slot + 1 & mask;
+			}
+			if (!used[slot]) {
+				used[slot] = true;
+				keys[slot] = key;
+			}
+			return counts[slot]++;
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+
+/**
+ * Find blocks of tokens deleted from a sequence and inserted elsewhere in another sequence (moved blocks).<br>
+ * 
+ * Windows of minLength consecutive deleted tokens are indexed by a rolling hash. Windows of inserted tokens are then looked up in this
+ * index, and each verified match is extended as far as possible. Each token belongs to at most one move, and a bounded number of
+ * candidates is examined per window, so that detection is linear in the number of changed tokens.
+ */
+final class MoveDetector {
+
+	/** Maximum number of indexed windows examined for each inserted window */
+	private static final int MAX_CANDIDATES = 16;
+
+	private static final long BASE = 0x100000001b3L;
+
+	private final int[] ids0, ids1;
+	private final boolean[] deleted, inserted;
+	private final int minLength;
+
+	private int[] moves = new int[12];
+	private int count = 0;
+
+	/**
+	 * Prepare detection of moved blocks of at least minLength tokens, between tokens of ids0 flagged as deleted and tokens of ids1 flagged
+	 * as inserted
+	 */
+	MoveDetector(int[] ids0, boolean[] deleted, int[] ids1, boolean[] inserted, int minLength) {
+		this.ids0 = ids0;
+		this.ids1 = ids1;
+		this.deleted = deleted;
+		this.inserted = inserted;
+		this.minLength = Math.max(1, minLength);
+	}
+
+	/**
+	 * Detect moves. Return them as triples (start0, start1, length), sorted by start1.
+	 */
+	int[] detect() {
+		int k = minLength;
+		long power = 1;
+		for (int i = 1; i < k; i++) {
+			power *= BASE;
+		}
+
+		// Index windows of deleted tokens: chained hash table
+		int capacity = Integer.highestOneBit(Math.max(16, ids0.length)) << 1;
+		int mask = capacity - 1;
+		int[] head = new int[capacity];
+		Arrays.fill(head, -1);
+		int[] next = new int[ids0.length];
+		long[] hashes = new long[ids0.length];
+		long hash = 0;
+		int run = 0;
+		for (int i = 0; i < ids0.length; i++) {
+			if (!deleted[i]) {
+				run = 0;
+				hash = 0;
+				continue;
+			}
+			hash = run >= k ? (hash - ids0[i - k] * power) * BASE + ids0[i] : hash * BASE + ids0[i];
+			run++;
+			if (run >= k) {
+				int start = i - k + 1;
+				hashes[start] = hash;
+				int slot = slot(hash, mask);
+				next[start] = head[slot];
+				head[slot] = start;
+			}
+		}
+
+		// Look up windows of inserted tokens
+		boolean[] used0 = new boolean[ids0.length];
+		hash = 0;
+		run = 0;
+		int j = 0;
+		while (j < ids1.length) {
+			if (!inserted[j]) {
+				run = 0;
+				hash = 0;
+				j++;
+				continue;
+			}
+			hash = run >= k ? (hash - ids1[j - k] * power) * BASE + ids1[j] : hash * BASE + ids1[j];
+			run++;
+			if (run < k) {
+				j++;
+				continue;
+			}
+			int start1 = j - k + 1;
+			int bestStart = -1, bestLength = 0;
+			int examined = 0;
+			for (int start0 = head[slot(hash, mask)]; start0 >= 0 && examined < MAX_CANDIDATES; start0 = next[start0]) {
+				if (hashes[start0] != hash) {
+					continue;
+				}
+				examined++;
+				int length = matchLength(start0, start1, used0);
+				if (length >= k && length > bestLength) {
+					bestStart = start0;
+					bestLength = length;
+				}
+			}
+			if (bestStart >= 0) {
+				add(bestStart, start1, bestLength);
+				for (int i = bestStart; i < bestStart + bestLength; i++) {
+					used0[i] = true;
+				}
+				// Restart windows after the move
+				j = start1 + bestLength;
+				run = 0;
+				hash = 0;
+			}
+			else {
+				j++;
+			}
+		}
+		return Arrays.copyOf(moves, 3 * count);
+	}
+
+	private int matchLength(int start0, int start1, boolean[] used0) {
+		int length = 0;
+		while (start0 + length < ids0.length && start1 + length < ids1.length && deleted[start0 + length] && !used0[start0 + length]
+				&& inserted[start1 + length] && ids0[start0 + length] == ids1[start1 + length]) {
+			length++;
+		}
+		return length;
+	}
+
+	private void add(int start0, int start1, int length) {
+		if (3 * count + 3 > moves.length) {
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		}
+		moves[3 * count] = start0;
+		moves[3 * count + 1] = start1;
+		moves[3 * count + 2] = length;
+		count++;
+	}
+
+	private static int slot(long hash, int mask) {
+		return (int) (hash ^ hash >>> 29) & mask;
+	}
+
+}
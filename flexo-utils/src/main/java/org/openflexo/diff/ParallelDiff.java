@@ -0,0 +1,261 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Split a comparison in independent segments, which are compared concurrently.<br>
+ * 
+ * Segments are delimited by anchors: tokens occurring exactly once in each file, and matched in the same order in both files (as in
+ * patience diff). Anchors are always considered as unchanged, so that edit scripts computed on consecutive segments only have to be
+ * concatenated. Consecutive segments are grouped into chunks of at least {@link #MIN_CHUNK_SIZE} tokens, so that each task has enough
+ * work to be worth scheduling. Chunks do not depend on the parallelism of the pool, so that results are reproducible.
+ */
+final class ParallelDiff {
+
+	/** Minimal number of tokens (of both files) compared by a single task */
+	static final int MIN_CHUNK_SIZE = 4096;
+
+	/** Maximal number of chunks: for very large inputs, chunks are made larger */
+	static final int MAX_CHUNKS = 256;
+
+	private final Diff diff;
+	private final int[] a;
+	private final int[] b;
+	private final int equivMax;
+
+	private volatile boolean minimal = true;
+
+	ParallelDiff(Diff diff, int[] a, int[] b, int equivMax) {
+		this.diff = diff;
+		this.a = a;
+		this.b = b;
+		this.equivMax = equivMax;
+	}
+
+	/**
+	 * Compute edit script, in forward order, running chunk comparisons in supplied pool
+	 */
+	Diff.change compute(ForkJoinPool pool, final DiffAlgorithm algorithm) {
+		final long deadline = diff.timeout > 0 ? System.currentTimeMillis() + diff.timeout : 0;
+		int[] chunks = computeChunks();
+		int chunkCount = chunks.length / 4;
+		if (chunkCount > 1) {
+			// Anchors are imposed: the whole script might not be minimal
+			minimal = false;
+		}
+		List<ForkJoinTask<Diff.change>> tasks = new ArrayList<>(chunkCount);
+		for (int i = 0; i < chunkCount; i++) {
+			final int aStart = chunks[4 * i], aEnd = chunks[4 * i + 1], bStart = chunks[4 * i + 2], bEnd = chunks[4 * i + 3];
+			if (chunkCount == 1) {
+				return compareChunk(aStart, aEnd, bStart, bEnd, algorithm, deadline);
+			}
+			tasks.add(pool.submit(() -> compareChunk(aStart, aEnd, bStart, bEnd, algorithm, deadline)));
+		}
+		// Stitch chunk scripts together, in order
+		Diff.change script = null;
+		Diff.change last = null;
+		for (ForkJoinTask<Diff.change> task : tasks) {
+			Diff.change chunkScript = task.join();
+			if (chunkScript == null) {
+				continue;
+			}
+			if (last == null) {
+				script = chunkScript;
+			}
+			else {
+				last.link = chunkScript;
+			}
+			last = chunkScript;
+			while (last.link != null) {
+				last = last.link;
+			}
+		}
+		return script;
+	}
+
+	/**
+	 * Return true when the script is guaranteed to be minimal: comparison was not cut around anchors (there was a single chunk), and the
+	 * chunk comparison returned a minimal script.
+	 */
+	boolean isMinimal() {
+		return minimal;
+	}
+
+	/**
+	 * Compute chunks to compare, as quadruples (aStart, aEnd, bStart, bEnd). Common prefix and suffix are not part of any chunk.
+	 */
+	private int[] computeChunks() {
+		int aStart = 0, bStart = 0, aEnd = a.length, bEnd = b.length;
+		while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+			aStart++;
+			bStart++;
+		}
+		while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+			aEnd--;
+			bEnd--;
+		}
+		int total = aEnd - aStart + bEnd - bStart;
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, total / MAX_CHUNKS);
+		if (total < 2 * chunkSize) {
+			return new int[] { aStart, aEnd, bStart, bEnd };
+		}
+
+		// Unique common tokens, in b order, as (position in a, position in b) pairs
+		int[] countA = new int[equivMax];
+		int[] countB = new int[equivMax];
+		int[] positionA = new int[equivMax];
+		for (int i = aStart; i < aEnd; i++) {
+			countA[a[i]]++;
+			positionA[a[i]] = i;
+		}
+		for (int i = bStart; i < bEnd; i++) {
+			countB[b[i]]++;
+		}
+		int[] pairsA = new int[Math.min(aEnd - aStart, bEnd - bStart)];
+		int[] pairsB = new int[pairsA.length];
+		int pairs = 0;
+		for (int i = bStart; i < bEnd; i++) {
+			int e = b[i];
+			if (countA[e] == 1 && countB[e] == 1) {
+				pairsA[pairs] = positionA[e];
+				pairsB[pairs] = i;
+				pairs++;
+			}
+		}
+		int[] anchors = HistogramDiff.longestIncreasingSubsequence(pairsA, pairs);
+
+		// Cut after an anchor as soon as current chunk is large enough
+		int[] chunks = new int[64];
+		int count = 0;
+		int chunkAStart = aStart, chunkBStart = bStart;
+		for (int anchor : anchors) {
+			int anchorA = pairsA[anchor];
+			int anchorB = pairsB[anchor];
+			if (anchorA - chunkAStart + anchorB - chunkBStart >= chunkSize && aEnd - anchorA + bEnd - anchorB >= chunkSize) {
+				if (count + 4 > chunks.length) {
+					chunks = Arrays.copyOf(chunks, chunks.length * 2);
+				}
+				chunks[count++] = chunkAStart;
+				chunks[count++] = anchorA;
+				chunks[count++] = chunkBStart;
+				chunks[count++] = anchorB;
+				chunkAStart = anchorA + 1;
+				chunkBStart = anchorB + 1;
+			}
+		}
+		if (count + 4 > chunks.length) {
+			chunks = Arrays.copyOf(chunks, count + 4);
+		}
+		chunks[count++] = chunkAStart;
+		chunks[count++] = aEnd;
+		chunks[count++] = chunkBStart;
+		chunks[count++] = bEnd;
+		return Arrays.copyOf(chunks, count);
+	}
+
+	/**
+	 * Compare a chunk, and return its edit script, with line numbers relative to whole files
+	 */
+	private Diff.change compareChunk(int aStart, int aEnd, int bStart, int bEnd, DiffAlgorithm algorithm, long deadline) {
+		if (aStart == aEnd && bStart == bEnd) {
+			return null;
+		}
+		// Renumber equivalences, so that the comparison of the chunk only allocates tables proportional to its size
+		int length = aEnd - aStart + bEnd - bStart;
+		int[] keys = new int[Integer.highestOneBit(Math.max(2 * length, 16)) << 1];
+		int[] values = new int[keys.length];
+		int mask = keys.length - 1;
+		int[] localA = new int[aEnd - aStart];
+		int[] localB = new int[bEnd - bStart];
+		int localMax = 1;
+		for (int i = 0; i < length; i++) {
+			int e = i < localA.length ? a[aStart + i] : b[bStart + i - localA.length];
+			int h = e * 0x9E3779B9;
+			int slot = (h ^ h >>> 16) & mask;
+			while (keys[slot] != 0 && keys[slot] != e) {
+				slot = slot + 1 & mask;
+			}
+			if (keys[slot] == 0) {
+				keys[slot] = e;
+				values[slot] = localMax++;
+			}
+			if (i < localA.length) {
+				localA[i] = values[slot];
+			}
+			else {
+				localB[i - localA.length] = values[slot];
+			}
+		}
+
+		Diff chunkDiff = new Diff(localA, localB, localMax);
+		chunkDiff.heuristic = diff.heuristic;
+		chunkDiff.no_discards = diff.no_discards;
+		chunkDiff.too_expensive = diff.too_expensive;
+		if (deadline > 0) {
+			chunkDiff.timeout = Math.max(1, deadline - System.currentTimeMillis());
+		}
+		Diff.change local = chunkDiff.diff_2(false, algorithm);
+		if (!chunkDiff.isMinimal()) {
+			minimal = false;
+		}
+
+		// Translate line numbers
+		Diff.change script = null;
+		Diff.change last = null;
+		for (Diff.change c = local; c != null; c = c.link) {
+			Diff.change translated = new Diff.change(c.line0 + aStart, c.line1 + bStart, c.deleted, c.inserted, null);
+			if (last == null) {
+				script = translated;
+			}
+			else {
+				last.link = translated;
+			}
+			last = translated;
+		}
+		return script;
+	}
+
+}
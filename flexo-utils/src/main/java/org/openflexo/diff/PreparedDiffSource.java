@@ -0,0 +1,106 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+/**
+ * A {@link DiffSource} whose tokens were interned once for all, so that it can be compared to many other sources without being hashed
+ * again.<br>
+ * 
+ * Tokens of compared sources are interned in the same {@link TokenInterner}, so that each distinct token is numbered only once, whatever
+ * the number of comparisons. Comparisons might be performed concurrently: only interning is serialized.
+ */
+public class PreparedDiffSource {
+
+	private final DiffSource source;
+	private final TokenInterner interner;
+	private final int[] tokenIds;
+
+	public PreparedDiffSource(DiffSource source) {
+		this(source, new TokenInterner(source.tokensCount() * 2));
+	}
+
+	public PreparedDiffSource(DiffSource source, TokenInterner interner) {
+		this.source = source;
+		this.interner = interner;
+		synchronized (interner) {
+			tokenIds = source.getTokenIds(interner);
+		}
+		// Token strings are cached now, so that concurrent comparisons only read them
+		source.getSignificativeTokens();
+	}
+
+	public DiffSource getSource() {
+		return source;
+	}
+
+	public TokenInterner getInterner() {
+		return interner;
+	}
+
+	/**
+	 * Return identifiers of tokens of this source. Returned array should not be modified.
+	 */
+	public int[] getTokenIds() {
+		return tokenIds;
+	}
+
+	/**
+	 * Compute diff between this source and supplied one
+	 */
+	public DiffReport diff(DiffSource anOtherSource) {
+		return diff(anOtherSource, DiffAlgorithm.MYERS);
+	}
+
+	/**
+	 * Compute diff between this source and supplied one, using supplied algorithm
+	 */
+	public DiffReport diff(DiffSource anOtherSource, DiffAlgorithm algorithm) {
+		int[] otherIds;
+		int equivMax;
+		synchronized (interner) {
+			otherIds = anOtherSource.getTokenIds(interner);
+			equivMax = interner.getMaxId();
+		}
+		return ComputeDiff.computeDiff(source, tokenIds, anOtherSource, otherIds, equivMax, algorithm, Integer.MAX_VALUE, 0);
+	}
+
+}
@@ -0,0 +1,110 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+/**
+ * Differences inside a change, between the text it removes and the text it adds (see
+ * {@link org.openflexo.diff.ComputeDiff.DiffChange#getWordRefinement()} and
+ * {@link org.openflexo.diff.ComputeDiff.DiffChange#getCharacterRefinement()}).<br>
+ * 
+ * A refinement is a list of ranges: characters [start0,end0[ of removed text were replaced by characters [start1,end1[ of added text.
+ * One of both ranges might be empty. Text outside of ranges is common to removed and added text.
+ */
+public final class Refinement {
+
+	private final String text0;
+	private final String text1;
+	private final int[] ranges;
+	private final int size;
+
+	Refinement(String text0, String text1, int[] ranges, int size) {
+		this.text0 = text0;
+		this.text1 = text1;
+		this.ranges = ranges;
+		this.size = size;
+	}
+
+	/**
+	 * Return removed text
+	 */
+	public String getText0() {
+		return text0;
+	}
+
+	/**
+	 * Return added text
+	 */
+	public String getText1() {
+		return text1;
+	}
+
+	/**
+	 * Return number of ranges
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getStart0(int index) {
+		return ranges[4 * index];
+	}
+
+	public int getEnd0(int index) {
+		return ranges[4 * index + 1];
+	}
+
+	public int getStart1(int index) {
+		return ranges[4 * index + 2];
+	}
+
+	public int getEnd1(int index) {
+		return ranges[4 * index + 3];
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer returned = new StringBuffer();
+		for (int i = 0; i < size; i++) {
+			returned.append("[" + text0.substring(getStart0(i), getEnd0(i)) + "->" + text1.substring(getStart1(i), getEnd1(i)) + "]");
+		}
+		return returned.toString();
+	}
+
+}
@@ -0,0 +1,210 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+
+/**
+ * Compute {@link Refinement}s of changes, at word or character level.<br>
+ * 
+ * Symbols (words or chars) are numbered with a reused {@link TokenInterner}, common prefix and suffix are skipped, and remaining symbols
+ * are aligned with a {@link BitParallelDiff} when one of both sides is short enough, with {@link Diff} otherwise. Scratch buffers are
+ * owned by each refiner and reused: use {@link #get()} to obtain the refiner of current thread.
+ */
+final class Refiner {
+
+	private static final ThreadLocal<Refiner> REFINERS = new ThreadLocal<Refiner>() {
+		@Override
+		protected Refiner initialValue() {
+			return new Refiner();
+		}
+	};
+
+	static Refiner get() {
+		return REFINERS.get();
+	}
+
+	private final TokenInterner interner = new TokenInterner(256);
+	private final BitParallelDiff kernel = new BitParallelDiff();
+	private int[] bounds0 = new int[64];
+	private int[] bounds1 = new int[64];
+	private int[] ids0 = new int[64];
+	private int[] ids1 = new int[64];
+	private int[] match0 = new int[64];
+	private int[] match1 = new int[64];
+	private int[] ranges = new int[64];
+
+	private Refiner() {
+	}
+
+	/**
+	 * Compute refinement between supplied texts, at word level (a word is a run of letters, digits and underscores, or a run of
+	 * whitespaces, or any other single char) or at character level
+	 */
+	Refinement refine(String text0, String text1, boolean words) {
+		if (text0 == null) {
+			text0 = "";
+		}
+		if (text1 == null) {
+			text1 = "";
+		}
+		bounds0 = split(text0, words, bounds0);
+		int n0 = symbolCount;
+		bounds1 = split(text1, words, bounds1);
+		int n1 = symbolCount;
+
+		interner.clear();
+		ids0 = ensureCapacity(ids0, n0);
+		ids1 = ensureCapacity(ids1, n1);
+		for (int i = 0; i < n0; i++) {
+			ids0[i] = interner.intern(text0, bounds0[i], bounds0[i + 1]);
+		}
+		for (int i = 0; i < n1; i++) {
+			ids1[i] = interner.intern(text1, bounds1[i], bounds1[i + 1]);
+		}
+
+		// Matched symbols: common prefix, aligned middle, common suffix
+		int prefix = 0;
+		while (prefix < n0 && prefix < n1 && ids0[prefix] == ids1[prefix]) {
+			prefix++;
+		}
+		int suffix = 0;
+		while (suffix < n0 - prefix && suffix < n1 - prefix && ids0[n0 - 1 - suffix] == ids1[n1 - 1 - suffix]) {
+			suffix++;
+		}
+		int m = n0 - prefix - suffix;
+		int n = n1 - prefix - suffix;
+		match0 = ensureCapacity(match0, Math.min(n0, n1));
+		match1 = ensureCapacity(match1, Math.min(n0, n1));
+		int matches = 0;
+		if (m > 0 && n > 0) {
+			if (Math.min(m, n) <= BitParallelDiff.MAX_PATTERN_LENGTH) {
+				matches = kernel.align(ids0, prefix, m, ids1, prefix, n, interner.getMaxId(), match0, match1);
+			}
+			else {
+				matches = alignWithDiff(prefix, m, n);
+			}
+		}
+
+		// Ranges between consecutive matches
+		int count = 0;
+		int previous0 = prefix - 1, previous1 = prefix - 1;
+		for (int k = 0; k <= matches; k++) {
+			int next0 = k < matches ? prefix + match0[k] : n0 - suffix;
+			int next1 = k < matches ? prefix + match1[k] : n1 - suffix;
+			if (next0 > previous0 + 1 || next1 > previous1 + 1) {
+				if (4 * count + 4 > ranges.length) {
+					ranges = Arrays.copyOf(ranges, ranges.length * 2);
+				}
+				ranges[4 * count] = bounds0[previous0 + 1];
+				ranges[4 * count + 1] = bounds0[next0];
+				ranges[4 * count + 2] = bounds1[previous1 + 1];
+				ranges[4 * count + 3] = bounds1[next1];
+				count++;
+			}
+			previous0 = next0;
+			previous1 = next1;
+		}
+		return new Refinement(text0, text1, Arrays.copyOf(ranges, 4 * count), count);
+	}
+
+	private int alignWithDiff(int offset, int m, int n) {
+		Diff diff = new Diff(Arrays.copyOfRange(ids0, offset, offset + m), Arrays.copyOfRange(ids1, offset, offset + n),
+				interner.getMaxId());
+		diff.bit_parallel = true;
+		int matches = 0;
+		int i0 = 0, i1 = 0;
+		for (Diff.change c = diff.diff_2(false); ; c = c.link) {
+			int end0 = c != null ? c.line0 : m;
+			while (i0 < end0) {
+				match0[matches] = i0++;
+				match1[matches++] = i1++;
+			}
+			if (c == null) {
+				return matches;
+			}
+			i0 += c.deleted;
+			i1 += c.inserted;
+		}
+	}
+
+	private int symbolCount;
+
+	/**
+	 * Compute start index of each symbol of text, followed by text length. Number of symbols is stored in symbolCount.
+	 */
+	private int[] split(String text, boolean words, int[] bounds) {
+		int length = text.length();
+		bounds = ensureCapacity(bounds, length + 1);
+		int count = 0;
+		int i = 0;
+		while (i < length) {
+			bounds[count++] = i;
+			char c = text.charAt(i++);
+			if (words) {
+				if (isWordChar(c)) {
+					while (i < length && isWordChar(text.charAt(i))) {
+						i++;
+					}
+				}
+				else if (Character.isWhitespace(c) && c != '\n') {
+					while (i < length && Character.isWhitespace(text.charAt(i)) && text.charAt(i) != '\n') {
+						i++;
+					}
+				}
+			}
+		}
+		bounds[count] = length;
+		symbolCount = count;
+		return bounds;
+	}
+
+	private static boolean isWordChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_';
+	}
+
+	private static int[] ensureCapacity(int[] array, int capacity) {
+		if (array.length < capacity) {
+			return new int[Math.max(capacity, array.length * 2)];
+		}
+		return array;
+	}
+
+}
@@ -0,0 +1,267 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Near-duplicate index of sources, answering "sources similar to this one above a threshold" without comparing it to every indexed
+ * source.<br>
+ * 
+ * Each source is summarized by a {@link MinHashSketch}, split into bands of consecutive values. Sketches sharing at least one band with
+ * the queried sketch are candidates (locality sensitive hashing): with b bands of r rows, sources of Jaccard index J are candidates with
+ * probability 1-(1-J^r)^b, an S-shaped curve rising around (1/b)^(1/r). Candidates are then filtered on their estimated similarity, and
+ * optionally verified with an exact diff (see {@link #query(DiffSource, double, Function)}).<br>
+ * 
+ * Indexed sources are identified by keys, and are not retained by the index. This class is thread-safe.
+ */
+public class SimilarityIndex<K> {
+
+	public static final int DEFAULT_BANDS = 32;
+	public static final int DEFAULT_ROWS = 4;
+
+	/**
+	 * A source found similar to the queried one
+	 */
+	public static final class Match<K> implements Comparable<Match<K>> {
+		private final K key;
+		private final double similarity;
+		private final DiffStats stats;
+
+		Match(K key, double similarity, DiffStats stats) {
+			this.key = key;
+			this.similarity = similarity;
+			this.stats = stats;
+		}
+
+		public K getKey() {
+			return key;
+		}
+
+		/**
+		 * Return similarity with queried source: exact if this match was verified with a diff, estimated otherwise
+		 */
+		public double getSimilarity() {
+			return similarity;
+		}
+
+		/**
+		 * Return statistics of the diff with queried source, or null if this match was not verified
+		 */
+		public DiffStats getStats() {
+			return stats;
+		}
+
+		@Override
+		public int compareTo(Match<K> other) {
+			return Double.compare(other.similarity, similarity);
+		}
+
+		@Override
+		public String toString() {
+			return key + " (" + similarity + ")";
+		}
+	}
+
+	private final int bands;
+	private final int rows;
+	private final int shingleSize;
+
+	private final Map<K, MinHashSketch> sketches = new HashMap<>();
+	private final List<Map<Long, List<K>>> buckets;
+
+	public SimilarityIndex() {
+		this(DEFAULT_BANDS, DEFAULT_ROWS, MinHashSketch.DEFAULT_SHINGLE_SIZE);
+	}
+
+	/**
+	 * Build an index whose sketches are made of bands*rows values, computed on shingles of shingleSize tokens
+	 */
+	public SimilarityIndex(int bands, int rows, int shingleSize) {
+		if (bands < 1 || rows < 1) {
+			throw new IllegalArgumentException("Invalid number of bands " + bands + " or rows " + rows);
+		}
+		this.bands = bands;
+		this.rows = rows;
+		this.shingleSize = shingleSize;
+		buckets = new ArrayList<>(bands);
+		for (int i = 0; i < bands; i++) {
+			buckets.add(new HashMap<Long, List<K>>());
+		}
+	}
+
+	/**
+	 * Compute sketch of supplied source, as stored by this index
+	 */
+	public MinHashSketch sketch(DiffSource source) {
+		return MinHashSketch.of(source, bands * rows, shingleSize);
+	}
+
+	/**
+	 * Index supplied source under supplied key, replacing any source previously indexed under this key
+	 */
+	public void add(K key, DiffSource source) {
+		add(key, sketch(source));
+	}
+
+	/**
+	 * Index supplied sketch (as computed by {@link #sketch(DiffSource)}) under supplied key, replacing any source previously indexed
+	 * under this key
+	 */
+	public synchronized void add(K key, MinHashSketch sketch) {
+		checkSketch(sketch);
+		remove(key);
+		sketches.put(key, sketch);
+		for (int band = 0; band < bands; band++) {
+			buckets.get(band).computeIfAbsent(bandHash(sketch, band), h -> new ArrayList<K>(2)).add(key);
+		}
+	}
+
+	/**
+	 * Remove source indexed under supplied key. Return true if such a source was indexed.
+	 */
+	public synchronized boolean remove(K key) {
+		MinHashSketch sketch = sketches.remove(key);
+		if (sketch == null) {
+			return false;
+		}
+		for (int band = 0; band < bands; band++) {
+			Long hash = bandHash(sketch, band);
+			List<K> bucket = buckets.get(band).get(hash);
+			bucket.remove(key);
+			if (bucket.isEmpty()) {
+				buckets.get(band).remove(hash);
+			}
+		}
+		return true;
+	}
+
+	public synchronized int size() {
+		return sketches.size();
+	}
+
+	public synchronized MinHashSketch getSketch(K key) {
+		return sketches.get(key);
+	}
+
+	/**
+	 * Return indexed sources whose estimated similarity with supplied source (see {@link MinHashSketch#estimateSimilarity(MinHashSketch)})
+	 * is at least threshold, most similar first
+	 */
+	public List<Match<K>> query(DiffSource source, double threshold) {
+		MinHashSketch sketch = sketch(source);
+		List<Match<K>> returned = new ArrayList<>();
+		for (Map.Entry<K, MinHashSketch> candidate : candidates(sketch).entrySet()) {
+			double similarity = sketch.estimateSimilarity(candidate.getValue());
+			if (similarity >= threshold) {
+				returned.add(new Match<K>(candidate.getKey(), similarity, null));
+			}
+		}
+		Collections.sort(returned);
+		return returned;
+	}
+
+	/**
+	 * Return indexed sources whose similarity with supplied source, as computed by a diff (see {@link DiffStats#getSimilarity()}), is at
+	 * least threshold, most similar first. Candidates are compared with sources obtained from supplied resolver; comparisons are abandoned
+	 * as soon as threshold cannot be reached. With single token shingles, candidates whose estimated similarity is too far below the
+	 * threshold are skipped without being compared.
+	 */
+	public List<Match<K>> query(DiffSource source, double threshold, Function<? super K, DiffSource> resolver) {
+		MinHashSketch sketch = sketch(source);
+		// Estimate is an upper bound of similarity, up to its standard error, only for single token shingles: a change of one token
+		// changes shingleSize shingles, so that estimate can be far below similarity for longer shingles
+		double margin = 1.0 / Math.sqrt(sketch.size());
+		DiffEngine engine = DiffEngine.forCurrentThread();
+		List<Match<K>> returned = new ArrayList<>();
+		for (Map.Entry<K, MinHashSketch> candidate : candidates(sketch).entrySet()) {
+			if (shingleSize == 1 && sketch.estimateSimilarity(candidate.getValue()) < threshold - margin) {
+				continue;
+			}
+			DiffSource candidateSource = resolver.apply(candidate.getKey());
+			if (candidateSource == null) {
+				continue;
+			}
+			DiffStats stats = engine.stats(source, candidateSource, 1.0 - threshold);
+			if (!stats.isExceeded() && stats.getSimilarity() >= threshold) {
+				returned.add(new Match<K>(candidate.getKey(), stats.getSimilarity(), stats));
+			}
+		}
+		Collections.sort(returned);
+		return returned;
+	}
+
+	/**
+	 * Return indexed sketches sharing at least one band with supplied one
+	 */
+	private synchronized Map<K, MinHashSketch> candidates(MinHashSketch sketch) {
+		checkSketch(sketch);
+		Set<K> keys = new LinkedHashSet<>();
+		for (int band = 0; band < bands; band++) {
+			List<K> bucket = buckets.get(band).get(bandHash(sketch, band));
+			if (bucket != null) {
+				keys.addAll(bucket);
+			}
+		}
+		Map<K, MinHashSketch> returned = new HashMap<>();
+		for (K key : keys) {
+			returned.put(key, sketches.get(key));
+		}
+		return returned;
+	}
+
+	private long bandHash(MinHashSketch sketch, int band) {
+		return sketch.bandHash(band * rows, (band + 1) * rows);
+	}
+
+	private void checkSketch(MinHashSketch sketch) {
+		if (sketch.size() != bands * rows) {
+			throw new IllegalArgumentException("Sketch of size " + sketch.size() + " while index expects " + bands * rows);
+		}
+	}
+
+}
@@ -0,0 +1,354 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+
+/**
+ * A dictionary mapping tokens to int identifiers, used to build the equivalence vectors compared by {@link Diff}.<br>
+ * 
+ * Identifiers are allocated in order of first appearance and start at 1, so that they can directly be used as equivalence numbers (0 is
+ * reserved by {@link Diff}). Lookups are performed in an open-addressing table keyed by primitive hashes: no boxing occurs, and character
+ * regions (typically a token of a {@link DiffSource}) are hashed and compared in place, without creating substrings. Characters of each
+ * distinct character token are copied once into an internal pool, so that an interner never retains the documents it has been fed with.
+ * Object tokens (including those interned with a {@link HashingStrategy}) are retained by reference until the interner is cleared.<br>
+ * 
+ * An interner may be shared across several diff computations, in which case a given token always gets the same identifier. Note that
+ * this class is not thread-safe.
+ */
+public class TokenInterner {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	/** Open-addressing table, containing identifiers (0 for an empty slot) */
+	private int[] slots;
+	private int mask;
+
+	/** Hash of each identifier, indexed by identifier */
+	private long[] hashes;
+	/** Offset in character pool of each identifier, or -1 for a non-character token (see also STRATEGY_TOKEN and PRIMITIVE_TOKEN) */
+	private int[] offsets;
+	/** Length in character pool of each identifier */
+	private int[] lengths;
+	/** Non-character tokens, indexed by identifier (lazily allocated) */
+	private Object[] objects;
+
+	private char[] pool;
+	private int poolSize = 0;
+
+	private int size = 0;
+
+	public TokenInterner() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Build a new interner, sized to receive approximately expectedTokens distinct tokens without rehashing
+	 */
+	public TokenInterner(int expectedTokens) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity < expectedTokens * 2) {
+			capacity <<= 1;
+		}
+		slots = new int[capacity];
+		mask = capacity - 1;
+		hashes = new long[capacity / 2 + 1];
+		offsets = new int[capacity / 2 + 1];
+		lengths = new int[capacity / 2 + 1];
+		pool = new char[capacity * 8];
+	}
+
+	/**
+	 * Return number of distinct tokens interned so far
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return 1 more than the maximum identifier allocated so far (this is the equivalence bound expected by {@link Diff})
+	 */
+	public int getMaxId() {
+		return size + 1;
+	}
+
+	/**
+	 * Return the identifier of supplied token, allocating a new one when this token was never seen before.<br>
+	 * {@link CharSequence} tokens are compared on their characters, other tokens on their <code>equals</code> and <code>hashCode</code>
+	 * methods.
+	 */
+	public int intern(Object token) {
+		if (token instanceof CharSequence) {
+			CharSequence cs = (CharSequence) token;
+			return intern(cs, 0, cs.length());
+		}
+		long hash = token != null ? token.hashCode() : 0;
+		int slot = slotFor(hash);
+		int id;
+		while ((id = slots[slot]) != 0) {
+			if (hashes[id] == hash && offsets[id] == -1 && equalsObject(objects[id], token)) {
+				return id;
+			}
+			slot = slot + 1 & mask;
+		}
+		id = allocate(slot, hash);
+		offsets[id] = -1;
+		if (objects == null) {
+			objects = new Object[hashes.length];
+		}
+		objects[id] = token;
+		return id;
+	}
+
+	/**
+	 * Return the identifier of supplied token, as compared and hashed by supplied strategy, allocating a new one when this token was never
+	 * seen before. Tokens interned with a strategy are matched only with tokens interned with the same strategy: an interner must be
+	 * cleared before being used with another strategy.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> int intern(T token, HashingStrategy<? super T> strategy) {
+		long hash = strategy.computeHashCode(token);
+		int slot = slotFor(hash);
+		int id;
+		while ((id = slots[slot]) != 0) {
+			if (hashes[id] == hash && offsets[id] == STRATEGY_TOKEN && strategy.equals((T) objects[id], token)) {
+				return id;
+			}
+			slot = slot + 1 & mask;
+		}
+		id = allocate(slot, hash);
+		offsets[id] = STRATEGY_TOKEN;
+		if (objects == null) {
+			objects = new Object[hashes.length];
+		}
+		objects[id] = token;
+		return id;
+	}
+
+	/**
+	 * Return the identifier of supplied primitive value, allocating a new one when this value was never seen before. No boxing occurs: the
+	 * value itself is stored as the hash of its identifier.
+	 */
+	public int intern(long value) {
+		int slot = slotFor(value);
+		int id;
+		while ((id = slots[slot]) != 0) {
+			if (hashes[id] == value && offsets[id] == PRIMITIVE_TOKEN) {
+				return id;
+			}
+			slot = slot + 1 & mask;
+		}
+		id = allocate(slot, value);
+		offsets[id] = PRIMITIVE_TOKEN;
+		return id;
+	}
+
+	/**
+	 * Return the identifier of the character region [start,end[ of supplied text, allocating a new one when this region was never seen
+	 * before. No substring is created.
+	 */
+	public int intern(CharSequence text, int start, int end) {
+		return intern(text, start, end, hash(text, start, end));
+	}
+
+	/**
+	 * Same as {@link #intern(CharSequence, int, int)}, with an already computed hash of the region (see
+	 * {@link #hash(CharSequence, int, int)})
+	 */
+	public int intern(CharSequence text, int start, int end, long hash) {
+		int slot = slotFor(hash);
+		int length = end - start;
+		int id;
+		while ((id = slots[slot]) != 0) {
+			if (hashes[id] == hash && lengths[id] == length && offsets[id] >= 0 && regionMatches(offsets[id], text, start, length)) {
+				return id;
+			}
+			slot = slot + 1 & mask;
+		}
+		id = allocate(slot, hash);
+		ensurePoolCapacity(poolSize + length);
+		if (text instanceof String) {
+			((String) text).getChars(start, end, pool, poolSize);
+		}
+		else {
+			for (int i = 0; i < length; i++) {
+				pool[poolSize + i] = text.charAt(start + i);
+			}
+		}
+		offsets[id] = poolSize;
+		lengths[id] = length;
+		poolSize += length;
+		return id;
+	}
+
+	/**
+	 * Intern all supplied tokens, and return the array of their identifiers
+	 */
+	public int[] internAll(Object[] tokens) {
+		int[] returned = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			returned[i] = intern(tokens[i]);
+		}
+		return returned;
+	}
+
+	/**
+	 * Return textual value of the token registered with supplied identifier
+	 */
+	public String tokenValue(int id) {
+		if (id <= 0 || id > size) {
+			return null;
+		}
+		if (offsets[id] == -1 || offsets[id] == STRATEGY_TOKEN) {
+			return String.valueOf(objects[id]);
+		}
+		if (offsets[id] == PRIMITIVE_TOKEN) {
+			return String.valueOf(hashes[id]);
+		}
+		return new String(pool, offsets[id], lengths[id]);
+	}
+
+	/**
+	 * Forget all interned tokens, keeping allocated storage
+	 */
+	public void clear() {
+		if (size * 8 < slots.length) {
+			// Few identifiers in a large table (interner is reused): only clear their slots
+			for (int id = 1; id <= size; id++) {
+				int slot = slotFor(hashes[id]);
+				while (slots[slot] != id) {
+					slot = slot + 1 & mask;
+				}
+				slots[slot] = 0;
+			}
+		}
+		else {
+			Arrays.fill(slots, 0);
+		}
+		if (objects != null) {
+			Arrays.fill(objects, 0, size + 1, null);
+		}
+		size = 0;
+		poolSize = 0;
+	}
+
+	/**
+	 * Compute 64-bit hash (FNV-1a over UTF-16 chars) of character region [start,end[ of supplied text
+	 */
+	public static long hash(CharSequence text, int start, int end) {
+		long h = HASH_SEED;
+		if (text instanceof String) {
+			String s = (String) text;
+			for (int i = start; i < end; i++) {
+				h = (h ^ s.charAt(i)) * HASH_PRIME;
+			}
+		}
+		else {
+			for (int i = start; i < end; i++) {
+				h = (h ^ text.charAt(i)) * HASH_PRIME;
+			}
+		}
+		return h;
+	}
+
+	/* Offsets marking tokens interned with a hashing strategy, and primitive values */
+	private static final int STRATEGY_TOKEN = -2;
+	private static final int PRIMITIVE_TOKEN = -3;
+
+	static final long HASH_SEED = 0xcbf29ce484222325L;
+	static final long HASH_PRIME = 0x100000001b3L;
+
+	private int slotFor(long hash) {
+		long h = hash * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ h >>> 32) & mask;
+	}
+
+	private int allocate(int slot, long hash) {
+		int id = ++size;
+		if (id >= hashes.length) {
+			int newLength = hashes.length * 2;
+			hashes = Arrays.copyOf(hashes, newLength);
+			offsets = Arrays.copyOf(offsets, newLength);
+			lengths = Arrays.copyOf(lengths, newLength);
+			if (objects != null) {
+				objects = Arrays.copyOf(objects, newLength);
+			}
+		}
+		hashes[id] = hash;
+		slots[slot] = id;
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private void rehash() {
+		int[] newSlots = new int[slots.length * 2];
+		mask = newSlots.length - 1;
+		for (int id = 1; id <= size; id++) {
+			int slot = slotFor(hashes[id]);
+			while (newSlots[slot] != 0) {
+				slot = slot + 1 & mask;
+			}
+			newSlots[slot] = id;
+		}
+		slots = newSlots;
+	}
+
+	private void ensurePoolCapacity(int capacity) {
+		if (capacity > pool.length) {
+			pool = Arrays.copyOf(pool, Math.max(capacity, pool.length * 2));
+		}
+	}
+
+	private boolean regionMatches(int offset, CharSequence text, int start, int length) {
+		final char[] p = pool;
+		for (int i = 0; i < length; i++) {
+			if (p[offset + i] != text.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean equalsObject(Object o1, Object o2) {
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compact storage of the tokens of a {@link DiffSource}, as parallel primitive arrays indexed by token index.<br>
+ * 
+ * For each token, we store its begin delimiter start index, the start and end indexes of the token itself, the end delimiter end index,
+ * and a 64-bit hash of the token (see {@link TokenInterner#hash(CharSequence, int, int)}).
+ */
+final class TokenTable {
+
+	int size;
+	int[] beginDelimStarts;
+	int[] tokenStarts;
+	int[] tokenEnds;
+	int[] endDelimEnds;
+	long[] hashes;
+
+	/** Tokens containing non-ASCII characters (only maintained for memory-mapped sources) */
+	BitSet nonAscii;
+
+	TokenTable(int capacity) {
+		capacity = Math.max(capacity, 16);
+		beginDelimStarts = new int[capacity];
+		tokenStarts = new int[capacity];
+		tokenEnds = new int[capacity];
+		endDelimEnds = new int[capacity];
+	}
+
+	void add(int beginDelimStart, int tokenStart, int tokenEnd, int endDelimEnd) {
+		if (size == tokenStarts.length) {
+			int newLength = size * 2;
+			beginDelimStarts = Arrays.copyOf(beginDelimStarts, newLength);
+			tokenStarts = Arrays.copyOf(tokenStarts, newLength);
+			tokenEnds = Arrays.copyOf(tokenEnds, newLength);
+			endDelimEnds = Arrays.copyOf(endDelimEnds, newLength);
+		}
+		beginDelimStarts[size] = beginDelimStart;
+		tokenStarts[size] = tokenStart;
+		tokenEnds[size] = tokenEnd;
+		endDelimEnds[size] = endDelimEnd;
+		size++;
+	}
+
+	/**
+	 * Compute hashes of all tokens, reading them in supplied text
+	 */
+	void computeHashes(CharSequence text) {
+		hashes = new long[size];
+		for (int i = 0; i < size; i++) {
+			hashes[i] = TokenInterner.hash(text, tokenStarts[i], tokenEnds[i]);
+		}
+	}
+
+	/**
+	 * Return index of token containing supplied text index
+	 */
+	int tokenIndexAt(int textIndex) {
+		int returned = Arrays.binarySearch(beginDelimStarts, 0, size, textIndex);
+		return returned >= 0 ? returned : -returned - 2;
+	}
+
+	/**
+	 * Return a new table made of tokens [0,first[ of this table, then tokens of supplied window, then tokens [end,size[ of this table
+	 * with their indexes shifted by delta. Hashes of window tokens must have been computed.
+	 */
+	TokenTable splice(int first, int end, TokenTable window, int delta) {
+		int suffix = size - end;
+		TokenTable returned = new TokenTable(first + window.size + suffix);
+		returned.size = first + window.size + suffix;
+		returned.hashes = new long[returned.size];
+		splice(beginDelimStarts, returned.beginDelimStarts, first, end, window.beginDelimStarts, window.size, delta);
+		splice(tokenStarts, returned.tokenStarts, first, end, window.tokenStarts, window.size, delta);
+		splice(tokenEnds, returned.tokenEnds, first, end, window.tokenEnds, window.size, delta);
+		splice(endDelimEnds, returned.endDelimEnds, first, end, window.endDelimEnds, window.size, delta);
+		System.arraycopy(hashes, 0, returned.hashes, 0, first);
+		System.arraycopy(window.hashes, 0, returned.hashes, first, window.size);
+		System.arraycopy(hashes, end, returned.hashes, first + window.size, suffix);
+		return returned;
+	}
+
+	/**
+	 * Copy indexes [0,first[ of from, indexes of window, then indexes [end,size[ of from shifted by delta, to supplied array
+	 */
+	private void splice(int[] from, int[] to, int first, int end, int[] window, int windowSize, int delta) {
+		System.arraycopy(from, 0, to, 0, first);
+		System.arraycopy(window, 0, to, first, windowSize);
+		int start = first + windowSize;
+		System.arraycopy(from, end, to, start, size - end);
+		if (delta != 0) {
+			for (int i = start + size - end - 1; i >= start; i--) {
+				to[i] += delta;
+			}
+		}
+	}
+
+	boolean isAscii(int index) {
+		return nonAscii == null || !nonAscii.get(index);
+	}
+
+}
@@ -0,0 +1,130 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compare sequences of any type, without wrapping their elements in objects redefining <code>equals</code> and <code>hashCode</code>.<br>
+ * 
+ * Elements are hashed and compared with a {@link HashingStrategy}, and interned into the equivalence numbers compared by {@link Diff}.
+ * Sequences of ints and longs have dedicated entry points, which never box their values. Comparisons run in the {@link DiffEngine} of
+ * current thread, and return compact {@link EditScript}s.
+ */
+public class TypedDiff<T> {
+
+	private final HashingStrategy<? super T> strategy;
+	private final DiffAlgorithm algorithm;
+
+	/**
+	 * Build a diff comparing elements with their <code>equals</code> and <code>hashCode</code> methods
+	 */
+	public TypedDiff() {
+		this(HashingStrategy.natural());
+	}
+
+	public TypedDiff(HashingStrategy<? super T> strategy) {
+		this(strategy, DiffAlgorithm.MYERS);
+	}
+
+	public TypedDiff(HashingStrategy<? super T> strategy, DiffAlgorithm algorithm) {
+		this.strategy = strategy;
+		this.algorithm = algorithm;
+	}
+
+	public HashingStrategy<? super T> getStrategy() {
+		return strategy;
+	}
+
+	public DiffAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	/**
+	 * Compute edit script between two lists
+	 */
+	public EditScript diff(List<? extends T> list0, List<? extends T> list1) {
+		return DiffEngine.forCurrentThread().editScript(list0, list1, strategy, algorithm);
+	}
+
+	/**
+	 * Compute edit script between two arrays
+	 */
+	public EditScript diff(T[] array0, T[] array1) {
+		return diff(Arrays.asList(array0), Arrays.asList(array1));
+	}
+
+	/**
+	 * Compute edit script between two int sequences
+	 */
+	public static EditScript diff(IntSequence sequence0, IntSequence sequence1) {
+		return diff(sequence0, sequence1, DiffAlgorithm.MYERS);
+	}
+
+	/**
+	 * Compute edit script between two int sequences, with supplied algorithm
+	 */
+	public static EditScript diff(IntSequence sequence0, IntSequence sequence1, DiffAlgorithm algorithm) {
+		return DiffEngine.forCurrentThread().editScript(sequence0, sequence1, algorithm);
+	}
+
+	/**
+	 * Compute edit script between two int arrays
+	 */
+	public static EditScript diff(int[] values0, int[] values1) {
+		return diff(IntSequence.of(values0), IntSequence.of(values1), DiffAlgorithm.MYERS);
+	}
+
+	/**
+	 * Compute edit script between two long arrays
+	 */
+	public static EditScript diff(long[] values0, long[] values1) {
+		return diff(values0, values1, DiffAlgorithm.MYERS);
+	}
+
+	/**
+	 * Compute edit script between two long arrays, with supplied algorithm
+	 */
+	public static EditScript diff(long[] values0, long[] values1, DiffAlgorithm algorithm) {
+		return DiffEngine.forCurrentThread().editScript(values0, values1, algorithm);
+	}
+
+}
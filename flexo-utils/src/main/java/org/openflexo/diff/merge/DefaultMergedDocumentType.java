@@ -42,6 +42,7 @@ package org.openflexo.diff.merge;
 import java.util.logging.Logger;
 
 import org.openflexo.diff.DelimitingMethod;
+import org.openflexo.diff.DiffAlgorithm;
 import org.openflexo.logging.FlexoLogger;
 import org.openflexo.toolbox.FileFormat;
 import org.openflexo.toolbox.FileFormat.TextFileFormat;
@@ -54,12 +55,19 @@ public class DefaultMergedDocumentType implements MergedDocumentType {
 	private final DelimitingMethod _delimitingMethod;
 	private final TokenMarkerStyle _style;
 	private final AutomaticMergeResolvingModelInterface _automaticMergeResolvingModel;
+	private final DiffAlgorithm _diffAlgorithm;
 
 	public DefaultMergedDocumentType(DelimitingMethod delimitingMethod, TokenMarkerStyle style,
 			AutomaticMergeResolvingModelInterface automaticMergeResolvingModel) {
+		this(delimitingMethod, style, automaticMergeResolvingModel, DiffAlgorithm.MYERS);
+	}
+
+	public DefaultMergedDocumentType(DelimitingMethod delimitingMethod, TokenMarkerStyle style,
+			AutomaticMergeResolvingModelInterface automaticMergeResolvingModel, DiffAlgorithm diffAlgorithm) {
 		_delimitingMethod = delimitingMethod;
 		_style = style;
 		_automaticMergeResolvingModel = automaticMergeResolvingModel;
+		_diffAlgorithm = diffAlgorithm;
 	}
 
 	@Override
@@ -77,6 +85,11 @@ public class DefaultMergedDocumentType implements MergedDocumentType {
 		return _automaticMergeResolvingModel;
 	}
 
+	@Override
+	public DiffAlgorithm getDiffAlgorithm() {
+		return _diffAlgorithm;
+	}
+
 	public static final MergedDocumentType LINES = new DefaultMergedDocumentType(DelimitingMethod.LINES, null,
 			new DefaultAutomaticMergeResolvingModel());
 
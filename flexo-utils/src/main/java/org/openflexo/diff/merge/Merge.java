@@ -47,8 +47,9 @@ import org.openflexo.diff.ComputeDiff;
 import org.openflexo.diff.ComputeDiff.DiffChange;
 import org.openflexo.diff.ComputeDiff.DiffReport;
 import org.openflexo.diff.DelimitingMethod;
+import org.openflexo.diff.DiffAlgorithm;
+import org.openflexo.diff.DiffMonitor;
 import org.openflexo.diff.DiffSource;
-import org.openflexo.diff.DiffSource.MergeToken;
 import org.openflexo.diff.merge.MergeChange.ChangeCategory;
 import org.openflexo.diff.merge.MergeChange.MergeChangeAction;
 import org.openflexo.diff.merge.MergeChange.MergeChangeResult;
@@ -69,7 +70,18 @@ public class Merge extends Observable implements IMerge {
 
 	private final MergedDocumentType _docType;
 
+	// Only set while changes are computed by constructor
+	private DiffMonitor _monitor;
+
 	public Merge(DiffSource original, DiffSource left, DiffSource right, MergedDocumentType docType) {
+		this(original, left, right, docType, null);
+	}
+
+	/**
+	 * Build merge, reporting progress of the computation of changes to supplied monitor (which may be null). Construction stops with a
+	 * {@link java.util.concurrent.CancellationException} as soon as the monitor is cancelled (see {@link MergeTask}).
+	 */
+	public Merge(DiffSource original, DiffSource left, DiffSource right, MergedDocumentType docType, DiffMonitor monitor) {
 		_docType = docType;
 		DelimitingMethod delimitingMethod = original.getDelimitingMethod();
 		if (left.getDelimitingMethod() != delimitingMethod || right.getDelimitingMethod() != delimitingMethod) {
@@ -78,7 +90,12 @@ public class Merge extends Observable implements IMerge {
 		_original = original;
 		_left = left;
 		_right = right;
-		computeChanges();
+		_monitor = monitor;
+		try {
+			computeChanges();
+		} finally {
+			_monitor = null;
+		}
 	}
 
 	public Merge(String original, String left, String right, MergedDocumentType docType) {
@@ -280,8 +297,18 @@ public class Merge extends Observable implements IMerge {
 	private Vector<DiffChange> processedChanges;
 
 	final protected void computeChanges() {
-		DiffReport leftReport = ComputeDiff.diff(_left, _original);
-		DiffReport rightReport = ComputeDiff.diff(_original, _right);
+		DiffAlgorithm algorithm = getDocumentType() != null ? getDocumentType().getDiffAlgorithm() : DiffAlgorithm.MYERS;
+		DiffReport leftReport;
+		DiffReport rightReport;
+		if (_monitor != null) {
+			leftReport = ComputeDiff.diff(_left, _original, algorithm, _monitor);
+			rightReport = ComputeDiff.diff(_original, _right, algorithm, _monitor);
+			_monitor.beginPhase(DiffMonitor.Phase.MERGING, _original.tokensCount());
+		}
+		else {
+			leftReport = ComputeDiff.diff(_left, _original, algorithm);
+			rightReport = ComputeDiff.diff(_original, _right, algorithm);
+		}
 		if (debug) {
 			System.out.println("left-diff:\n" + leftReport);
 		}
@@ -297,12 +324,17 @@ public class Merge extends Observable implements IMerge {
 		processedChanges = new Vector<>();
 		int lastProcessedChange = processedChanges.size();
 
-		boolean originalIsEmpty = _original.getTextTokens().length == 0;
+		boolean originalIsEmpty = _original.tokensCount() == 0;
 
-		while (currentLineNb < _original.getTextTokens().length || originalIsEmpty) {
+		while (currentLineNb < _original.tokensCount() || originalIsEmpty) {
 
 			originalIsEmpty = false;
 
+			if (_monitor != null) {
+				_monitor.checkCancelled();
+				_monitor.progress(currentLineNb);
+			}
+
 			if (currentLineNb == last && lastProcessedChange == processedChanges.size()) {
 				new Exception().printStackTrace();
 				System.err.println("Current:" + currentLineNb + " stopped on infinite loop");
@@ -316,7 +348,7 @@ public class Merge extends Observable implements IMerge {
 			DiffChange rightChange = getNextRightChangesFromLine(currentLineNb, rightReport);
 			DiffChange leftChange = getNextLeftChangesFromLine(currentLineNb, leftReport);
 			if (rightChange == null && leftChange == null) {
-				currentLineNb = _original.getTextTokens().length;
+				currentLineNb = _original.tokensCount();
 			}
 			else {
 				if (debug) {
@@ -623,16 +655,16 @@ public class Merge extends Observable implements IMerge {
 			addedLines += changeResult.tokensNb;
 			currentLine = change.getLast1() + 1;
 		}
-		appendLines(sb, currentLine, getOriginalSource().getTextTokens().length);
-		addedLines += getOriginalSource().getTextTokens().length - currentLine;
+		appendLines(sb, currentLine, getOriginalSource().tokensCount());
+		addedLines += getOriginalSource().tokensCount() - currentLine;
 		return sb.toString();
 	}
 
 	private void appendLines(StringBuffer sb, int begin, int end) {
-		for (int i = begin; i < end; i++) {
-			MergeToken mt = getOriginalSource().tokenAt(i);
-			if (mt != null)
-				sb.append(mt.getFullString());
+		DiffSource source = getOriginalSource();
+		int count = Math.min(end, source.tokensCount());
+		for (int i = begin; i < count; i++) {
+			source.appendFullString(i, sb);
 		}
 	}
 
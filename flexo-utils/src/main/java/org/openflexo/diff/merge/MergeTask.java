@@ -0,0 +1,74 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff.merge;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.openflexo.diff.DiffMonitor;
+import org.openflexo.diff.DiffSource;
+import org.openflexo.diff.DiffTask;
+
+/**
+ * A {@link Merge} computed asynchronously, which can be followed and cancelled (see {@link DiffTask})
+ */
+public class MergeTask extends DiffTask<Merge> {
+
+	protected MergeTask(final DiffSource original, final DiffSource left, final DiffSource right, final MergedDocumentType docType,
+			DiffMonitor.ProgressListener listener, Executor executor) {
+		super(monitor -> new Merge(original, left, right, docType, monitor), listener, executor);
+	}
+
+	/**
+	 * Compute merge in the common {@link ForkJoinPool}
+	 */
+	public static MergeTask merge(DiffSource original, DiffSource left, DiffSource right, MergedDocumentType docType) {
+		return merge(original, left, right, docType, null, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Compute merge in supplied executor, reporting progress to supplied listener (which may be null)
+	 */
+	public static MergeTask merge(DiffSource original, DiffSource left, DiffSource right, MergedDocumentType docType,
+			DiffMonitor.ProgressListener listener, Executor executor) {
+		return new MergeTask(original, left, right, docType, listener, executor);
+	}
+
+}
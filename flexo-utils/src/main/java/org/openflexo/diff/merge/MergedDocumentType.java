@@ -40,6 +40,7 @@
 package org.openflexo.diff.merge;
 
 import org.openflexo.diff.DelimitingMethod;
+import org.openflexo.diff.DiffAlgorithm;
 import org.openflexo.toolbox.TokenMarkerStyle;
 
 public interface MergedDocumentType {
@@ -51,4 +52,11 @@ public interface MergedDocumentType {
 	public AutomaticMergeResolvingModelInterface getAutomaticMergeResolvingModel();
 
 	public String getName();
+
+	/**
+	 * Return algorithm used to compute diffs of documents of this type
+	 */
+	public default DiffAlgorithm getDiffAlgorithm() {
+		return DiffAlgorithm.MYERS;
+	}
 }
@@ -221,15 +221,23 @@ public abstract class FileFormat {
 		return newVector;
 	}
 
-	/*
-	private static FileFormat getDefaultFileFormatByExtension(String extension) {
+	/**
+	 * Return first format registered for supplied extension (case is ignored), or an unknown format, which is neither binary nor an image
+	 */
+	public static FileFormat getDefaultFileFormatByExtension(String extension) {
 		List<FileFormat> list = getFileFormatByExtension(extension);
 		if (list.size() > 0) {
 			return list.get(0);
 		}
 		return UNKNOWN;
 	}
-	*/
+
+	/**
+	 * Return true if supplied format is the unknown format returned when no format is registered for an identifier or an extension
+	 */
+	public static boolean isUnknown(FileFormat format) {
+		return format == UNKNOWN;
+	}
 
 	private static void registerExtension(String extension, FileFormat fileFormat) {
 		List<FileFormat> returned = _fileFormatsByExtensions.get(extension);
@@ -0,0 +1,179 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestBinaryDelta extends TestCase {
+
+	private static byte[] randomBytes(Random random, int length) {
+		byte[] returned = new byte[length];
+		random.nextBytes(returned);
+		return returned;
+	}
+
+	/**
+	 * Insert, delete, overwrite and move a few regions of source
+	 */
+	private static byte[] edit(Random random, byte[] source) {
+		byte[] returned = Arrays.copyOf(source, source.length);
+		for (int i = 0; i < 5; i++) {
+			int at = random.nextInt(returned.length - 100);
+			int length = 1 + random.nextInt(100);
+			byte[] next;
+			switch (i % 3) {
+				case 0:
+					next = new byte[returned.length + length];
+					System.arraycopy(returned, 0, next, 0, at);
+					System.arraycopy(randomBytes(random, length), 0, next, at, length);
+					System.arraycopy(returned, at, next, at + length, returned.length - at);
+					break;
+				case 1:
+					next = new byte[returned.length - length];
+					System.arraycopy(returned, 0, next, 0, at);
+					System.arraycopy(returned, at + length, next, at, returned.length - at - length);
+					break;
+				default:
+					next = returned;
+					System.arraycopy(randomBytes(random, length), 0, next, at, length);
+			}
+			returned = next;
+		}
+		// Move a block to the end
+		byte[] moved = Arrays.copyOfRange(returned, 1000, 5000);
+		byte[] next = new byte[returned.length];
+		System.arraycopy(returned, 0, next, 0, 1000);
+		System.arraycopy(returned, 5000, next, 1000, returned.length - 5000);
+		System.arraycopy(moved, 0, next, returned.length - 4000, 4000);
+		return next;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(37);
+		for (int run = 0; run < 10; run++) {
+			byte[] source = randomBytes(random, 100000 + random.nextInt(200000));
+			byte[] target = edit(random, source);
+			byte[] delta = BinaryDelta.encode(source, target);
+			assertTrue(delta.length < target.length / 10);
+			assertTrue(Arrays.equals(target, BinaryDelta.apply(source, delta)));
+		}
+	}
+
+	@Test
+	public void testUnrelatedAndEmpty() throws IOException {
+		Random random = new Random(41);
+		byte[] source = randomBytes(random, 5000);
+		byte[] target = randomBytes(random, 7000);
+		assertTrue(Arrays.equals(target, BinaryDelta.apply(source, BinaryDelta.encode(source, target))));
+		assertTrue(Arrays.equals(target, BinaryDelta.apply(new byte[0], BinaryDelta.encode(new byte[0], target))));
+		assertEquals(0, BinaryDelta.apply(source, BinaryDelta.encode(source, new byte[0])).length);
+		byte[] repeated = new byte[100000];
+		assertTrue(Arrays.equals(repeated, BinaryDelta.apply(repeated, BinaryDelta.encode(repeated, repeated))));
+	}
+
+	@Test
+	public void testSmallIndex() throws IOException {
+		Random random = new Random(43);
+		byte[] source = randomBytes(random, 300000);
+		byte[] target = edit(random, source);
+		ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		BinaryDelta.encode(ByteBuffer.wrap(source), new ByteArrayInputStream(target), delta, 16, 1000);
+		assertTrue(Arrays.equals(target, BinaryDelta.apply(source, delta.toByteArray())));
+	}
+
+	@Test
+	public void testInvalidDeltas() throws IOException {
+		Random random = new Random(47);
+		byte[] source = randomBytes(random, 20000);
+		byte[] delta = BinaryDelta.encode(source, edit(random, source));
+		try {
+			BinaryDelta.apply(randomBytes(random, 20000), delta);
+			fail();
+		} catch (IOException e) {
+			// Expected: other source
+		}
+		byte[] corrupted = Arrays.copyOf(delta, delta.length);
+		corrupted[corrupted.length - 1] ^= 1;
+		try {
+			BinaryDelta.apply(source, corrupted);
+			fail();
+		} catch (IOException e) {
+			// Expected: checksum mismatch
+		}
+		try {
+			BinaryDelta.apply(source, Arrays.copyOf(delta, delta.length / 2));
+			fail();
+		} catch (IOException e) {
+			// Expected: truncated delta
+		}
+	}
+
+	@Test
+	public void testFiles() throws IOException {
+		Random random = new Random(53);
+		byte[] source = randomBytes(random, 50000);
+		byte[] target = edit(random, source);
+		File sourceFile = File.createTempFile("TestBinaryDelta", ".bin");
+		File targetFile = File.createTempFile("TestBinaryDelta", ".bin");
+		File deltaFile = File.createTempFile("TestBinaryDelta", ".delta");
+		File resultFile = File.createTempFile("TestBinaryDelta", ".bin");
+		for (File file : new File[] { sourceFile, targetFile, deltaFile, resultFile }) {
+			file.deleteOnExit();
+		}
+		Files.write(sourceFile.toPath(), source);
+		Files.write(targetFile.toPath(), target);
+		BinaryDelta.encode(sourceFile, targetFile, deltaFile);
+		BinaryDelta.apply(sourceFile, deltaFile, resultFile);
+		assertTrue(Arrays.equals(target, Files.readAllBytes(resultFile.toPath())));
+	}
+
+}
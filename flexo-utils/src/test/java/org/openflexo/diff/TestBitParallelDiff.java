@@ -0,0 +1,156 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestBitParallelDiff extends TestCase {
+
+	@Test
+	public void testBitParallelLength() {
+		Random random = new Random(12);
+		BitParallelDiff kernel = new BitParallelDiff();
+		int[] match0 = new int[64], match1 = new int[64];
+		for (int test = 0; test < 200; test++) {
+			int m = 1 + random.nextInt(64), n = 1 + random.nextInt(100);
+			int[] a = new int[m], b = new int[n];
+			for (int i = 0; i < m; i++) {
+				a[i] = 1 + random.nextInt(4);
+			}
+			for (int j = 0; j < n; j++) {
+				b[j] = 1 + random.nextInt(4);
+			}
+			int expected = lcs(a, b);
+			assertEquals(expected, kernel.lcsLength(a, 0, m, b, 0, n, 5));
+			int count = kernel.align(a, 0, m, b, 0, n, 5, match0, match1);
+			assertEquals(expected, count);
+			for (int k = 0; k < count; k++) {
+				assertEquals(a[match0[k]], b[match1[k]]);
+				if (k > 0) {
+					assertTrue(match0[k] > match0[k - 1] && match1[k] > match1[k - 1]);
+				}
+			}
+		}
+	}
+
+	private static int lcs(int[] a, int[] b) {
+		int[][] lengths = new int[a.length + 1][b.length + 1];
+		for (int i = 1; i <= a.length; i++) {
+			for (int j = 1; j <= b.length; j++) {
+				lengths[i][j] = a[i - 1] == b[j - 1] ? lengths[i - 1][j - 1] + 1 : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+			}
+		}
+		return lengths[a.length][b.length];
+	}
+
+	@Test
+	public void testMultiWordLength() {
+		Random random = new Random(7);
+		BitParallelDiff kernel = new BitParallelDiff();
+		for (int test = 0; test < 100; test++) {
+			int m = 1 + random.nextInt(300), n = 1 + random.nextInt(300);
+			int[] a = randomSymbols(random, m, 6), b = randomSymbols(random, n, 6);
+			int expected = lcs(a, b);
+			assertEquals(expected, kernel.lcsLength(a, 0, m, b, 0, n, 7));
+			assertEquals(m + n - 2 * expected, kernel.editDistance(a, 0, m, b, 0, n, 7));
+		}
+	}
+
+	@Test
+	public void testSimilarity() {
+		BitParallelDiff kernel = new BitParallelDiff();
+		assertEquals(1.0, kernel.similarity("", ""));
+		assertEquals(1.0, kernel.similarity("getName", "getName"));
+		assertEquals(0.0, kernel.similarity("abc", "xyz"));
+		assertEquals(2.0 * 4 / 13, kernel.similarity("kitten", "sitting"), 1e-9);
+		assertEquals(kernel.similarity("\u00e9t\u00e9", "\u00e9t\u00e0"), kernel.similarity("\u00e9t\u00e0", "\u00e9t\u00e9"));
+	}
+
+	@Test
+	public void testAlignmentPatternTooLong() {
+		BitParallelDiff kernel = new BitParallelDiff();
+		int[] a = new int[BitParallelDiff.MAX_PATTERN_LENGTH + 1];
+		int[] b = new int[BitParallelDiff.MAX_PATTERN_LENGTH + 2];
+		Arrays.fill(a, 1);
+		Arrays.fill(b, 1);
+		int[] matchA = new int[b.length], matchB = new int[b.length];
+		assertEquals(BitParallelDiff.MAX_PATTERN_LENGTH, kernel.align(a, 1, a.length - 1, b, 0, b.length, 2, matchA, matchB));
+		try {
+			kernel.align(a, 0, a.length, b, 0, b.length, 2, matchA, matchB);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testSmallInputs() {
+		Random random = new Random(3);
+		for (int test = 0; test < 50; test++) {
+			int[] a = randomSymbols(random, 1 + random.nextInt(60), 5), b = randomSymbols(random, 1 + random.nextInt(60), 5);
+			Diff myers = new Diff(a, b, 6);
+			Diff bitParallel = new Diff(a, b, 6);
+			bitParallel.bit_parallel = true;
+			assertEquals(cost(myers.diff_2(false)), cost(bitParallel.diff_2(false)));
+		}
+	}
+
+	private static int cost(Diff.change script) {
+		int returned = 0;
+		for (Diff.change c = script; c != null; c = c.link) {
+			returned += c.deleted + c.inserted;
+		}
+		return returned;
+	}
+
+	private static int[] randomSymbols(Random random, int length, int symbols) {
+		int[] returned = new int[length];
+		for (int i = 0; i < length; i++) {
+			returned[i] = 1 + random.nextInt(symbols);
+		}
+		return returned;
+	}
+
+}
@@ -0,0 +1,140 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestCompiledTokenizer extends TestCase {
+
+	private static final DelimitingMethod[] METHODS = { DelimitingMethod.LINES, DelimitingMethod.DEFAULT, DelimitingMethod.XML,
+			DelimitingMethod.JAVA, DelimitingMethod.SQL, DelimitingMethod.TEX };
+
+	@Test
+	public void testDelimiters() {
+		CompiledTokenizer tokenizer = DelimitingMethod.SQL.getTokenizer();
+		assertTrue(tokenizer.isDelimiter('('));
+		assertTrue(tokenizer.isDelimiter('\r'));
+		assertFalse(tokenizer.isDelimiter('a'));
+		assertFalse(tokenizer.isDelimiter('\u00e9'));
+		assertTrue(DelimitingMethod.LINES.getTokenizer().isLinesOnly());
+		assertFalse(tokenizer.isLinesOnly());
+		assertEquals(3, tokenizer.nextDelimiter("abc (d)", 0, 7));
+		assertEquals(4, tokenizer.nextDelimiter("abc (d)", 4, 7));
+		assertEquals(7, tokenizer.nextDelimiter("abc (d)", 7, 7));
+		CompiledTokenizer lines = DelimitingMethod.LINES.getTokenizer();
+		assertEquals(2, lines.nextDelimiter("ab\ncd\r", 0, 7));
+		assertEquals(5, lines.nextDelimiter("ab\ncd\r", 3, 7));
+		assertEquals(4, lines.nextDelimiter("ab\ncd\r", 3, 4));
+		assertEquals(4, lines.nextDelimiter(new StringBuilder("ab\ncd\r"), 3, 4));
+	}
+
+	@Test
+	public void testCustomMethodIsCompiled() {
+		DelimitingMethod custom = new DelimitingMethod() {
+			@Override
+			public String getDelimiters() {
+				return "\n\u00a7";
+			}
+
+			@Override
+			public String getNonSignifiantDelimiters() {
+				return DEFAULT_NON_SIGNIFIANT_DELIMS;
+			}
+
+			@Override
+			public String getName() {
+				return "CUSTOM";
+			}
+		};
+		assertSame(custom.getTokenizer(), CompiledTokenizer.forDelimiters("\n\u00a7"));
+		assertTrue(custom.getTokenizer().isDelimiter('\u00a7'));
+		assertFalse(custom.getTokenizer().isDelimiter('\u01a7'));
+		DiffSource source = new DiffSource("a\u00a7b\nc", custom);
+		assertEquals(3, source.tokensCount());
+		assertEquals("b", source.tokenValueAt(1));
+	}
+
+	@Test
+	public void testScanningPathsAgree() {
+		Random random = new Random(42);
+		String alphabet = "ab c\t\r\n\n=(;.<";
+		for (int n = 0; n < 200; n++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(200);
+			for (int i = 0; i < length; i++) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			String text = sb.toString();
+			ByteBuffer bytes = Charset.forName("US-ASCII").encode(text);
+			for (DelimitingMethod method : METHODS) {
+				CompiledTokenizer tokenizer = method.getTokenizer();
+				TokenTable expected = tokenizer.tokenize(text);
+				assertSameTokens(expected, tokenizer.tokenize(sb));
+				assertSameTokens(expected, tokenizer.tokenize(bytes));
+				int index = 0;
+				for (int i = 0; i < expected.size; i++) {
+					assertEquals(index, expected.beginDelimStarts[i]);
+					assertTrue(expected.beginDelimStarts[i] <= expected.tokenStarts[i]);
+					assertTrue(expected.tokenStarts[i] <= expected.tokenEnds[i]);
+					assertTrue(expected.tokenEnds[i] <= expected.endDelimEnds[i]);
+					index = expected.endDelimEnds[i];
+				}
+				assertEquals(text.length(), index);
+			}
+		}
+	}
+
+	private static void assertSameTokens(TokenTable expected, TokenTable table) {
+		assertEquals(expected.size, table.size);
+		for (int i = 0; i < expected.size; i++) {
+			assertEquals(expected.beginDelimStarts[i], table.beginDelimStarts[i]);
+			assertEquals(expected.tokenStarts[i], table.tokenStarts[i]);
+			assertEquals(expected.tokenEnds[i], table.tokenEnds[i]);
+			assertEquals(expected.endDelimEnds[i], table.endDelimEnds[i]);
+		}
+	}
+
+}
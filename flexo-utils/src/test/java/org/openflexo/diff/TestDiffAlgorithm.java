@@ -0,0 +1,257 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.AdditionChange;
+import org.openflexo.diff.ComputeDiff.DiffChange;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+import junit.framework.TestCase;
+
+public class TestDiffAlgorithm extends TestCase {
+
+	@Test
+	public void testRepeatedLines() {
+		String v1 = "class A {\n}\n\nclass B {\n}\n";
+		String v2 = "class A {\n}\n\nclass C {\n}\n\nclass B {\n}\n";
+		for (DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+			DiffReport report = ComputeDiff.diff(v1, v2, DelimitingMethod.LINES, algorithm);
+			assertEquals(1, report.getChanges().size());
+			assertTrue(report.getChanges().get(0) instanceof AdditionChange);
+			assertEquals(3, report.getChanges().get(0).getLast1() - report.getChanges().get(0).getFirst1() + 1);
+		}
+	}
+
+	@Test
+	public void testNoDifference() {
+		for (DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+			assertEquals(0, ComputeDiff.diff("a\nb\n", "a\nb\n", DelimitingMethod.LINES, algorithm).getChanges().size());
+			assertEquals(0, ComputeDiff.diff("", "", DelimitingMethod.LINES, algorithm).getChanges().size());
+		}
+	}
+
+	@Test
+	public void testRandomScriptsAreValid() {
+		Random random = new Random(42);
+		for (int run = 0; run < 300; run++) {
+			String v1 = randomText(random, random.nextInt(60));
+			String v2 = mutate(random, v1);
+			for (DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+				DiffSource source0 = new DiffSource(v1);
+				DiffSource source1 = new DiffSource(v2);
+				DiffReport report = ComputeDiff.diff(source0, source1, algorithm);
+				assertEquals(algorithm + " on\n" + v1 + "\nversus\n" + v2, lines(source1), apply(report, source0, source1));
+			}
+		}
+	}
+
+	@Test
+	public void testCostBound() {
+		Random random = new Random(7);
+		StringBuffer v1 = new StringBuffer();
+		StringBuffer v2 = new StringBuffer();
+		for (int i = 0; i < 3000; i++) {
+			v1.append("line" + random.nextInt(10) + "\n");
+			v2.append("line" + random.nextInt(10) + "\n");
+		}
+		DiffSource source0 = new DiffSource(v1.toString());
+		DiffSource source1 = new DiffSource(v2.toString());
+		assertTrue(ComputeDiff.diff(source0, source1).isMinimal());
+		DiffReport bounded = ComputeDiff.diff(source0, source1, DiffAlgorithm.MYERS, 20, 0);
+		assertFalse(bounded.isMinimal());
+		assertEquals(lines(source1), apply(bounded, source0, source1));
+		DiffReport timed = ComputeDiff.diff(source0, source1, DiffAlgorithm.MYERS, Integer.MAX_VALUE, 1);
+		assertEquals(lines(source1), apply(timed, source0, source1));
+	}
+
+	/**
+	 * Return texts X + U + Y and Y + U + X, where U is the only unique line, and each line of X and Y appears twice: a minimal script
+	 * keeps X or Y, at a cost of 2n+2, while anchoring on U costs 4n
+	 */
+	static String[] crossedTexts(int n) {
+		StringBuffer x = new StringBuffer();
+		StringBuffer y = new StringBuffer();
+		for (int i = 0; i < n; i++) {
+			x.append("x" + i / 2 + "\n");
+			y.append("y" + i / 2 + "\n");
+		}
+		return new String[] { x + "U\n" + y, y + "U\n" + x };
+	}
+
+	@Test
+	public void testOnlyMyersIsMinimal() {
+		String[] texts = crossedTexts(50);
+		DiffSource source0 = new DiffSource(texts[0]);
+		DiffSource source1 = new DiffSource(texts[1]);
+		EditScript myers = DiffEngine.forCurrentThread().editScript(source0, source1, DiffAlgorithm.MYERS);
+		assertEquals(102, myers.getDeletedCount() + myers.getInsertedCount());
+		assertTrue(myers.isMinimal());
+		assertTrue(ComputeDiff.diff(source0, source1, DiffAlgorithm.MYERS).isMinimal());
+		for (DiffAlgorithm algorithm : new DiffAlgorithm[] { DiffAlgorithm.PATIENCE, DiffAlgorithm.HISTOGRAM }) {
+			EditScript script = DiffEngine.forCurrentThread().editScript(source0, source1, algorithm);
+			assertEquals(200, script.getDeletedCount() + script.getInsertedCount());
+			assertFalse(script.isMinimal());
+			assertFalse(ComputeDiff.diff(source0, source1, algorithm).isMinimal());
+		}
+	}
+
+	@Test
+	public void testParallelIsMinimalOnlyWithoutAnchors() {
+		String[] texts = crossedTexts(5000);
+		DiffSource source0 = new DiffSource(texts[0]);
+		DiffSource source1 = new DiffSource(texts[1]);
+		DiffReport sequential = ComputeDiff.diff(source0, source1);
+		assertTrue(sequential.isMinimal());
+		assertEquals(10002, cost(sequential));
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			DiffReport parallel = ComputeDiff.diff(source0, source1, DiffAlgorithm.MYERS, pool);
+			assertEquals(20000, cost(parallel));
+			assertFalse(parallel.isMinimal());
+			DiffReport small = ComputeDiff.diff(new DiffSource("a\nb\nc\n"), new DiffSource("a\nc\nd\n"), DiffAlgorithm.MYERS, pool);
+			assertTrue(small.isMinimal());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static int cost(DiffReport report) {
+		int returned = 0;
+		for (DiffChange change : report.getChanges()) {
+			returned += change.getLast0() - change.getFirst0() + 1 + change.getLast1() - change.getFirst1() + 1;
+		}
+		return returned;
+	}
+
+	@Test
+	public void testParallel() {
+		Random random = new Random(3);
+		StringBuffer text = new StringBuffer();
+		for (int i = 0; i < 20000; i++) {
+			text.append(random.nextInt(3) == 0 ? randomLine(random) + "\n" : "unique" + i + "\n");
+		}
+		String v1 = text.toString();
+		String v2 = mutate(random, v1);
+		DiffSource source0 = new DiffSource(v1);
+		DiffSource source1 = new DiffSource(v2);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+				DiffReport report = ComputeDiff.diff(source0, source1, algorithm, pool);
+				assertEquals(lines(source1), apply(report, source0, source1));
+			}
+			DiffReport small = ComputeDiff.diff(new DiffSource("a\nb\nc\n"), new DiffSource("a\nc\nd\n"), DiffAlgorithm.MYERS, pool);
+			assertEquals(ComputeDiff.diff("a\nb\nc\n", "a\nc\nd\n").toString(), small.toString());
+			assertEquals(0, ComputeDiff.diffInParallel(source0, new DiffSource(v1)).getChanges().size());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Apply the report to tokens of first source, and return resulting tokens
+	 */
+	static List<String> apply(DiffReport report, DiffSource source0, DiffSource source1) {
+		List<String> returned = new ArrayList<>();
+		int current = 0;
+		for (DiffChange change : report.getChanges()) {
+			for (int i = current; i < change.getFirst0(); i++) {
+				returned.add(source0.tokenValueAt(i));
+			}
+			for (int i = change.getFirst1(); i <= change.getLast1(); i++) {
+				returned.add(source1.tokenValueAt(i));
+			}
+			current = change.getLast0() + 1;
+		}
+		for (int i = current; i < source0.tokensCount(); i++) {
+			returned.add(source0.tokenValueAt(i));
+		}
+		return returned;
+	}
+
+	static List<String> lines(DiffSource source) {
+		List<String> returned = new ArrayList<>();
+		for (int i = 0; i < source.tokensCount(); i++) {
+			returned.add(source.tokenValueAt(i));
+		}
+		return returned;
+	}
+
+	static String randomText(Random random, int lines) {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < lines; i++) {
+			sb.append(randomLine(random) + "\n");
+		}
+		return sb.toString();
+	}
+
+	static String randomLine(Random random) {
+		switch (random.nextInt(4)) {
+			case 0:
+				return "}";
+			case 1:
+				return "";
+			default:
+				return "line" + random.nextInt(20);
+		}
+	}
+
+	static String mutate(Random random, String text) {
+		String[] lines = text.split("\n", -1);
+		StringBuffer sb = new StringBuffer();
+		for (String line : lines) {
+			int r = random.nextInt(10);
+			if (r == 0) {
+				continue;
+			}
+			if (r == 1) {
+				sb.append(randomLine(random) + "\n");
+			}
+			sb.append(line.length() > 0 || r > 5 ? line + "\n" : "");
+		}
+		return sb.toString();
+	}
+}
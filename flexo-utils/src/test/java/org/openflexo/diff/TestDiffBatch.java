@@ -0,0 +1,92 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+import junit.framework.TestCase;
+
+public class TestDiffBatch extends TestCase {
+
+	@Test
+	public void testBatchSameAsSingleDiffs() {
+		Random random = new Random(11);
+		String baseline = TestDiffAlgorithm.randomText(random, 200);
+		List<DiffSource> variants = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			variants.add(new DiffSource(TestDiffAlgorithm.mutate(random, baseline)));
+		}
+		DiffSource baselineSource = new DiffSource(baseline);
+		DiffBatch batch = new DiffBatch(baselineSource);
+		List<DiffReport> sequential = batch.diff(variants);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<DiffReport> parallel = batch.diff(variants, pool);
+			assertEquals(variants.size(), sequential.size());
+			assertEquals(variants.size(), parallel.size());
+			for (int i = 0; i < variants.size(); i++) {
+				String expected = ComputeDiff.diff(baselineSource, variants.get(i)).toString();
+				assertEquals(expected, sequential.get(i).toString());
+				assertEquals(expected, parallel.get(i).toString());
+				assertEquals(TestDiffAlgorithm.lines(variants.get(i)),
+						TestDiffAlgorithm.apply(parallel.get(i), baselineSource, variants.get(i)));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSharedDictionary() {
+		PreparedDiffSource prepared = new PreparedDiffSource(new DiffSource("a\nb\nc\n"));
+		assertEquals(3, prepared.getInterner().size());
+		prepared.diff(new DiffSource("a\nb\nd\n"));
+		prepared.diff(new DiffSource("a\nd\nc\n"), DiffAlgorithm.HISTOGRAM);
+		assertEquals(4, prepared.getInterner().size());
+		assertEquals(1, prepared.diff(new DiffSource("b\nc\n")).getChanges().size());
+	}
+
+}
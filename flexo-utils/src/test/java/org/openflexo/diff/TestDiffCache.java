@@ -0,0 +1,127 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+import junit.framework.TestCase;
+
+public class TestDiffCache extends TestCase {
+
+	@Test
+	public void testHitsAndMisses() {
+		DiffCache cache = new DiffCache();
+		DiffReport report = cache.diff("a\nb\n", "a\nc\n");
+		assertEquals(ComputeDiff.diff("a\nb\n", "a\nc\n").toString(), report.toString());
+		assertSame(report, cache.diff("a\nb\n", "a\nc\n"));
+		assertNotSame(report, cache.diff("a\nb\n", "a\nc\n", DelimitingMethod.DEFAULT));
+		assertNotSame(report, cache.diff("a\nb\n", "a\nc\n", DelimitingMethod.LINES, 1));
+		assertNotSame(report, cache.diff("a\nb\n", "a\nd\n"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+		assertEquals(4, cache.size());
+		assertTrue(cache.getMemoryUsage() > 0);
+	}
+
+	@Test
+	public void testReportsAreImmutable() {
+		DiffReport report = new DiffCache().diff("a\nb\n", "a\nc\n");
+		assertTrue(report.isImmutable());
+		assertFalse(ComputeDiff.diff("a\nb\n", "a\nc\n").isImmutable());
+		try {
+			report.getChanges().clear();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+		try {
+			report.getChanges().get(0).setFirst0(0);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+		assertEquals("c\n", report.getChanges().get(0).getAddedString());
+	}
+
+	@Test
+	public void testCachedReportsDoNotDependOnSuppliedSources() {
+		DiffCache cache = new DiffCache();
+		DiffSource s0 = new DiffSource("a\nb\nc\n");
+		DiffSource s1 = new DiffSource("a\nB\nc\n");
+		DiffReport report = cache.diff(s0, s1, DiffAlgorithm.MYERS);
+		s0.updateWith("q\nr\ns\nt\n");
+		DiffReport cached = cache.diff(new DiffSource("a\nb\nc\n"), new DiffSource("a\nB\nc\n"), DiffAlgorithm.MYERS);
+		assertSame(report, cached);
+		assertEquals("b\n", cached.getChanges().get(0).getRemovedString());
+		assertEquals("B\n", cached.getChanges().get(0).getAddedString());
+	}
+
+	@Test
+	public void testKeyIncludesBothSources() {
+		DiffCache cache = new DiffCache();
+		DiffReport report = cache.diff(new DiffSource("a b\n"), new DiffSource("a c\n"), DiffAlgorithm.MYERS);
+		DiffReport mixed = cache.diff(new DiffSource("a b\n"), new DiffSource("a c\n", DelimitingMethod.DEFAULT), DiffAlgorithm.MYERS);
+		assertNotSame(report, mixed);
+		assertEquals(0, cache.getHitCount());
+		mixed = cache.diff(new DiffSource("a b\n"), new DiffSource("a c\n", 2), DiffAlgorithm.MYERS);
+		assertNotSame(report, mixed);
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testEviction() {
+		DiffCache cache = new DiffCache(2, Long.MAX_VALUE);
+		DiffReport first = cache.diff("a\n", "b\n");
+		cache.diff("a\n", "c\n");
+		cache.diff("a\n", "b\n");
+		cache.diff("a\n", "d\n");
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		// Least recently used entry was evicted
+		assertSame(first, cache.diff("a\n", "b\n"));
+		assertNotSame(cache.diff("a\n", "c\n"), cache.diff("a\n", "d\n"));
+
+		DiffCache small = new DiffCache(100, 1);
+		small.diff("a\n", "b\n");
+		assertEquals(0, small.size());
+	}
+
+}
@@ -0,0 +1,98 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffChange;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+import junit.framework.TestCase;
+
+public class TestDiffConsumer extends TestCase {
+
+	@Test
+	public void testConsumerAndStreamMatchReport() {
+		Random random = new Random(17);
+		for (int run = 0; run < 50; run++) {
+			String v0 = TestDiffAlgorithm.randomText(random, random.nextInt(50));
+			String v1 = TestDiffAlgorithm.mutate(random, v0);
+			DiffSource source0 = new DiffSource(v0);
+			DiffSource source1 = new DiffSource(v1);
+			String expected = ComputeDiff.diff(source0, source1).toString();
+
+			final List<DiffChange> consumed = new ArrayList<>();
+			ComputeDiff.diff(source0, source1, consumed::add);
+			assertEquals(expected, toString(consumed));
+
+			List<DiffChange> streamed = ComputeDiff.changes(source0, source1).collect(Collectors.toList());
+			assertEquals(expected, toString(streamed));
+		}
+	}
+
+	@Test
+	public void testLazyText() {
+		DiffReport report = ComputeDiff.diff("a\nb\nc\n", "a\nx\ny\nc\nd\n");
+		assertEquals(2, report.getChanges().size());
+		DiffChange modification = report.getChanges().get(0);
+		assertEquals("b\n", modification.getRemovedString());
+		assertEquals("x\ny\n", modification.getAddedString());
+		DiffChange addition = report.getChanges().get(1);
+		assertNull(addition.getRemovedString());
+		assertEquals("d\n", addition.getAddedString());
+		assertEquals(1, report.stream().filter(c -> c instanceof ComputeDiff.AdditionChange).count());
+	}
+
+	private static String toString(List<DiffChange> changes) {
+		if (changes.isEmpty()) {
+			return "DiffReport: no changes";
+		}
+		StringBuffer returned = new StringBuffer();
+		for (DiffChange c : changes) {
+			returned.append(c + "\n");
+		}
+		return returned.toString();
+	}
+
+}
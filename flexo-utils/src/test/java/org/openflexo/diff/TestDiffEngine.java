@@ -0,0 +1,99 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffChange;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+import junit.framework.TestCase;
+
+public class TestDiffEngine extends TestCase {
+
+	@Test
+	public void testSameResultsAsComputeDiff() {
+		Random random = new Random(5);
+		DiffEngine engine = new DiffEngine();
+		for (int run = 0; run < 200; run++) {
+			// Alternate large and small inputs, so that buffers are reused with stale contents
+			int lines = run % 3 == 0 ? 300 : random.nextInt(40);
+			DiffSource v1 = new DiffSource(TestDiffAlgorithm.randomText(random, lines), DelimitingMethod.LINES);
+			DiffSource v2 = new DiffSource(TestDiffAlgorithm.randomText(random, lines + random.nextInt(10)), DelimitingMethod.LINES);
+			for (DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+				DiffReport expected = ComputeDiff.diff(v1, v2, algorithm);
+				DiffReport report = engine.diff(v1, v2, algorithm);
+				assertEquals(expected.toString(), report.toString());
+				assertEquals(expected.isMinimal(), report.isMinimal());
+			}
+		}
+	}
+
+	@Test
+	public void testConsumer() {
+		DiffSource v1 = new DiffSource("a\nb\nc\n", DelimitingMethod.LINES);
+		DiffSource v2 = new DiffSource("a\nx\nc\nd\n", DelimitingMethod.LINES);
+		List<DiffChange> changes = new ArrayList<DiffChange>();
+		DiffEngine.forCurrentThread().diff(v1, v2, DiffAlgorithm.MYERS, changes::add);
+		assertEquals(ComputeDiff.diff(v1, v2).getChanges().toString(), changes.toString());
+	}
+
+	@Test
+	public void testPartialArrays() {
+		int[] a = { 1, 2, 3, 4, 9, 9 };
+		int[] b = { 1, 3, 4, 5, 9 };
+		Diff.change script = new DiffEngine().diff(a, 4, b, 4, 10, DiffAlgorithm.MYERS);
+		assertEquals(1, script.line0);
+		assertEquals(1, script.deleted);
+		assertEquals(0, script.inserted);
+		assertEquals(4, script.link.line0);
+		assertEquals(1, script.link.inserted);
+		assertNull(script.link.link);
+	}
+
+	@Test
+	public void testForCurrentThread() {
+		assertSame(DiffEngine.forCurrentThread(), DiffEngine.forCurrentThread());
+	}
+
+}
@@ -0,0 +1,152 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+import junit.framework.TestCase;
+
+public class TestDiffPrint extends TestCase {
+
+	private static final String TEXT0 = "a\nb\nc\nd\ne\nf\ng\nh\ni\nj\nk\nl\nm\nn\n";
+	private static final String TEXT1 = "a\nb\nC\nd\ne\nf\ng\nh\ni\nj\nk\nl\nn\nN\n";
+
+	@Test
+	public void testUnified() throws IOException {
+		String[] a = DiffPrint.slurpString(TEXT0);
+		String[] b = DiffPrint.slurpString(TEXT1);
+		StringWriter out = new StringWriter();
+		DiffPrint.UnifiedPrint printer = new DiffPrint.UnifiedPrint(a, b, out);
+		printer.print_header("a.txt", "b.txt");
+		printer.print_script(new Diff(a, b).diff_2(false));
+		assertNull(printer.getDiffResult());
+		assertEquals("--- a.txt\n+++ b.txt\n@@ -1,6 +1,6 @@\n a\n b\n-c\n+C\n d\n e\n f\n@@ -10,5 +10,5 @@\n j\n k\n l\n-m\n n\n+N\n",
+				out.toString());
+	}
+
+	@Test
+	public void testContext() throws IOException {
+		String[] a = DiffPrint.slurpString("a\nb\nc\n");
+		String[] b = DiffPrint.slurpString("a\nB\nc\nd\n");
+		StringWriter out = new StringWriter();
+		new DiffPrint.ContextPrint(a, b, out).print_script(new Diff(a, b).diff_2(false));
+		assertEquals("***************\n*** 1,3 ****\n  a\n! b\n  c\n--- 1,4 ----\n  a\n! B\n  c\n+ d\n", out.toString());
+	}
+
+	@Test
+	public void testNearChangesShareHunk() throws IOException {
+		String[] a = DiffPrint.slurpString(TEXT0);
+		String[] b = DiffPrint.slurpString(TEXT1);
+		StringWriter out = new StringWriter();
+		DiffPrint.UnifiedPrint printer = new DiffPrint.UnifiedPrint(a, b, out);
+		printer.context = 5;
+		printer.print_script(new Diff(a, b).diff_2(false));
+		assertEquals(1, out.toString().split("@@ -").length - 1);
+	}
+
+	@Test
+	public void testEditScriptAndSources() throws IOException {
+		DiffSource source0 = new DiffSource(TEXT0);
+		DiffSource source1 = new DiffSource(TEXT1);
+		String[] a = DiffPrint.slurpString(TEXT0);
+		String[] b = DiffPrint.slurpString(TEXT1);
+		StringWriter expected = new StringWriter();
+		new DiffPrint.UnifiedPrint(a, b, expected).print_script(new Diff(a, b).diff_2(false));
+		StringWriter out = new StringWriter();
+		new DiffPrint.UnifiedPrint(source0, source1, out).print_script(ComputeDiff.editScript(source0, source1));
+		assertEquals(expected.toString(), out.toString());
+
+		expected = new StringWriter();
+		new DiffPrint.NormalPrint(a, b, expected).print_script(new Diff(a, b).diff_2(false));
+		out = new StringWriter();
+		new DiffPrint.NormalPrint(source0, source1, out).print_script(ComputeDiff.editScript(source0, source1));
+		assertEquals(expected.toString(), out.toString());
+
+		expected = new StringWriter();
+		new DiffPrint.EdPrint(a, b, expected).print_script(new Diff(a, b).diff_2(true));
+		out = new StringWriter();
+		new DiffPrint.EdPrint(source0, source1, out).print_script(ComputeDiff.editScript(source0, source1));
+		assertEquals(expected.toString(), out.toString());
+	}
+
+	@Test
+	public void testNormalStillAccumulates() throws IOException {
+		String[] a = DiffPrint.slurpString("a\nb\n");
+		String[] b = DiffPrint.slurpString("a\nc\n");
+		DiffPrint.LinePrint printer = new DiffPrint.LinePrint(a, b);
+		printer.print_script(new Diff(a, b).diff_2(false));
+		assertEquals("2c2\n< b\n---\n> c\n", printer.getDiffResult());
+	}
+
+	@Test
+	public void testUnifiedFiles() throws IOException {
+		Charset charset = Charset.forName("UTF-8");
+		File file0 = File.createTempFile("TestDiffPrint", ".txt");
+		File file1 = File.createTempFile("TestDiffPrint", ".txt");
+		file0.deleteOnExit();
+		file1.deleteOnExit();
+		Files.write(file0.toPath(), "\u00e9t\u00e9\nhiver\n".getBytes(charset));
+		Files.write(file1.toPath(), "\u00e9t\u00e9\nautomne\n".getBytes(charset));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertTrue(DiffPrint.unifiedDiff(file0, file1, out, charset));
+		assertEquals("--- " + file0.getPath() + "\n+++ " + file1.getPath() + "\n@@ -1,2 +1,2 @@\n \u00e9t\u00e9\n-hiver\n+automne\n",
+				new String(out.toByteArray(), charset));
+		out.reset();
+		assertFalse(DiffPrint.unifiedDiff(file0, file0, out, charset));
+		assertEquals(0, out.size());
+	}
+
+	@Test
+	public void testReportWrite() throws IOException {
+		DiffReport report = ComputeDiff.diff(TEXT0, TEXT1);
+		StringWriter out = new StringWriter();
+		report.write(out);
+		assertEquals(report.toString(), out.toString());
+	}
+
+}
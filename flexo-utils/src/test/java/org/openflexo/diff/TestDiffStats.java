@@ -0,0 +1,104 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffChange;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+import junit.framework.TestCase;
+
+public class TestDiffStats extends TestCase {
+
+	@Test
+	public void testSameCountsAsReport() {
+		Random random = new Random(17);
+		for (int run = 0; run < 200; run++) {
+			DiffSource v1 = new DiffSource(TestDiffAlgorithm.randomText(random, random.nextInt(150)), DelimitingMethod.LINES);
+			DiffSource v2 = new DiffSource(TestDiffAlgorithm.randomText(random, random.nextInt(150)), DelimitingMethod.LINES);
+			DiffReport report = ComputeDiff.diff(v1, v2);
+			DiffStats stats = ComputeDiff.stats(v1, v2);
+			assertFalse(stats.isExceeded());
+			assertEquals(report.getAdditionChangeCount(), stats.getAdditionChangeCount());
+			assertEquals(report.getRemovalChangeCount(), stats.getRemovalChangeCount());
+			assertEquals(report.getModificationChangeCount(), stats.getModificationChangeCount());
+			int cost = 0;
+			for (DiffChange change : report.getChanges()) {
+				cost += change.getLast0() - change.getFirst0() + 1 + change.getLast1() - change.getFirst1() + 1;
+			}
+			assertEquals(cost, stats.getCost());
+			assertEquals(stats.toString(), DiffEngine.forCurrentThread().stats(v1, v2, 1.0).toString());
+		}
+	}
+
+	@Test
+	public void testThreshold() {
+		Random random = new Random(19);
+		for (int run = 0; run < 200; run++) {
+			DiffSource v1 = new DiffSource(TestDiffAlgorithm.randomText(random, random.nextInt(150)), DelimitingMethod.LINES);
+			DiffSource v2 = new DiffSource(TestDiffAlgorithm.randomText(random, random.nextInt(150)), DelimitingMethod.LINES);
+			double maxDissimilarity = random.nextDouble();
+			DiffStats full = ComputeDiff.stats(v1, v2);
+			DiffStats bounded = ComputeDiff.stats(v1, v2, maxDissimilarity);
+			assertEquals(1.0 - full.getSimilarity() > maxDissimilarity, bounded.isExceeded());
+			if (bounded.isExceeded()) {
+				assertEquals(-1, bounded.getChangeCount());
+				assertTrue(bounded.getCost() <= full.getCost());
+				assertTrue(1.0 - bounded.getSimilarity() > maxDissimilarity);
+			}
+			else {
+				assertEquals(full.toString(), bounded.toString());
+			}
+		}
+	}
+
+	@Test
+	public void testSimilarity() {
+		assertEquals(1.0, ComputeDiff.similarity("a\nb\nc\n", "a\nb\nc\n"));
+		assertEquals(1.0, ComputeDiff.similarity("", ""));
+		assertEquals(0.0, ComputeDiff.similarity("a\nb\n", "c\nd\n"));
+		assertEquals(0.75, ComputeDiff.similarity("a\nb\nc\nd\n", "a\nb\nc\ne\n"));
+		DiffStats stats = ComputeDiff.stats(new DiffSource("a\nb\n"), new DiffSource("x\ny\nz\nt\nu\nv\n"), 0.5);
+		assertTrue(stats.isExceeded());
+	}
+
+}
@@ -0,0 +1,191 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+import org.openflexo.diff.merge.DefaultMergedDocumentType;
+import org.openflexo.diff.merge.Merge;
+import org.openflexo.diff.merge.MergeTask;
+
+import junit.framework.TestCase;
+
+public class TestDiffTask extends TestCase {
+
+	/**
+	 * Executor running tasks when asked to
+	 */
+	private static class ManualExecutor implements Executor {
+		private final List<Runnable> tasks = new ArrayList<>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		void runAll() {
+			for (Runnable task : tasks) {
+				task.run();
+			}
+			tasks.clear();
+		}
+	}
+
+	@Test
+	public void testDiffTask() throws InterruptedException, ExecutionException {
+		Random random = new Random(21);
+		DiffSource source0 = new DiffSource(TestDiffAlgorithm.randomText(random, 2000));
+		DiffSource source1 = new DiffSource(TestDiffAlgorithm.mutate(random, source0.getText()));
+		final List<DiffMonitor.Phase> phases = new ArrayList<>();
+		final long[] lastComparing = new long[2];
+		ManualExecutor executor = new ManualExecutor();
+		DiffTask<DiffReport> task = DiffTask.diff(source0, source1, DiffAlgorithm.MYERS, (phase, processed, total) -> {
+			if (phases.isEmpty() || phases.get(phases.size() - 1) != phase) {
+				phases.add(phase);
+			}
+			if (phase == DiffMonitor.Phase.COMPARING) {
+				assertTrue(processed >= lastComparing[0]);
+				lastComparing[0] = processed;
+				lastComparing[1] = total;
+			}
+		}, executor);
+		assertFalse(task.isDone());
+		executor.runAll();
+		assertTrue(task.isDone());
+		assertEquals(ComputeDiff.diff(source0, source1).toString(), task.getFuture().get().toString());
+		assertEquals(DiffMonitor.Phase.DONE, task.getMonitor().getPhase());
+		assertEquals(4, phases.size());
+		assertEquals(DiffMonitor.Phase.TOKENIZING, phases.get(0));
+		assertEquals(DiffMonitor.Phase.COMPARING, phases.get(1));
+		assertEquals(DiffMonitor.Phase.DONE, phases.get(3));
+		// All tokens of both sources were processed by comparison
+		assertEquals(source0.tokensCount() + source1.tokensCount(), lastComparing[1]);
+		assertTrue(lastComparing[0] > lastComparing[1] * 9 / 10);
+	}
+
+	@Test
+	public void testCancelBeforeStart() {
+		ManualExecutor executor = new ManualExecutor();
+		DiffTask<DiffReport> task = DiffTask.diff(new DiffSource("a\nb\n"), new DiffSource("a\nc\n"), DiffAlgorithm.MYERS, null, executor);
+		assertTrue(task.cancel());
+		executor.runAll();
+		assertTrue(task.isCancelled());
+		assertNull(task.getMonitor().getPhase());
+	}
+
+	@Test
+	public void testCancelDuringComparison() {
+		Random random = new Random(22);
+		DiffSource source0 = new DiffSource(TestDiffAlgorithm.randomText(random, 2000));
+		DiffSource source1 = new DiffSource(TestDiffAlgorithm.randomText(random, 2000));
+		final DiffMonitor[] monitor = new DiffMonitor[1];
+		ManualExecutor executor = new ManualExecutor();
+		DiffTask<DiffReport> task = DiffTask.diff(source0, source1, DiffAlgorithm.MYERS, (phase, processed, total) -> {
+			if (phase == DiffMonitor.Phase.COMPARING && processed > 0) {
+				monitor[0].cancel();
+			}
+		}, executor);
+		monitor[0] = task.getMonitor();
+		executor.runAll();
+		assertTrue(task.isCancelled());
+		assertEquals(DiffMonitor.Phase.COMPARING, task.getMonitor().getPhase());
+		assertTrue(task.getMonitor().getProcessed() < task.getMonitor().getTotal());
+		try {
+			task.getFuture().join();
+			fail();
+		} catch (CancellationException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testCancelThroughFuture() {
+		ManualExecutor executor = new ManualExecutor();
+		DiffTask<DiffReport> task = DiffTask.diff(new DiffSource("a\nb\n"), new DiffSource("a\nc\n"), DiffAlgorithm.MYERS, null, executor);
+		task.getFuture().cancel(true);
+		assertTrue(task.getMonitor().isCancelled());
+	}
+
+	@Test
+	public void testMergeTask() throws InterruptedException, ExecutionException {
+		Random random = new Random(23);
+		String original = TestDiffAlgorithm.randomText(random, 500);
+		String left = TestDiffAlgorithm.mutate(random, original);
+		String right = TestDiffAlgorithm.mutate(random, original);
+		Merge expected = new Merge(original, left, right, DefaultMergedDocumentType.LINES);
+		final List<DiffMonitor.Phase> phases = new ArrayList<>();
+		ManualExecutor executor = new ManualExecutor();
+		MergeTask task = MergeTask.merge(new DiffSource(original), new DiffSource(left), new DiffSource(right),
+				DefaultMergedDocumentType.LINES, (phase, processed, total) -> {
+					if (phases.isEmpty() || phases.get(phases.size() - 1) != phase) {
+						phases.add(phase);
+					}
+				}, executor);
+		executor.runAll();
+		assertEquals(expected.toString(), task.getFuture().get().toString());
+		assertTrue(phases.contains(DiffMonitor.Phase.MERGING));
+	}
+
+	@Test
+	public void testCancelDuringMerge() {
+		Random random = new Random(24);
+		String original = TestDiffAlgorithm.randomText(random, 500);
+		final DiffMonitor[] monitor = new DiffMonitor[1];
+		ManualExecutor executor = new ManualExecutor();
+		MergeTask task = MergeTask.merge(new DiffSource(original), new DiffSource(TestDiffAlgorithm.mutate(random, original)),
+				new DiffSource(TestDiffAlgorithm.mutate(random, original)), DefaultMergedDocumentType.LINES, (phase, processed, total) -> {
+					if (phase == DiffMonitor.Phase.MERGING) {
+						monitor[0].cancel();
+					}
+				}, executor);
+		monitor[0] = task.getMonitor();
+		executor.runAll();
+		assertTrue(task.isCancelled());
+		assertEquals(DiffMonitor.Phase.MERGING, task.getMonitor().getPhase());
+	}
+
+}
@@ -0,0 +1,147 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.openflexo.diff.DirectoryDiff.FileDiff;
+import org.openflexo.diff.DirectoryDiff.Status;
+
+import junit.framework.TestCase;
+
+public class TestDirectoryDiff extends TestCase {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static void write(Path root, String path, String contents) throws IOException {
+		write(root, path, contents.getBytes(UTF_8));
+	}
+
+	private static void write(Path root, String path, byte[] contents) throws IOException {
+		Path file = root.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, contents);
+		file.toFile().deleteOnExit();
+	}
+
+	private static Path[] makeTrees() throws IOException {
+		Path root0 = Files.createTempDirectory("TestDirectoryDiff");
+		Path root1 = Files.createTempDirectory("TestDirectoryDiff");
+		write(root0, "same.txt", "a\nb\n");
+		write(root1, "same.txt", "a\nb\n");
+		write(root0, "src/A.java", "class A {\n\tint a = 1;\n}\n");
+		write(root1, "src/A.java", "class A {\n\tint a = 2;\n}\n");
+		write(root0, "src/deep/notes.txt", "one\ntwo\nthree\n");
+		write(root1, "src/deep/notes.txt", "one\nTWO\nthree\n");
+		write(root0, "src/deep/README", "no extension\n");
+		write(root1, "src/deep/README", "no  extension\n");
+		write(root0, "data.bin", new byte[] { 1, 0, 2, 3 });
+		write(root1, "data.bin", new byte[] { 1, 0, 2, 4 });
+		write(root0, "removed.xml", "<a/>\n");
+		write(root1, "added.sql", "SELECT 1;\n");
+		return new Path[] { root0, root1 };
+	}
+
+	@Test
+	public void testCompare() throws IOException {
+		Path[] roots = makeTrees();
+		List<FileDiff> diffs = new DirectoryDiff(roots[0].toFile(), roots[1].toFile()).compare();
+		assertEquals(6, diffs.size());
+
+		assertEquals("added.sql", diffs.get(0).getPath());
+		assertEquals(Status.ADDED, diffs.get(0).getStatus());
+		assertNull(diffs.get(0).getFile0());
+
+		assertEquals("data.bin", diffs.get(1).getPath());
+		assertEquals(Status.MODIFIED, diffs.get(1).getStatus());
+		assertTrue(diffs.get(1).isBinary());
+
+		assertEquals("removed.xml", diffs.get(2).getPath());
+		assertEquals(Status.REMOVED, diffs.get(2).getStatus());
+		assertNull(diffs.get(2).getFile1());
+
+		FileDiff java = diffs.get(3);
+		assertEquals("src/A.java", java.getPath());
+		assertEquals(DelimitingMethod.JAVA, java.getReport().getSource0().getDelimitingMethod());
+		assertEquals(1, java.getReport().getChanges().size());
+		assertEquals("1", java.getReport().getChanges().get(0).getRemovedString().trim());
+
+		FileDiff readme = diffs.get(4);
+		assertEquals("src/deep/README", readme.getPath());
+		assertFalse(readme.isBinary());
+		assertEquals(DelimitingMethod.LINES, readme.getReport().getSource0().getDelimitingMethod());
+
+		FileDiff notes = diffs.get(5);
+		assertEquals("src/deep/notes.txt", notes.getPath());
+		assertEquals(DelimitingMethod.LINES, notes.getReport().getSource0().getDelimitingMethod());
+		assertEquals(ComputeDiff.diff("one\ntwo\nthree\n", "one\nTWO\nthree\n").toString(), notes.getReport().toString());
+	}
+
+	@Test
+	public void testStreamingInPool() throws IOException {
+		Path[] roots = makeTrees();
+		final List<String> paths = new ArrayList<>();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			new DirectoryDiff(roots[0].toFile(), roots[1].toFile(), DiffAlgorithm.HISTOGRAM, UTF_8, pool).compare(diff -> paths.add(diff
+					.getPath()));
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(6, paths.size());
+		assertFalse(paths.contains("same.txt"));
+	}
+
+	@Test
+	public void testIdenticalTrees() throws IOException {
+		Path[] roots = makeTrees();
+		File root = roots[0].toFile();
+		assertTrue(new DirectoryDiff(root, root).compare().isEmpty());
+	}
+
+}
@@ -0,0 +1,111 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+
+import junit.framework.TestCase;
+
+public class TestEditScript extends TestCase {
+
+	@Test
+	public void testSameChangesAsReport() {
+		Random random = new Random(11);
+		for (int run = 0; run < 100; run++) {
+			DiffSource v1 = new DiffSource(TestDiffAlgorithm.randomText(random, random.nextInt(200)), DelimitingMethod.LINES);
+			DiffSource v2 = new DiffSource(TestDiffAlgorithm.randomText(random, random.nextInt(200)), DelimitingMethod.LINES);
+			for (DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+				DiffReport expected = ComputeDiff.diff(v1, v2, algorithm);
+				EditScript script = ComputeDiff.editScript(v1, v2, algorithm);
+				assertEquals(expected.toString(), script.toDiffReport(v1, v2).toString());
+				EditScript engineScript = DiffEngine.forCurrentThread().editScript(v1, v2, algorithm);
+				assertEquals(expected.toString(), engineScript.toDiffReport(v1, v2).toString());
+				assertEquals(script.toString(), EditScript.of(script.toChangeList(), script.isMinimal()).toString());
+			}
+		}
+	}
+
+	@Test
+	public void testAccessAndSearch() {
+		DiffSource v1 = new DiffSource("a\nb\nc\nd\ne\nf\n", DelimitingMethod.LINES);
+		DiffSource v2 = new DiffSource("a\nc\nd\nX\nY\ne\nf\nZ\n", DelimitingMethod.LINES);
+		EditScript script = ComputeDiff.editScript(v1, v2);
+		assertEquals(3, script.size());
+		assertEquals(1, script.getLine0(0));
+		assertEquals(1, script.getDeleted(0));
+		assertEquals(0, script.getInserted(0));
+		assertEquals(4, script.getLine0(1));
+		assertEquals(3, script.getLine1(1));
+		assertEquals(2, script.getInserted(1));
+		assertEquals(1, script.getDeletedCount());
+		assertEquals(3, script.getInsertedCount());
+
+		assertEquals(0, script.search0(1));
+		assertEquals(-1, script.search0(0));
+		assertEquals(-2, script.search0(2));
+		assertEquals(-3, script.search0(4));
+		assertEquals(1, script.search1(4));
+		assertEquals(2, script.search1(7));
+		assertEquals(-3, script.search1(6));
+
+		final int[] total = new int[1];
+		script.forEach((line0, line1, deleted, inserted) -> total[0] += deleted + inserted);
+		assertEquals(4, total[0]);
+		try {
+			script.getLine0(3);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testNoDifference() {
+		DiffSource v1 = new DiffSource("a\nb\n", DelimitingMethod.LINES);
+		EditScript script = ComputeDiff.editScript(v1, v1);
+		assertEquals(0, script.size());
+		assertEquals(-1, script.search0(1));
+		assertEquals(0, script.toDiffReport(v1, v1).getChanges().size());
+	}
+
+}
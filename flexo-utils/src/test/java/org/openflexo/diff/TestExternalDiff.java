@@ -0,0 +1,269 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffChange;
+
+import junit.framework.TestCase;
+
+public class TestExternalDiff extends TestCase {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static File makeFile(Path directory, String contents) throws IOException {
+		File file = Files.createTempFile(directory, "TestExternalDiff", ".txt").toFile();
+		file.deleteOnExit();
+		Files.write(file.toPath(), contents.getBytes(UTF_8));
+		return file;
+	}
+
+	private static final String[] LINE_ENDS = { "\n", "\n", "\r\n", "\r\n", "\r", "\r\r\n", "\n\r" };
+
+	private static String randomText(Random random, int lines) {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < lines; i++) {
+			// Mix frequent lines with lines unlikely to be repeated
+			sb.append(random.nextInt(3) == 0 ? "}" : "line " + random.nextInt(4 * lines)).append(LINE_ENDS[random.nextInt(LINE_ENDS.length)]);
+		}
+		return sb.toString();
+	}
+
+	private static DiffSource lines(File file) throws IOException {
+		return new DiffSource(file, DelimitingMethod.LINES, UTF_8);
+	}
+
+	private static String mutate(Random random, String text) {
+		String[] lines = text.split("\n", -1);
+		StringBuffer sb = new StringBuffer();
+		for (String line : lines) {
+			int action = random.nextInt(10);
+			if (action == 0) {
+				continue;
+			}
+			if (action == 1) {
+				sb.append("inserted " + random.nextInt(100) + "\n");
+			}
+			sb.append(line).append("\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Check that lines not reported as changed by supplied script are equal
+	 */
+	private static void assertValid(File file0, File file1, EditScript script) throws IOException {
+		DiffSource source0 = lines(file0);
+		DiffSource source1 = lines(file1);
+		int[] next = { 0, 0 };
+		script.forEach((line0, line1, deleted, inserted) -> {
+			assertEquals(line0 - next[0], line1 - next[1]);
+			for (int i = next[0], j = next[1]; i < line0; i++, j++) {
+				assertEquals(source0.tokenValueAt(i), source1.tokenValueAt(j));
+			}
+			next[0] = line0 + deleted;
+			next[1] = line1 + inserted;
+		});
+		assertEquals(source0.tokensCount() - next[0], source1.tokensCount() - next[1]);
+		for (int i = next[0], j = next[1]; i < source0.tokensCount(); i++, j++) {
+			assertEquals(source0.tokenValueAt(i), source1.tokenValueAt(j));
+		}
+	}
+
+	@Test
+	public void testRandomScriptsAreValid() throws IOException {
+		Path directory = Files.createTempDirectory("TestExternalDiff");
+		directory.toFile().deleteOnExit();
+		Random random = new Random(25);
+		for (int test = 0; test < 100; test++) {
+			String text0 = randomText(random, random.nextInt(200));
+			String text1 = mutate(random, text0);
+			File file0 = makeFile(directory, text0);
+			File file1 = makeFile(directory, text1);
+			for (int maxLines : new int[] { 4, 16, ExternalDiff.DEFAULT_MAX_LINES_IN_MEMORY }) {
+				ExternalDiff diff = new ExternalDiff(file0, file1, UTF_8, directory.toFile(), maxLines);
+				EditScript script = diff.editScript();
+				assertValid(file0, file1, script);
+				assertEquals(lines(file0).tokensCount(), diff.getLineCount0());
+				assertEquals(lines(file1).tokensCount(), diff.getLineCount1());
+			}
+			assertTrue(file0.delete());
+			assertTrue(file1.delete());
+			// All temporary files were removed
+			assertEquals(0, directory.toFile().list().length);
+		}
+	}
+
+	@Test
+	public void testUnifiedOutput() throws IOException {
+		Path directory = Files.createTempDirectory("TestExternalDiff");
+		directory.toFile().deleteOnExit();
+		Random random = new Random(7);
+		for (int test = 0; test < 50; test++) {
+			String text0 = randomText(random, 1 + random.nextInt(100)) + "no newline \u00e9";
+			String text1 = mutate(random, text0);
+			File file0 = makeFile(directory, text0);
+			File file1 = makeFile(directory, text1);
+			ExternalDiff diff = new ExternalDiff(file0, file1, UTF_8, directory.toFile(), 8);
+			EditScript script = diff.editScript();
+			StringWriter expected = new StringWriter();
+			DiffPrint.UnifiedPrint printer = new DiffPrint.UnifiedPrint(lines(file0), lines(file1), expected);
+			printer.print_header("a", "b");
+			printer.print_script(script);
+			StringWriter written = new StringWriter();
+			assertEquals(script.size() > 0, diff.writeUnified(written, "a", "b"));
+			assertEquals(script.size() > 0 ? expected.toString() : "", written.toString());
+		}
+	}
+
+	@Test
+	public void testIdenticalFiles() throws IOException {
+		Path directory = Files.createTempDirectory("TestExternalDiff");
+		directory.toFile().deleteOnExit();
+		ExternalDiff diff = new ExternalDiff(makeFile(directory, "a\nb\nb\n"), makeFile(directory, "a\r\nb\nb"), UTF_8);
+		assertEquals(0, diff.editScript().size());
+		assertTrue(diff.isMinimal());
+		StringWriter written = new StringWriter();
+		assertFalse(diff.writeUnified(written, "a", "b"));
+		assertEquals("", written.toString());
+	}
+
+	@Test
+	public void testOversizedWindow() throws IOException {
+		Path directory = Files.createTempDirectory("TestExternalDiff");
+		directory.toFile().deleteOnExit();
+		File file0 = makeFile(directory, "x\na\na\nb\ny\n");
+		File file1 = makeFile(directory, "x\nb\na\nb\ny\n");
+		ExternalDiff diff = new ExternalDiff(file0, file1, UTF_8, null, 4);
+		EditScript script = diff.editScript();
+		assertFalse(diff.areWindowsMinimal());
+		assertFalse(diff.isMinimal());
+		assertFalse(script.isMinimal());
+		assertEquals(1, script.size());
+		assertEquals(1, script.getLine0(0));
+		assertEquals(3, script.getDeleted(0));
+		assertEquals(3, script.getInserted(0));
+		// Window fits in memory
+		diff = new ExternalDiff(file0, file1, UTF_8, null, 6);
+		script = diff.editScript();
+		assertTrue(diff.areWindowsMinimal());
+		// Anchors x and y are imposed
+		assertFalse(diff.isMinimal());
+		assertValid(file0, file1, script);
+		assertEquals(2, script.getDeletedCount() + script.getInsertedCount());
+	}
+
+	@Test
+	public void testAnchoredScriptIsNotMinimal() throws IOException {
+		Path directory = Files.createTempDirectory("TestExternalDiff");
+		directory.toFile().deleteOnExit();
+		String[] texts = TestDiffAlgorithm.crossedTexts(5000);
+		File file0 = makeFile(directory, texts[0]);
+		File file1 = makeFile(directory, texts[1]);
+		ExternalDiff diff = new ExternalDiff(file0, file1, UTF_8);
+		EditScript script = diff.editScript();
+		// Unique line U is kept as an anchor, whereas a minimal script keeps X or Y
+		assertEquals(20000, script.getDeletedCount() + script.getInsertedCount());
+		assertTrue(diff.areWindowsMinimal());
+		assertFalse(diff.isMinimal());
+		assertFalse(script.isMinimal());
+		assertFalse(diff.toDiffReport().isMinimal());
+
+		// Without anchor, the only window is compared by Myers
+		diff = new ExternalDiff(makeFile(directory, "a\na\n"), makeFile(directory, "a\nb\na\n"), UTF_8);
+		script = diff.editScript();
+		assertEquals(1, script.getInsertedCount());
+		assertTrue(diff.isMinimal());
+		assertTrue(script.isMinimal());
+	}
+
+	@Test
+	public void testDiffReport() throws IOException {
+		Path directory = Files.createTempDirectory("TestExternalDiff");
+		directory.toFile().deleteOnExit();
+		String text0 = "one\ntwo\nthree\nfour\n";
+		String text1 = "one\nTWO\nthree\nfour\nfive\n";
+		ExternalDiff diff = new ExternalDiff(makeFile(directory, text0), makeFile(directory, text1), UTF_8);
+		assertEquals(ComputeDiff.diff(text0, text1).toString(), diff.toDiffReport().toString());
+	}
+
+	@Test
+	public void testBareCarriageReturns() throws IOException {
+		Path directory = Files.createTempDirectory("TestExternalDiff");
+		directory.toFile().deleteOnExit();
+		String text0 = "a\rb\nc\nd\n";
+		String text1 = "a\rb\nc\ne\n";
+		ExternalDiff diff = new ExternalDiff(makeFile(directory, text0), makeFile(directory, text1), UTF_8);
+		List<DiffChange> changes = diff.toDiffReport().getChanges();
+		List<DiffChange> expected = ComputeDiff.diff(text0, text1).getChanges();
+		assertEquals(1, expected.size());
+		assertEquals(expected.size(), changes.size());
+		for (int i = 0; i < changes.size(); i++) {
+			assertEquals(expected.get(i).getRemovedString(), changes.get(i).getRemovedString());
+			assertEquals(expected.get(i).getAddedString(), changes.get(i).getAddedString());
+		}
+		assertEquals(4, diff.getLineCount0());
+
+		StringWriter written = new StringWriter();
+		assertTrue(new ExternalDiff(makeFile(directory, "\ra\r\rb\n\rc\r"), makeFile(directory, "a\nb\nc\nd\n"), UTF_8)
+				.writeUnified(written, "a", "b"));
+		assertEquals("--- a\n+++ b\n@@ -1,3 +1,4 @@\n a\n b\n c\n+d\n", written.toString());
+	}
+
+	@Test
+	public void testIncompatibleCharset() {
+		try {
+			new ExternalDiff(new File("a"), new File("b"), Charset.forName("UTF-16"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+}
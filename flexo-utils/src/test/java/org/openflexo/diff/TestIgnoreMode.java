@@ -0,0 +1,139 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.AdditionChange;
+import org.openflexo.diff.ComputeDiff.DiffChange;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+import org.openflexo.diff.ComputeDiff.RemovalChange;
+
+import junit.framework.TestCase;
+
+public class TestIgnoreMode extends TestCase {
+
+	private static DiffReport diff(String text0, String text1, IgnoreMode... modes) {
+		EnumSet<IgnoreMode> set = EnumSet.noneOf(IgnoreMode.class);
+		for (IgnoreMode mode : modes) {
+			set.add(mode);
+		}
+		return ComputeDiff.diff(new DiffSource(text0), new DiffSource(text1), DiffAlgorithm.MYERS, set);
+	}
+
+	@Test
+	public void testNoModeIsPlainDiff() {
+		String text0 = "a\nb\nc\n";
+		String text1 = "a\nB\nc\nd\n";
+		assertEquals(ComputeDiff.diff(text0, text1).toString(), diff(text0, text1).toString());
+	}
+
+	@Test
+	public void testIgnoreAllWhitespace() {
+		assertEquals(0, diff("int a = 1;\n\tfoo( );\n", "int a=1;\nfoo();\n", IgnoreMode.ALL_WHITESPACE).getChanges().size());
+		assertEquals(1, diff("int a = 1;\n", "int b=1;\n", IgnoreMode.ALL_WHITESPACE).getChanges().size());
+	}
+
+	@Test
+	public void testIgnoreWhitespaceChange() {
+		assertEquals(0, diff("int  a =\t1;  \n", "int a = 1;\n", IgnoreMode.WHITESPACE_CHANGE).getChanges().size());
+		assertEquals(1, diff("int a=1;\n", "int a = 1;\n", IgnoreMode.WHITESPACE_CHANGE).getChanges().size());
+		assertEquals(1, diff("a\n", " a\n", IgnoreMode.WHITESPACE_CHANGE).getChanges().size());
+	}
+
+	@Test
+	public void testIgnoreCase() {
+		assertEquals(0, diff("SELECT * FROM t;\n", "select * from T;\n", IgnoreMode.CASE).getChanges().size());
+		assertEquals(1, diff("SELECT * FROM t;\n", "select *  from T;\n", IgnoreMode.CASE).getChanges().size());
+		assertEquals(0, diff("SELECT * FROM t;\n", "select *  from T;\n", IgnoreMode.CASE, IgnoreMode.WHITESPACE_CHANGE).getChanges()
+				.size());
+	}
+
+	@Test
+	public void testIgnoreBlankLines() {
+		DiffReport report = diff("a\n\nb\nc\n", "a\nb\n\n \nc\nd\n", IgnoreMode.BLANK_LINES);
+		assertEquals(1, report.getChanges().size());
+		DiffChange change = report.getChanges().get(0);
+		assertTrue(change instanceof AdditionChange);
+		assertEquals(5, change.getFirst1());
+		assertEquals(5, change.getLast1());
+
+		// Blank lines located inside a change are reported
+		report = diff("a\nx\n\ny\nb\n", "a\n\nb\n", IgnoreMode.BLANK_LINES);
+		assertEquals(1, report.getChanges().size());
+		change = report.getChanges().get(0);
+		assertTrue(change instanceof RemovalChange);
+		assertEquals(1, change.getFirst0());
+		assertEquals(3, change.getLast0());
+	}
+
+	@Test
+	public void testStrategyHashes() {
+		Random random = new Random(23);
+		String chars = "aAbB \t";
+		HashingStrategy<CharSequence> all = IgnoreMode.strategy(EnumSet.of(IgnoreMode.ALL_WHITESPACE, IgnoreMode.CASE));
+		HashingStrategy<CharSequence> change = IgnoreMode.strategy(EnumSet.of(IgnoreMode.WHITESPACE_CHANGE));
+		for (int run = 0; run < 2000; run++) {
+			StringBuffer s1 = new StringBuffer();
+			StringBuffer s2 = new StringBuffer();
+			for (int i = random.nextInt(6); i > 0; i--) {
+				s1.append(chars.charAt(random.nextInt(chars.length())));
+			}
+			for (int i = random.nextInt(6); i > 0; i--) {
+				s2.append(chars.charAt(random.nextInt(chars.length())));
+			}
+			String normalized1 = s1.toString().replaceAll("\\s", "").toLowerCase();
+			String normalized2 = s2.toString().replaceAll("\\s", "").toLowerCase();
+			assertEquals(normalized1.equals(normalized2), all.equals(s1, s2));
+			if (all.equals(s1, s2)) {
+				assertEquals(all.computeHashCode(s1), all.computeHashCode(s2));
+			}
+			normalized1 = s1.toString().replaceAll("\\s+$", "").replaceAll("\\s+", " ");
+			normalized2 = s2.toString().replaceAll("\\s+$", "").replaceAll("\\s+", " ");
+			assertEquals(normalized1.equals(normalized2), change.equals(s1, s2));
+			if (change.equals(s1, s2)) {
+				assertEquals(change.computeHashCode(s1), change.computeHashCode(s2));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+/**
+ * 
+ * Copyright (c) 2014, Openflexo
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+
+package org.openflexo.diff;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+import org.openflexo.diff.DiffSource.TokenEdit;
+
+import junit.framework.TestCase;
+
+public class TestIncrementalDiff extends TestCase {
+
+	private static final DelimitingMethod[] METHODS = { DelimitingMethod.LINES, DelimitingMethod.DEFAULT, DelimitingMethod.JAVA };
+
+	@Test
+	public void testEditRetokenizesLocally() {
+		DiffSource source = new DiffSource("a\nb\nc\nd\ne\n");
+		source.getSignificativeTokens();
+		TokenEdit edit = source.applyEdit(4, 1, "x\ny");
+		assertEquals("a\nb\nx\ny\nd\ne\n", source.getText());
+		assertEquals(1, edit.getFirstToken());
+		assertEquals(2, edit.getRemovedTokens());
+		assertEquals(3, edit.getInsertedTokens());
+		assertEquals(6, source.tokensCount());
+		assertEquals("y", source.tokenValueAt(3));
+		assertEquals("e", source.getSignificativeTokens()[5]);
+	}
+
+	@Test
+	public void testRandomEdits() {
+		Random random = new Random(5);
+		String alphabet = "ab c\n\n;(";
+		for (int run = 0; run < 300; run++) {
+			DelimitingMethod method = METHODS[run % METHODS.length];
+			String v0 = TestDiffAlgorithm.randomText(random, random.nextInt(40));
+			String v1 = TestDiffAlgorithm.mutate(random, v0);
+			DiffSource source0 = new DiffSource(v0, method);
+			DiffSource source1 = new DiffSource(v1, method);
+			DiffReport report = ComputeDiff.diff(source0, source1);
+			for (int e = 0; e < 5; e++) {
+				DiffSource edited = random.nextBoolean() ? source0 : source1;
+				String text = edited.getText();
+				int offset = random.nextInt(text.length() + 1);
+				int removed = random.nextInt(Math.min(10, text.length() - offset) + 1);
+				StringBuilder inserted = new StringBuilder();
+				for (int i = random.nextInt(8); i > 0; i--) {
+					inserted.append(alphabet.charAt(random.nextInt(alphabet.length())));
+				}
+				String expectedText = text.substring(0, offset) + inserted + text.substring(offset + removed);
+				TokenEdit edit = edited.applyEdit(offset, removed, inserted.toString());
+				assertEquals(expectedText, edited.getText());
+
+				DiffSource expected = new DiffSource(expectedText, method);
+				assertEquals(expected.tokensCount(), edited.tokensCount());
+				for (int i = 0; i < expected.tokensCount(); i++) {
+					assertEquals(expected.tokenAt(i).getFullString(), edited.tokenAt(i).getFullString());
+					assertEquals(expected.tokenValueAt(i), edited.tokenValueAt(i));
+					assertEquals(expected.tokenHash(i), edited.tokenHash(i));
+				}
+
+				assertSame(report, ComputeDiff.updateDiff(report, edit));
+				assertEquals(TestDiffAlgorithm.lines(source1), TestDiffAlgorithm.apply(report, source0, source1));
+			}
+		}
+	}
+
+	@Test
+	public void testMappedSourceCannotBeEdited() throws Exception {
+		File file = File.createTempFile("TestIncrementalDiff", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "a\n".getBytes("UTF-8"));
+		try {
+			new DiffSource(file, DelimitingMethod.LINES, Charset.forName("UTF-8")).applyEdit(0, 0, "b");
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+	}
+
+}
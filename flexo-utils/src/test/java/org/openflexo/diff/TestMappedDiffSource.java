@@ -0,0 +1,134 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestMappedDiffSource extends TestCase {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static File makeFile(String contents) throws IOException {
+		File file = File.createTempFile("TestMappedDiffSource", ".txt");
+		file.deleteOnExit();
+		Files.write(file.toPath(), contents.getBytes(UTF_8));
+		return file;
+	}
+
+	@Test
+	public void testSameTokensAsStringSource() throws IOException {
+		String contents = "public class \u00c9t\u00e9 {\r\n\tint a = 1;\r\n\r\n\tString s = \"\u00e0\u00e9\u00e8\";\r\n}";
+		for (DelimitingMethod method : new DelimitingMethod[] { DelimitingMethod.LINES, DelimitingMethod.DEFAULT, DelimitingMethod.JAVA }) {
+			DiffSource mapped = new DiffSource(makeFile(contents), method, UTF_8);
+			DiffSource source = new DiffSource(contents, method);
+			assertTrue(mapped.isMapped());
+			assertEquals(source.tokensCount(), mapped.tokensCount());
+			for (int i = 0; i < source.tokensCount(); i++) {
+				assertEquals(source.tokenValueAt(i), mapped.tokenValueAt(i));
+				assertEquals(source.tokenAt(i).getToken(), mapped.tokenAt(i).getToken());
+				assertEquals(source.tokenHash(i), mapped.tokenHash(i));
+				assertTrue(source.tokenEquals(i, mapped, i));
+				assertEquals(source.tokenValueAt(i), mapped.tokenSequence(i).toString());
+			}
+			assertEquals(contents, mapped.getText());
+		}
+	}
+
+	@Test
+	public void testCarriageReturnsArePreserved() throws IOException {
+		DiffSource mapped = new DiffSource(makeFile("a\r\nb\r\n"), DelimitingMethod.LINES, UTF_8);
+		assertEquals(2, mapped.tokensCount());
+		assertEquals("a", mapped.tokenValueAt(0));
+		assertEquals("a\r\n", mapped.tokenAt(0).getFullString());
+		assertEquals("\r\n", mapped.tokenAt(0).getEndDelim());
+	}
+
+	@Test
+	public void testDiff() throws IOException {
+		DiffSource mapped0 = new DiffSource(makeFile("a\r\nb\r\nc\r\nd\r\n"), DelimitingMethod.LINES, UTF_8);
+		DiffSource mapped1 = new DiffSource(makeFile("a\nB\nc\nd\n\u00e9\n"), DelimitingMethod.LINES, UTF_8);
+		String expected = ComputeDiff.diff("a\nb\nc\nd\n", "a\nB\nc\nd\n\u00e9\n").toString();
+		assertEquals(expected, ComputeDiff.diff(mapped0, mapped1).toString());
+		assertEquals(expected, ComputeDiff.diff(mapped0, new DiffSource("a\nB\nc\nd\n\u00e9\n")).toString());
+	}
+
+	@Test
+	public void testTokenViews() {
+		DiffSource source = new DiffSource("foo bar\nbar foo\n", DelimitingMethod.DEFAULT);
+		assertEquals(4, source.tokensCount());
+		assertEquals("bar", source.tokenSequence(1).toString());
+		assertEquals("bar\n", source.fullSequence(1).toString());
+		assertEquals(3, source.tokenAt(2).getTokenSequence().length());
+		assertTrue(source.tokenEquals(1, source, 2));
+		assertFalse(source.tokenEquals(0, source, 1));
+		assertEquals(source.tokenHash(0), source.tokenHash(3));
+		assertSame(source.getSignificativeTokens(), source.getSignificativeTokens());
+		assertSame(source.tokenValueAt(3), source.getSignificativeTokens()[3]);
+		StringBuffer sb = new StringBuffer();
+		source.appendFullString(3, sb);
+		assertEquals("foo\n", sb.toString());
+		assertEquals("bar\nbar foo\n", source.extractText(1, 10));
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		DiffSource mapped = new DiffSource(makeFile(""), DelimitingMethod.LINES, UTF_8);
+		assertEquals(0, mapped.tokensCount());
+		assertEquals("", mapped.getText());
+	}
+
+	@Test
+	public void testIncompatibleCharset() throws IOException {
+		try {
+			new DiffSource(makeFile("a"), DelimitingMethod.LINES, Charset.forName("UTF-16"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+}
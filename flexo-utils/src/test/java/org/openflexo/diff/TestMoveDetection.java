@@ -0,0 +1,129 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openflexo.diff.ComputeDiff.DiffChange;
+import org.openflexo.diff.ComputeDiff.DiffReport;
+import org.openflexo.diff.ComputeDiff.MoveChange;
+
+import junit.framework.TestCase;
+
+public class TestMoveDetection extends TestCase {
+
+	@Test
+	public void testMovedMethod() {
+		String method = "void foo() {\n\tint a = 1;\n\tbar(a);\n}\n";
+		String other = "void other() {\n\tint b = 2;\n\tint c = 3;\n\treturn;\n}\n";
+		String v1 = "class A {\n" + method + "int x;\n" + other + "}\n";
+		String v2 = "class A {\nint x;\n" + other + method + "}\n";
+		DiffReport report = ComputeDiff.diff(v1, v2);
+		assertEquals(0, report.getMoveChangeCount());
+		DiffReport moves = ComputeDiff.detectMoves(report);
+		assertEquals(1, moves.getMoveChangeCount());
+		assertEquals(1, moves.getChanges().size());
+		DiffChange move = moves.getChanges().firstElement();
+		assertTrue(move instanceof MoveChange);
+		assertEquals(method, move.getRemovedString());
+		assertEquals(method, move.getAddedString());
+		assertEquals(1, move.getFirst0());
+		assertEquals(4, move.getLast0());
+	}
+
+	@Test
+	public void testMovedAndEdited() {
+		String v1 = "a\nb\nc\nd\ne\nf\ng\nh\n";
+		String v2 = "a\nf\ng\nh\nb\nc\nX\nd\ne\n";
+		DiffReport moves = ComputeDiff.detectMoves(ComputeDiff.diff(v1, v2));
+		assertEquals(1, moves.getMoveChangeCount());
+		// Each token is described once
+		checkCoverage(v1, v2, moves);
+	}
+
+	@Test
+	public void testShortBlocksAreIgnored() {
+		DiffReport report = ComputeDiff.diff("a\nb\nc\nd\n", "c\nd\na\nb\n");
+		assertSame(report, ComputeDiff.detectMoves(report));
+		assertEquals(1, ComputeDiff.detectMoves(report, 2).getMoveChangeCount());
+	}
+
+	@Test
+	public void testRandomCoverage() {
+		Random random = new Random(31);
+		for (int run = 0; run < 100; run++) {
+			String v1 = TestDiffAlgorithm.randomText(random, random.nextInt(100));
+			String v2 = TestDiffAlgorithm.mutate(random, v1);
+			checkCoverage(v1, v2, ComputeDiff.detectMoves(ComputeDiff.diff(v1, v2), 2));
+		}
+	}
+
+	/**
+	 * Check that changed tokens of both sources are the same with and without move detection, and that moves do move equal tokens
+	 */
+	private static void checkCoverage(String v1, String v2, DiffReport moves) {
+		DiffReport report = ComputeDiff.diff(v1, v2);
+		assertEquals(changed(report, 0, v1), changed(moves, 0, v1));
+		assertEquals(changed(report, 1, v2), changed(moves, 1, v2));
+		for (DiffChange change : moves.getChanges()) {
+			if (change instanceof MoveChange) {
+				assertEquals(change.getRemovedString(), change.getAddedString());
+			}
+		}
+	}
+
+	private static String changed(DiffReport report, int side, String text) {
+		int count = new DiffSource(text).tokensCount();
+		char[] flags = new char[count];
+		Arrays.fill(flags, '.');
+		for (DiffChange change : report.getChanges()) {
+			int first = side == 0 ? change.getFirst0() : change.getFirst1();
+			int last = side == 0 ? change.getLast0() : change.getLast1();
+			for (int i = first; i <= last; i++) {
+				assertEquals('.', flags[i]);
+				flags[i] = 'x';
+			}
+		}
+		return new String(flags);
+	}
+
+}
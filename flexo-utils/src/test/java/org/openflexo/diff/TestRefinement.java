@@ -0,0 +1,84 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestRefinement extends TestCase {
+
+	@Test
+	public void testWordRefinement() {
+		ComputeDiff.DiffReport report = ComputeDiff.diff("a\nint count = 0;\nb\n", "a\nlong count = 1;\nb\n");
+		assertEquals(1, report.getChanges().size());
+		ComputeDiff.DiffChange change = report.getChanges().firstElement();
+		assertTrue(change instanceof ComputeDiff.ModificationChange);
+		Refinement refinement = change.getWordRefinement();
+		assertEquals("[int->long][0->1]", refinement.toString());
+		assertEquals(0, refinement.getStart0(0));
+		assertEquals(3, refinement.getEnd0(0));
+		assertEquals(0, refinement.getStart1(0));
+		assertEquals(4, refinement.getEnd1(0));
+		assertSame(refinement, change.getWordRefinement());
+	}
+
+	@Test
+	public void testCharacterRefinement() {
+		Refinement refinement = Refiner.get().refine("kitten\n", "sitting\n", false);
+		assertEquals("[k->s][e->i][->g]", refinement.toString());
+		assertEquals(0, Refiner.get().refine("same", "same", false).size());
+		assertEquals("[->abc]", Refiner.get().refine(null, "abc", true).toString());
+	}
+
+	@Test
+	public void testLongInputs() {
+		StringBuffer text0 = new StringBuffer(), text1 = new StringBuffer();
+		for (int i = 0; i < 200; i++) {
+			text0.append("word" + i + " ");
+			text1.append("word" + (i % 10 == 0 ? "X" : "") + i + " ");
+		}
+		Refinement refinement = Refiner.get().refine(text0.toString(), text1.toString(), true);
+		assertEquals(20, refinement.size());
+		assertEquals("word0", text0.substring(refinement.getStart0(0), refinement.getEnd0(0)));
+		assertEquals("wordX0", text1.substring(refinement.getStart1(0), refinement.getEnd1(0)));
+	}
+
+}
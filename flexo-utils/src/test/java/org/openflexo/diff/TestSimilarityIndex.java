@@ -0,0 +1,165 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestSimilarityIndex extends TestCase {
+
+	private static String randomFile(Random random, int lines) {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < lines; i++) {
+			sb.append("value" + random.nextInt(100000) + " = " + random.nextInt(1000) + ";\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Replace about one line out of ten
+	 */
+	private static String edit(Random random, String text) {
+		StringBuffer sb = new StringBuffer();
+		for (String line : text.split("\n")) {
+			sb.append(random.nextInt(10) == 0 ? "edited" + random.nextInt(1000) : line).append("\n");
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testQuery() {
+		Random random = new Random(23);
+		SimilarityIndex<String> index = new SimilarityIndex<String>();
+		Map<String, DiffSource> sources = new HashMap<String, DiffSource>();
+		for (int i = 0; i < 300; i++) {
+			sources.put("file" + i, new DiffSource(randomFile(random, 100)));
+		}
+		String base = randomFile(random, 100);
+		for (int i = 0; i < 5; i++) {
+			sources.put("copy" + i, new DiffSource(edit(random, base)));
+		}
+		for (Map.Entry<String, DiffSource> entry : sources.entrySet()) {
+			index.add(entry.getKey(), entry.getValue());
+		}
+		assertEquals(305, index.size());
+
+		DiffSource query = new DiffSource(base);
+		List<SimilarityIndex.Match<String>> estimated = index.query(query, 0.7);
+		assertEquals(5, estimated.size());
+		for (SimilarityIndex.Match<String> match : estimated) {
+			assertTrue(match.getKey().startsWith("copy"));
+			assertNull(match.getStats());
+		}
+
+		List<SimilarityIndex.Match<String>> exact = index.query(query, 0.7, sources::get);
+		assertEquals(5, exact.size());
+		for (int i = 0; i < exact.size(); i++) {
+			SimilarityIndex.Match<String> match = exact.get(i);
+			assertEquals(ComputeDiff.similarity(query, sources.get(match.getKey())), match.getSimilarity(), 1e-9);
+			if (i > 0) {
+				assertTrue(match.getSimilarity() <= exact.get(i - 1).getSimilarity());
+			}
+		}
+
+		assertTrue(index.remove("copy0"));
+		assertFalse(index.remove("copy0"));
+		assertEquals(4, index.query(query, 0.7, sources::get).size());
+	}
+
+	@Test
+	public void testQueryWithLongShingles() {
+		Random random = new Random(31);
+		String base = randomFile(random, 100);
+		StringBuffer sb = new StringBuffer();
+		String[] lines = base.split("\n");
+		for (int i = 0; i < lines.length; i++) {
+			sb.append(i % 4 == 0 ? "edited" + i : lines[i]).append("\n");
+		}
+		DiffSource query = new DiffSource(base);
+		DiffSource edited = new DiffSource(sb.toString());
+		SimilarityIndex<String> index = new SimilarityIndex<String>(64, 1, 3);
+		index.add("edited", edited);
+		// Most shingles contain an edited line: estimate is far below similarity
+		assertTrue(index.getSketch("edited").estimateSimilarity(MinHashSketch.of(query, 64, 3)) < 0.5);
+		List<SimilarityIndex.Match<String>> exact = index.query(query, 0.7, key -> edited);
+		assertEquals(1, exact.size());
+		assertEquals(ComputeDiff.similarity(query, edited), exact.get(0).getSimilarity(), 1e-9);
+	}
+
+	@Test
+	public void testSketchEstimate() {
+		Random random = new Random(29);
+		String text = randomFile(random, 400);
+		DiffSource source = new DiffSource(text);
+		DiffSource edited = new DiffSource(edit(random, text));
+		MinHashSketch sketch = MinHashSketch.of(source, 512, 1);
+		MinHashSketch editedSketch = MinHashSketch.of(edited, 512, 1);
+		double similarity = ComputeDiff.similarity(source, edited);
+		assertEquals(similarity, sketch.estimateSimilarity(editedSketch), 0.05);
+		assertEquals(1.0, sketch.estimateSimilarity(MinHashSketch.of(new DiffSource(text), 512, 1)));
+		assertEquals(400, sketch.getElementsCount());
+	}
+
+	@Test
+	public void testRepeatedTokens() {
+		MinHashSketch once = MinHashSketch.of(new DiffSource("}\n"));
+		MinHashSketch twice = MinHashSketch.of(new DiffSource("}\n}\n"));
+		assertTrue(once.estimateJaccard(twice) < 1.0);
+		assertEquals(0.0, once.estimateJaccard(MinHashSketch.of(new DiffSource(""))));
+	}
+
+	@Test
+	public void testIncompatibleSketch() {
+		SimilarityIndex<Integer> index = new SimilarityIndex<Integer>(8, 2, 1);
+		try {
+			index.add(1, MinHashSketch.of(new DiffSource("a\n")));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+}
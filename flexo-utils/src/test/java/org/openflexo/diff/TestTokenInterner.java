@@ -0,0 +1,107 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestTokenInterner extends TestCase {
+
+	@Test
+	public void testRegionsAndStrings() {
+		TokenInterner interner = new TokenInterner();
+		String text = "foo bar foo";
+		int foo = interner.intern(text, 0, 3);
+		int bar = interner.intern(text, 4, 7);
+		assertEquals(1, foo);
+		assertEquals(2, bar);
+		assertEquals(foo, interner.intern(text, 8, 11));
+		assertEquals(foo, interner.intern("foo"));
+		assertEquals(foo, interner.intern(new StringBuilder("foo")));
+		assertEquals(3, interner.intern(""));
+		assertEquals(3, interner.size());
+		assertEquals(4, interner.getMaxId());
+		assertEquals("bar", interner.tokenValue(bar));
+		assertEquals(TokenInterner.hash("foo", 0, 3), TokenInterner.hash(text, 8, 11));
+		assertEquals(TokenInterner.hash("foo", 0, 3), TokenInterner.hash(new StringBuilder("foo"), 0, 3));
+	}
+
+	@Test
+	public void testObjects() {
+		TokenInterner interner = new TokenInterner();
+		int i1 = interner.intern(Integer.valueOf(1000));
+		int i2 = interner.intern(Integer.valueOf(2000));
+		assertEquals(i1, interner.intern(Integer.valueOf(1000)));
+		assertFalse(i1 == i2);
+		assertEquals(interner.intern(null), interner.intern(null));
+	}
+
+	@Test
+	public void testGrowth() {
+		TokenInterner interner = new TokenInterner(1);
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i + 1, interner.intern("token" + i));
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i + 1, interner.intern("token" + i));
+			assertEquals("token" + i, interner.tokenValue(i + 1));
+		}
+		interner.clear();
+		assertEquals(0, interner.size());
+		assertEquals(1, interner.intern("token42"));
+	}
+
+	@Test
+	public void testSharedInterner() {
+		TokenInterner interner = new TokenInterner();
+		DiffSource source0 = new DiffSource("a\nb\nc\nd\n");
+		DiffSource source1 = new DiffSource("a\nB\nc\nd\ne\n");
+		DiffSource source2 = new DiffSource("a\nb\nc\n");
+		assertEquals(ComputeDiff.diff(source0, source1).toString(), ComputeDiff.diff(source0, source1, interner).toString());
+		assertEquals(ComputeDiff.diff(source0, source2).toString(), ComputeDiff.diff(source0, source2, interner).toString());
+		assertEquals(2, ComputeDiff.diff(source0, source1, interner).getChanges().size());
+		int[] ids = source0.getTokenIds(interner);
+		assertEquals(4, ids.length);
+		assertEquals(interner.intern("a"), ids[0]);
+		assertEquals(interner.intern("d"), ids[3]);
+	}
+
+}
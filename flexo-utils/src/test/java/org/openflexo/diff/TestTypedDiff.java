@@ -0,0 +1,181 @@
+/**
+ * 
+ * Copyright (c) 2013-2014, Openflexo
+ * Copyright (c) 2011-2012, AgileBirds
+ * 
+ * This file is part of Flexoutils, a component of the software infrastructure 
+ * developed at Openflexo.
+ * 
+ * 
+ * Openflexo is dual-licensed under the European Union Public License (EUPL, either 
+ * version 1.1 of the License, or any later version ), which is available at 
+ * https://joinup.ec.europa.eu/software/page/eupl/licence-eupl
+ * and the GNU General Public License (GPL, either version 3 of the License, or any 
+ * later version), which is available at http://www.gnu.org/licenses/gpl.html .
+ * 
+ * You can redistribute it and/or modify under the terms of either of these licenses
+ * 
+ * If you choose to redistribute it and/or modify under the terms of the GNU GPL, you
+ * must include the following additional permission.
+ *
+ *          Additional permission under GNU GPL version 3 section 7
+ *
+ *          If you modify this Program, or any covered work, by linking or 
+ *          combining it with software containing parts covered by the terms 
+ *          of EPL 1.0, the licensors of this Program grant you additional permission
+ *          to convey the resulting work. * 
+ * 
+ * This software is distributed in the hope that it will be useful, but WITHOUT ANY 
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A 
+ * PARTICULAR PURPOSE. 
+ *
+ * See http://www.openflexo.org/license.html for details.
+ * 
+ * 
+ * Please contact Openflexo (openflexo-contacts@openflexo.org)
+ * or visit www.openflexo.org if you need additional information.
+ * 
+ */
+
+package org.openflexo.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class TestTypedDiff extends TestCase {
+
+	private static class Node {
+		private final int id;
+		private final String label;
+
+		Node(int id, String label) {
+			this.id = id;
+			this.label = label;
+		}
+
+		int getId() {
+			return id;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	private static EditScript objectDiff(Object[] a, Object[] b) {
+		Diff d = new Diff(a, b);
+		d.bit_parallel = ComputeDiff.isSmall(a.length, b.length);
+		return EditScript.of(d.diff_2(false), true);
+	}
+
+	@Test
+	public void testSameScriptAsObjectDiff() {
+		Random random = new Random(22);
+		for (int run = 0; run < 50; run++) {
+			String[] a = TestDiffAlgorithm.randomText(random, random.nextInt(300)).split("\n");
+			String[] b = TestDiffAlgorithm.mutate(random, String.join("\n", a)).split("\n");
+			assertEquals(objectDiff(a, b).toString(), new TypedDiff<String>().diff(a, b).toString());
+			assertEquals(objectDiff(a, b).toString(), new TypedDiff<String>().diff(Arrays.asList(a), Arrays.asList(b)).toString());
+		}
+	}
+
+	@Test
+	public void testIntAndLongSequences() {
+		Random random = new Random(23);
+		for (int run = 0; run < 50; run++) {
+			int[] a = new int[random.nextInt(500)];
+			int[] b = new int[random.nextInt(500)];
+			Integer[] boxedA = new Integer[a.length];
+			Integer[] boxedB = new Integer[b.length];
+			long[] longA = new long[a.length];
+			long[] longB = new long[b.length];
+			for (int i = 0; i < a.length; i++) {
+				a[i] = random.nextInt(20) - 10;
+				boxedA[i] = a[i];
+				longA[i] = (long) a[i] << 32;
+			}
+			for (int i = 0; i < b.length; i++) {
+				b[i] = random.nextInt(20) - 10;
+				boxedB[i] = b[i];
+				longB[i] = (long) b[i] << 32;
+			}
+			String expected = objectDiff(boxedA, boxedB).toString();
+			assertEquals(expected, TypedDiff.diff(a, b).toString());
+			assertEquals(expected, TypedDiff.diff(IntSequence.of(a), IntSequence.of(b)).toString());
+			assertEquals(expected, TypedDiff.diff(longA, longB).toString());
+		}
+	}
+
+	@Test
+	public void testSubSequence() {
+		int[] values = { 1, 2, 3, 4, 5, 6 };
+		EditScript script = TypedDiff.diff(IntSequence.of(values, 1, 4), IntSequence.of(new int[] { 2, 4 }));
+		assertEquals(1, script.size());
+		assertEquals(1, script.getLine0(0));
+		assertEquals(1, script.getDeleted(0));
+		try {
+			IntSequence.of(values, 4, 7);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testLongValuesAreNotTruncated() {
+		EditScript script = TypedDiff.diff(new long[] { 1L, 2L }, new long[] { 1L | 1L << 32, 2L });
+		assertEquals(1, script.size());
+		assertEquals(1, script.getDeletedCount());
+		assertEquals(1, script.getInsertedCount());
+	}
+
+	@Test
+	public void testIgnoreCaseAndWhitespace() {
+		List<CharSequence> a = Arrays.asList("public class Foo", "int  a = 1;", "}");
+		List<CharSequence> b = Arrays.asList("PUBLIC CLASS foo", "int a=1;", "}");
+		assertEquals(0, new TypedDiff<CharSequence>(HashingStrategy.IGNORE_CASE).diff(a, Arrays.asList(a.get(0).toString()
+				.toUpperCase(), a.get(1), a.get(2))).size());
+		assertEquals(1, new TypedDiff<CharSequence>(HashingStrategy.IGNORE_CASE).diff(a, b).getInsertedCount());
+		assertEquals(1, new TypedDiff<CharSequence>(HashingStrategy.IGNORE_WHITESPACE).diff(a, b).getInsertedCount());
+		assertEquals(1, new TypedDiff<CharSequence>(HashingStrategy.IGNORE_WHITESPACE).diff(b, Arrays.asList("PUBLICCLASS foo",
+				"i n t a = 1 ;", "}", "x")).getInsertedCount());
+	}
+
+	@Test
+	public void testCompareByKey() {
+		List<Node> a = new ArrayList<>();
+		List<Node> b = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			a.add(new Node(i, "node" + i));
+			if (i != 3) {
+				b.add(new Node(i, "renamed" + i));
+			}
+		}
+		b.add(new Node(42, "new"));
+		EditScript script = new TypedDiff<Node>(HashingStrategy.by(Node::getId)).diff(a, b);
+		assertEquals(2, script.size());
+		assertEquals(3, script.getLine0(0));
+		assertEquals(1, script.getDeleted(0));
+		assertEquals(9, script.getLine1(1));
+		assertEquals(1, script.getInserted(1));
+	}
+
+	@Test
+	public void testInternerKinds() {
+		TokenInterner interner = new TokenInterner();
+		int id = interner.intern(42L);
+		assertEquals(id, interner.intern(42));
+		assertTrue(id != interner.intern("42"));
+		assertTrue(id != interner.intern("42", HashingStrategy.IGNORE_CASE));
+		assertEquals("42", interner.tokenValue(id));
+		assertEquals(interner.intern("Foo", HashingStrategy.IGNORE_CASE), interner.intern("fOO", HashingStrategy.IGNORE_CASE));
+	}
+
+}